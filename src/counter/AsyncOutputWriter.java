@@ -0,0 +1,441 @@
+package counter;
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes lines of output on a dedicated thread.
+ * <p>
+ * Lines are handed to the writer thread through a bounded queue, so the thread
+ * which produces them only waits if the writer falls a full queue behind. The
+ * writer thread encodes each line straight into a direct byte buffer, which is
+ * written to the channel when it fills up, and otherwise as set by the flush
+ * interval:
+ * <p>
+ * FLUSH_WHEN_IDLE writes the buffer whenever the queue is drained, which is the
+ * default. FLUSH_EVERY_LINE writes each line as soon as it is encoded, for the
+ * lowest latency. A positive interval writes the buffer once its oldest line
+ * has waited that many milliseconds, which bounds the latency while combining
+ * the lines of a busy stream into fewer writes.
+ * <p>
+ * Lines are encoded as UTF-8, the charset which the keywords are read in, so a
+ * keyword is written with the same bytes as it was read.
+ * <p>
+ * The sink is a file, opened as a FileChannel, or the standard output when the
+ * path is STANDARD_OUTPUT. An existing file is truncated, or continued after
+ * a number of its lines, such as by a run recovered after a crash. An error on
+ * the writer thread is thrown from the next call to writeLine, flush, or close.
+ */
+public class AsyncOutputWriter implements Closeable, Flushable
+{
+	// Path which selects the standard output as the sink
+	public final static String STANDARD_OUTPUT = "-";
+
+	// Flush intervals which write the buffer when the queue is drained, or after every line
+	public final static long FLUSH_WHEN_IDLE = -1;
+	public final static long FLUSH_EVERY_LINE = 0;
+
+	// Number of kept lines which keeps every complete line of an existing file
+	public final static long ALL_LINES = Long.MAX_VALUE;
+
+	// Number of lines which can wait for the writer thread
+	private final static int QUEUE_CAPACITY = 1024;
+
+	private final static int BUFFER_SIZE = 1 << 16;
+
+	// Marks the end of the lines, and a request to write the buffered lines
+	private final static String END = new String();
+	private final static String SYNC = new String();
+
+	// Sink of the encoded lines
+	private WritableByteChannel channel;
+
+	// Whether the channel is closed with the writer
+	private boolean isChannelOwned;
+
+	// Lines waiting for the writer thread
+	private BlockingQueue<String> lines;
+
+	// Longest time in milliseconds that a line waits in the buffer, or FLUSH_WHEN_IDLE
+	private long flushInterval;
+
+	private Thread thread;
+
+	// Released by the writer thread once it has written the lines before a SYNC
+	private Semaphore synced;
+
+	// First error thrown by the writer thread
+	private volatile Throwable failure;
+
+	private boolean isClosed;
+
+	/**
+	 * Opens the provided path as the sink and starts the writer thread, which
+	 * writes the buffer whenever it is idle
+	 * <p>
+	 * An existing file is truncated.
+	 * <p>
+	 *
+	 * @param path Path of the output file, or STANDARD_OUTPUT
+	 * @throws IOException If the file cannot be opened
+	 */
+	public AsyncOutputWriter(String path) throws IOException
+	{
+		this(path, FLUSH_WHEN_IDLE);
+	}
+
+	/**
+	 * Opens the provided path as the sink and starts the writer thread
+	 * <p>
+	 * An existing file is truncated.
+	 * <p>
+	 *
+	 * @param path          Path of the output file, or STANDARD_OUTPUT
+	 * @param flushInterval Longest time in milliseconds that a line waits in the
+	 *                      buffer, FLUSH_EVERY_LINE, or FLUSH_WHEN_IDLE
+	 * @throws IOException If the file cannot be opened
+	 */
+	public AsyncOutputWriter(String path, long flushInterval) throws IOException
+	{
+		this(path, flushInterval, 0);
+	}
+
+	/**
+	 * Opens the provided path as the sink, keeping the first lines of an existing
+	 * file, and starts the writer thread
+	 * <p>
+	 * The lines after the kept lines, including an incomplete last line, are
+	 * truncated, and the following lines are appended to the kept lines.
+	 * <p>
+	 *
+	 * @param path          Path of the output file, or STANDARD_OUTPUT
+	 * @param flushInterval Longest time in milliseconds that a line waits in the
+	 *                      buffer, FLUSH_EVERY_LINE, or FLUSH_WHEN_IDLE
+	 * @param keptLines     The number of lines of the file to keep, or ALL_LINES
+	 * @throws IOException If the file cannot be opened
+	 */
+	public AsyncOutputWriter(String path, long flushInterval, long keptLines) throws IOException
+	{
+		this.flushInterval = flushInterval;
+		if (STANDARD_OUTPUT.equals(path))
+		{
+			this.channel = new FileOutputStream(FileDescriptor.out).getChannel();
+			this.isChannelOwned = false;
+		}
+		else if (keptLines == 0)
+		{
+			this.channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			this.isChannelOwned = true;
+		}
+		else
+		{
+			FileChannel file = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			long end = findLinesEnd(file, keptLines);
+			file.truncate(end);
+			file.position(end);
+			this.channel = file;
+			this.isChannelOwned = true;
+		}
+		this.lines = new ArrayBlockingQueue<String>(QUEUE_CAPACITY);
+		this.synced = new Semaphore(0);
+		this.thread = new Thread(new Writer(StandardCharsets.UTF_8), "keyword-output");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Hands a line to the writer thread, which appends it and a line separator
+	 * <p>
+	 *
+	 * @param line The line to write
+	 * @throws IOException If the writer thread has failed, or if interrupted
+	 *                     while waiting for room in the queue
+	 */
+	public void writeLine(String line) throws IOException
+	{
+		checkFailure();
+		try
+		{
+			if (!this.lines.offer(line))
+			{
+				// Wait for the writer, which is a full queue behind
+				long start = Metrics.ENABLED ? System.nanoTime() : 0;
+				this.lines.put(line);
+				if (Metrics.ENABLED)
+				{
+					Metrics.OUTPUT_WAIT.record(System.nanoTime() - start);
+				}
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while writing the output", e);
+		}
+	}
+
+	/**
+	 * Waits for the writer thread to write every line handed to it so far
+	 * <p>
+	 * The lines are written to the sink, but are not forced to the storage
+	 * device. Once the writer is closed, every line has already been written.
+	 * <p>
+	 *
+	 * @throws IOException If the writer thread has failed, or if interrupted
+	 *                     while waiting
+	 */
+	@Override
+	public void flush() throws IOException
+	{
+		if (this.isClosed)
+		{
+			return;
+		}
+		try
+		{
+			this.lines.put(SYNC);
+			this.synced.acquire();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while flushing the output", e);
+		}
+		checkFailure();
+	}
+
+	/**
+	 * Waits for every line to be written, then closes the sink
+	 * <p>
+	 * The standard output is flushed but not closed.
+	 * <p>
+	 *
+	 * @throws IOException If an error occurs with writing or closing the sink
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (this.isClosed)
+		{
+			return;
+		}
+		this.isClosed = true;
+		try
+		{
+			this.lines.put(END);
+			this.thread.join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			this.thread.interrupt();
+			throw new IOException("Interrupted while closing the output", e);
+		}
+		finally
+		{
+			if (this.isChannelOwned)
+			{
+				this.channel.close();
+			}
+		}
+		checkFailure();
+	}
+
+	/**
+	 * Finds the end of the provided number of lines of a file, or the end of its
+	 * last complete line if it has fewer lines
+	 */
+	private static long findLinesEnd(FileChannel file, long lines) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		long position = 0;
+		long end = 0;
+		long found = 0;
+		while (found < lines)
+		{
+			buffer.clear();
+			int read = file.read(buffer, position);
+			if (read <= 0)
+			{
+				break;
+			}
+			for (int index = 0; index < read && found < lines; index++)
+			{
+				if (buffer.get(index) == '\n')
+				{
+					found++;
+					end = position + index + 1;
+				}
+			}
+			position += read;
+		}
+		return end;
+	}
+
+	private void checkFailure() throws IOException
+	{
+		if (this.failure != null)
+		{
+			throw new IOException("Failed to write the output", this.failure);
+		}
+	}
+
+	/**
+	 * Encodes and writes lines until the end is reached.
+	 */
+	private class Writer implements Runnable
+	{
+		private CharsetEncoder encoder;
+		private ByteBuffer buffer;
+		private CharBuffer separator;
+
+		// Time in nanoseconds by which the buffered lines must be written
+		private long deadline;
+
+		Writer(Charset charset)
+		{
+			this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			this.separator = CharBuffer.wrap(System.lineSeparator());
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				while (true)
+				{
+					String line = lines.poll();
+					if (line == null)
+					{
+						if (flushInterval > 0 && this.buffer.position() > 0)
+						{
+							// Wait for more lines until the buffered lines are due
+							long wait = this.deadline - System.nanoTime();
+							line = wait > 0 ? lines.poll(wait, TimeUnit.NANOSECONDS) : null;
+							if (line == null)
+							{
+								flush();
+								continue;
+							}
+						}
+						else
+						{
+							// Write the buffer while waiting for more lines
+							flush();
+							line = lines.take();
+						}
+					}
+					if (line == END)
+					{
+						flush();
+						return;
+					}
+					if (line == SYNC)
+					{
+						try
+						{
+							flush();
+						}
+						finally
+						{
+							synced.release();
+						}
+						continue;
+					}
+					if (this.buffer.position() == 0)
+					{
+						this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushInterval);
+					}
+					encode(CharBuffer.wrap(line));
+					this.separator.rewind();
+					encode(this.separator);
+					if (flushInterval == FLUSH_EVERY_LINE
+							|| (flushInterval > 0 && System.nanoTime() - this.deadline >= 0))
+					{
+						flush();
+					}
+				}
+			}
+			catch (Throwable e)
+			{
+				failure = e;
+
+				// Keep taking lines so that the producer is never blocked
+				try
+				{
+					String line;
+					while ((line = lines.take()) != END)
+					{
+						if (line == SYNC)
+						{
+							synced.release();
+						}
+					}
+				}
+				catch (InterruptedException interrupted)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		private void encode(CharBuffer characters) throws IOException
+		{
+			while (true)
+			{
+				CoderResult result = this.encoder.encode(characters, this.buffer, true);
+				if (result.isOverflow())
+				{
+					flush();
+				}
+				else if (result.isUnderflow())
+				{
+					this.encoder.reset();
+					return;
+				}
+				else
+				{
+					result.throwException();
+				}
+			}
+		}
+
+		private void flush() throws IOException
+		{
+			long start = Metrics.ENABLED ? System.nanoTime() : 0;
+			this.buffer.flip();
+			boolean isEmpty = !this.buffer.hasRemaining();
+			while (this.buffer.hasRemaining())
+			{
+				channel.write(this.buffer);
+			}
+			this.buffer.clear();
+			if (Metrics.ENABLED && !isEmpty)
+			{
+				Metrics.OUTPUT_FLUSH.record(System.nanoTime() - start);
+			}
+		}
+	}
+}
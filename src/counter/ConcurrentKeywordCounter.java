@@ -0,0 +1,351 @@
+package counter;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import structure.FrequencyEngine;
+import structure.FrequencyIndex;
+
+/**
+ * Counts keywords added by many threads, and answers queries for the most
+ * popular keywords from a periodically published snapshot.
+ * <p>
+ * Each keyword has an accumulator with a LongAdder, which spreads concurrent
+ * increments of a popular keyword over separate cells. An accumulator is found
+ * in a ConcurrentHashMap without locking, and is put on a lock-free queue of
+ * changed accumulators the first time it is increased after a publish. Besides
+ * the shared read lock described below, adding only takes a short lock of a map
+ * bin the first time a keyword is seen.
+ * <p>
+ * A publisher moves the changes into a frequency index, which is only used by
+ * the publisher, and replaces the snapshot with the new top keywords. The
+ * snapshot is an immutable array behind a volatile reference, so queries never
+ * block and never block the threads which add keywords. A query returns the
+ * counts as of the last publish, which is at most the publish interval old.
+ * <p>
+ * The publisher is a daemon thread, unless the publish interval is
+ * MANUAL_PUBLISH, in which case the counts are only published by calls to
+ * publish. Closing the counter stops the publisher and publishes the remaining
+ * changes. Adding holds the shared read lock of a read-write lock, which close
+ * takes exclusively, so every add either completes before the last publish or
+ * is rejected.
+ */
+public class ConcurrentKeywordCounter implements Closeable
+{
+	// Publish interval which only publishes when requested
+	public final static long MANUAL_PUBLISH = 0;
+
+	public final static long DEFAULT_PUBLISH_INTERVAL = 100;
+
+	public final static int DEFAULT_SNAPSHOT_SIZE = 100;
+
+	// Accumulator of each keyword
+	private ConcurrentHashMap<String, Accumulator> accumulators;
+
+	// Accumulators increased since they were last published
+	private ConcurrentLinkedQueue<Accumulator> changed;
+
+	// Published counts by id, and the accumulator of each id. Guarded by the publish lock
+	private FrequencyIndex frequencies;
+	private List<Accumulator> published;
+	private Object publishLock;
+
+	// Most popular keywords at the last publish, in descending order of counts. Never modified
+	private volatile KeywordCount[] snapshot;
+
+	// Number of keywords kept in the snapshot
+	private int snapshotSize;
+
+	private Thread publisher;
+
+	// First error thrown by the publisher thread
+	private volatile Throwable failure;
+
+	private volatile boolean isClosed;
+
+	// Held shared by each add, and exclusively by close, so no add lands after the last publish
+	private ReadWriteLock closeLock;
+
+	/**
+	 * Constructs a counter which publishes the top DEFAULT_SNAPSHOT_SIZE keywords
+	 * every DEFAULT_PUBLISH_INTERVAL milliseconds
+	 */
+	public ConcurrentKeywordCounter()
+	{
+		this(FrequencyEngine.FIBONACCI, DEFAULT_SNAPSHOT_SIZE, DEFAULT_PUBLISH_INTERVAL);
+	}
+
+	/**
+	 * Constructs a counter and starts its publisher thread
+	 * <p>
+	 *
+	 * @param engine          The type of frequency index of the published counts
+	 * @param snapshotSize    The largest number of keywords which can be queried
+	 * @param publishInterval Time in milliseconds between publishes, or
+	 *                        MANUAL_PUBLISH
+	 */
+	public ConcurrentKeywordCounter(FrequencyEngine engine, int snapshotSize, long publishInterval)
+	{
+		if (snapshotSize <= 0)
+		{
+			throw new IllegalArgumentException("The snapshot size must be greater than 0");
+		}
+		if (publishInterval < 0)
+		{
+			throw new IllegalArgumentException("The publish interval must not be negative");
+		}
+		this.accumulators = new ConcurrentHashMap<String, Accumulator>();
+		this.changed = new ConcurrentLinkedQueue<Accumulator>();
+		this.frequencies = engine.create();
+		this.published = new ArrayList<Accumulator>();
+		this.publishLock = new Object();
+		this.snapshot = new KeywordCount[0];
+		this.snapshotSize = snapshotSize;
+		this.closeLock = new ReentrantReadWriteLock();
+		if (publishInterval != MANUAL_PUBLISH)
+		{
+			this.publisher = new Thread(new Publisher(publishInterval), "keyword-publisher");
+			this.publisher.setDaemon(true);
+			this.publisher.start();
+		}
+	}
+
+	/**
+	 * Adds searches of the keyword
+	 * <p>
+	 * This method may be called by any number of threads at once. The searches
+	 * are included in queries after the next publish.
+	 * <p>
+	 *
+	 * @param keyword The searched keyword
+	 * @param count   Non-negative number of searches to add
+	 * @throws IllegalStateException If the counter is closed
+	 */
+	public void add(String keyword, long count)
+	{
+		if (count < 0)
+		{
+			throw new IllegalArgumentException("The count must not be negative");
+		}
+		this.closeLock.readLock().lock();
+		try
+		{
+			if (this.isClosed)
+			{
+				throw new IllegalStateException("The counter is closed");
+			}
+			Accumulator accumulator = this.accumulators.get(keyword);
+			if (accumulator == null)
+			{
+				Accumulator created = new Accumulator(keyword);
+				accumulator = this.accumulators.putIfAbsent(keyword, created);
+				if (accumulator == null)
+				{
+					accumulator = created;
+				}
+			}
+			accumulator.count.add(count);
+
+			// Read the flag before setting it, so increases of a popular keyword do not contend
+			if (!accumulator.isChanged.get() && accumulator.isChanged.compareAndSet(false, true))
+			{
+				this.changed.add(accumulator);
+			}
+		}
+		finally
+		{
+			this.closeLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the current count of the keyword, including searches which are not
+	 * published yet
+	 * <p>
+	 *
+	 * @param keyword The keyword to count
+	 * @return The number of searches added for the keyword
+	 */
+	public long getCount(String keyword)
+	{
+		Accumulator accumulator = this.accumulators.get(keyword);
+		return accumulator == null ? 0 : accumulator.count.sum();
+	}
+
+	/**
+	 * Gets the most popular keywords as of the last publish
+	 * <p>
+	 * This method never blocks, and may be called by any number of threads at
+	 * once. The keywords are ordered by descending counts.
+	 * <p>
+	 *
+	 * @param n The number of keywords to get, at most the snapshot size
+	 * @return At most n keywords and their published counts
+	 * @throws IllegalStateException If the publisher thread failed
+	 */
+	public List<KeywordCount> topN(int n)
+	{
+		if (n < 0 || n > this.snapshotSize)
+		{
+			throw new IllegalArgumentException("The number of keywords must be from 0 to " + this.snapshotSize);
+		}
+		if (this.failure != null)
+		{
+			throw new IllegalStateException("The publisher failed", this.failure);
+		}
+		KeywordCount[] top = this.snapshot;
+		return Collections.unmodifiableList(Arrays.asList(top).subList(0, Math.min(n, top.length)));
+	}
+
+	/**
+	 * Publishes the searches added since the last publish
+	 * <p>
+	 * The changed accumulators are applied to the frequency index, and queries
+	 * then read the new top keywords. Searches which are added while publishing
+	 * may be left for the next publish. Concurrent calls publish one at a time.
+	 */
+	public void publish()
+	{
+		synchronized (this.publishLock)
+		{
+			// Bound the changes applied, since accumulators may be changed again while publishing
+			long remaining = this.accumulators.mappingCount();
+			boolean isChanged = false;
+			Accumulator accumulator;
+			while (remaining-- > 0 && (accumulator = this.changed.poll()) != null)
+			{
+				// Clear the flag before reading the sum, so a later increase is queued again
+				accumulator.isChanged.set(false);
+				long total = accumulator.count.sum();
+				long increment = total - accumulator.publishedCount;
+				if (increment == 0)
+				{
+					continue;
+				}
+				if (accumulator.id < 0)
+				{
+					accumulator.id = this.published.size();
+					this.published.add(accumulator);
+				}
+				accumulator.publishedCount = total;
+				this.frequencies.add(accumulator.id, increment);
+				isChanged = true;
+			}
+			if (!isChanged)
+			{
+				return;
+			}
+
+			int[] ids = this.frequencies.getTop(this.snapshotSize);
+			KeywordCount[] top = new KeywordCount[ids.length];
+			for (int index = 0; index < ids.length; index++)
+			{
+				top[index] = new KeywordCount(this.published.get(ids[index]).keyword,
+						this.frequencies.getCount(ids[index]));
+			}
+			this.snapshot = top;
+		}
+	}
+
+	/**
+	 * Stops the publisher thread and publishes the remaining searches
+	 * <p>
+	 * Searches can no longer be added, but queries still read the last snapshot.
+	 * Adds which are in progress complete first, and are included in the last
+	 * publish.
+	 */
+	@Override
+	public void close()
+	{
+		this.closeLock.writeLock().lock();
+		try
+		{
+			if (this.isClosed)
+			{
+				return;
+			}
+			this.isClosed = true;
+		}
+		finally
+		{
+			this.closeLock.writeLock().unlock();
+		}
+		if (this.publisher != null)
+		{
+			this.publisher.interrupt();
+			try
+			{
+				this.publisher.join();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+		publish();
+	}
+
+	/**
+	 * The count of a keyword added by the writers, and its published state.
+	 */
+	private static class Accumulator
+	{
+		final String keyword;
+		final LongAdder count = new LongAdder();
+
+		// Whether the accumulator is queued to be published
+		final AtomicBoolean isChanged = new AtomicBoolean();
+
+		// Id in the frequency index and the count applied to it, only used by the publisher
+		int id = -1;
+		long publishedCount;
+
+		Accumulator(String keyword)
+		{
+			this.keyword = keyword;
+		}
+	}
+
+	/**
+	 * Publishes the counts at a fixed interval until the counter is closed.
+	 */
+	private class Publisher implements Runnable
+	{
+		private long interval;
+
+		Publisher(long interval)
+		{
+			this.interval = interval;
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				while (!ConcurrentKeywordCounter.this.isClosed)
+				{
+					Thread.sleep(this.interval);
+					publish();
+				}
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			catch (Throwable e)
+			{
+				// Any error is reported to queries, rather than silently stopping the publishes
+				ConcurrentKeywordCounter.this.failure = e;
+			}
+		}
+	}
+}
@@ -2,14 +2,15 @@ package counter;
 /**
  * An entry represents an operation in the keyword input file.
  * <p>
- * There are three entry types in the keyword input file: search, query, and
- * stop. A search represents the keyword and frequency line in the input file. A
- * query represents when the most popular keywords should be obtained. A stop is
- * simply "stop".
+ * There are four entry types in the keyword input file: search, query, stop,
+ * and epoch. A search represents the keyword and frequency line in the input
+ * file. A query represents when the most popular keywords should be obtained. A
+ * stop is simply "stop". An epoch is simply "epoch", and ends the current epoch
+ * of a windowed count.
  */
 public enum Entry
 {
-	QUERY, SEARCH, STOP;
+	QUERY, SEARCH, STOP, EPOCH;
 
 	/**
 	 * Factory method which parses and creates entries based upon an input string.
@@ -20,7 +21,10 @@ public enum Entry
 	 * $[keyword] [count]
 	 * <p>
 	 * where keyword is the searched keyword and count is the number of searches for
-	 * that keyword. A stop is simply "stop".
+	 * that keyword. A stop is simply "stop", and an epoch is simply "epoch".
+	 * <p>
+	 * Callers parsing many lines should reuse an EntryTokenizer instead, which also
+	 * provides the parsed keyword and count.
 	 * <p>
 	 * @param text Text to parse
 	 * @return A query or search entry. Null can be returned if the text does not
@@ -28,28 +32,6 @@ public enum Entry
 	 */
 	public static Entry createEntry(String text)
 	{
-		Entry entry = null;
-		
-		// Try to match either a search, query, or stop line
-		try
-		{
-			if (text.matches("\\$.+ \\d+"))
-			{
-				entry = SEARCH;
-			}
-			else if (text.matches("\\d+"))
-			{
-				entry = QUERY;
-			}
-			else if (text.equalsIgnoreCase("stop"))
-			{
-				entry = STOP;
-			}
-		}
-		catch (Exception e)
-		{
-
-		}
-		return entry;
+		return new EntryTokenizer().tokenize(text);
 	}
 }
@@ -0,0 +1,201 @@
+package counter;
+import java.nio.ByteBuffer;
+
+/**
+ * Classifies and parses lines of the keyword input file in a single pass.
+ * <p>
+ * The tokenizer is a reusable record of the last parsed line. Each call to
+ * tokenize overwrites the entry type, the keyword span, and the parsed value.
+ * No regular expressions, arrays, or strings are created, so a single instance
+ * can be used to parse every line of a file.
+ * <p>
+ * A search follows the format:
+ * <p>
+ * $[keyword] [count]
+ * <p>
+ * where the keyword is every character between the $ sign and the last space.
+ * A query consists only of an integer, a stop is simply "stop", and an epoch
+ * marker is simply "epoch".
+ */
+public class EntryTokenizer
+{
+	// Type of the last parsed line, or null if the line did not match an entry
+	private Entry entry;
+
+	// Start (inclusive) and end (exclusive) of the keyword of the last search
+	private int keywordStart;
+	private int keywordEnd;
+
+	// Frequency of the last search, or the number of keywords of the last query
+	private int value;
+
+	/**
+	 * Classifies and parses the provided line
+	 * <p>
+	 *
+	 * @param line Line to parse
+	 * @return The type of the line, or null if the line does not match any entry
+	 *         type
+	 */
+	public Entry tokenize(CharSequence line)
+	{
+		int end = line.length();
+		int separator = -1;
+		int number = 0;
+		boolean isNumber = true;
+		for (int index = 0; index < end; index++)
+		{
+			int digit = line.charAt(index) - '0';
+			if (digit >= 0 && digit <= 9)
+			{
+				if (number > (Integer.MAX_VALUE - digit) / 10)
+				{
+					isNumber = false;
+				}
+				number = number * 10 + digit;
+			}
+			else if (line.charAt(index) == ' ')
+			{
+				separator = index;
+				number = 0;
+				isNumber = true;
+			}
+			else
+			{
+				isNumber = false;
+			}
+		}
+		boolean isStop = end == 4 && (line.charAt(0) | 0x20) == 's' && (line.charAt(1) | 0x20) == 't'
+				&& (line.charAt(2) | 0x20) == 'o' && (line.charAt(3) | 0x20) == 'p';
+		boolean isEpoch = end == 5 && (line.charAt(0) | 0x20) == 'e' && (line.charAt(1) | 0x20) == 'p'
+				&& (line.charAt(2) | 0x20) == 'o' && (line.charAt(3) | 0x20) == 'c' && (line.charAt(4) | 0x20) == 'h';
+		return classify(end > 0 && line.charAt(0) == '$', isStop, isEpoch, 0, separator, end, number, isNumber);
+	}
+
+	/**
+	 * Classifies and parses the bytes of a line
+	 * <p>
+	 * The keyword span refers to positions within the buffer.
+	 * <p>
+	 *
+	 * @param buffer Buffer containing the line
+	 * @param start  Position of the first byte of the line
+	 * @param end    Position after the last byte of the line
+	 * @return The type of the line, or null if the line does not match any entry
+	 *         type
+	 */
+	public Entry tokenize(ByteBuffer buffer, int start, int end)
+	{
+		int separator = -1;
+		int number = 0;
+		boolean isNumber = true;
+		for (int index = start; index < end; index++)
+		{
+			byte character = buffer.get(index);
+			int digit = character - '0';
+			if (digit >= 0 && digit <= 9)
+			{
+				if (number > (Integer.MAX_VALUE - digit) / 10)
+				{
+					isNumber = false;
+				}
+				number = number * 10 + digit;
+			}
+			else if (character == ' ')
+			{
+				separator = index;
+				number = 0;
+				isNumber = true;
+			}
+			else
+			{
+				isNumber = false;
+			}
+		}
+		boolean isStop = end - start == 4 && (buffer.get(start) | 0x20) == 's'
+				&& (buffer.get(start + 1) | 0x20) == 't' && (buffer.get(start + 2) | 0x20) == 'o'
+				&& (buffer.get(start + 3) | 0x20) == 'p';
+		boolean isEpoch = end - start == 5 && (buffer.get(start) | 0x20) == 'e'
+				&& (buffer.get(start + 1) | 0x20) == 'p' && (buffer.get(start + 2) | 0x20) == 'o'
+				&& (buffer.get(start + 3) | 0x20) == 'c' && (buffer.get(start + 4) | 0x20) == 'h';
+		return classify(end > start && buffer.get(start) == '$', isStop, isEpoch, start, separator, end, number,
+				isNumber);
+	}
+
+	/**
+	 * Gets the type of the last parsed line
+	 * <p>
+	 *
+	 * @return The type of the last parsed line, or null if it did not match any
+	 *         entry type
+	 */
+	public Entry getEntry()
+	{
+		return this.entry;
+	}
+
+	/**
+	 * Gets the position of the first character of the keyword of the last search
+	 * <p>
+	 *
+	 * @return The start of the keyword
+	 */
+	public int getKeywordStart()
+	{
+		return this.keywordStart;
+	}
+
+	/**
+	 * Gets the position after the last character of the keyword of the last search
+	 * <p>
+	 *
+	 * @return The end of the keyword
+	 */
+	public int getKeywordEnd()
+	{
+		return this.keywordEnd;
+	}
+
+	/**
+	 * Gets the frequency of the last search, or the number of top keywords of the
+	 * last query
+	 * <p>
+	 *
+	 * @return The parsed value of the last line
+	 */
+	public int getValue()
+	{
+		return this.value;
+	}
+
+	private Entry classify(boolean isSearch, boolean isStop, boolean isEpoch, int start, int separator, int end,
+			int number, boolean isNumber)
+	{
+		this.entry = null;
+		if (isSearch)
+		{
+			// The keyword must contain a character and the count must contain a digit
+			if (separator > start + 1 && separator < end - 1 && isNumber)
+			{
+				this.entry = Entry.SEARCH;
+				this.keywordStart = start + 1;
+				this.keywordEnd = separator;
+				this.value = number;
+			}
+		}
+		else if (separator < 0 && end > start && isNumber)
+		{
+			this.entry = Entry.QUERY;
+			this.value = number;
+		}
+		else if (isStop)
+		{
+			this.entry = Entry.STOP;
+		}
+		else if (isEpoch)
+		{
+			this.entry = Entry.EPOCH;
+		}
+		return this.entry;
+	}
+}
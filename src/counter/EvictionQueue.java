@@ -0,0 +1,140 @@
+package counter;
+import java.util.Arrays;
+
+import structure.FrequencyIndex;
+import structure.KeywordTable;
+
+/**
+ * The ids of a frequency index in a binary min heap of their counts, which
+ * finds the coldest id to evict.
+ * <p>
+ * The frequency index only finds its largest counts, so the smallest are kept
+ * in this secondary queue. Counts only increase, so rather than updating the
+ * queue on every increase, each id keeps the count it had when it was pushed,
+ * which may only be lower than its current count. When the smallest entry is
+ * polled and its count is out of date, the id is pushed again with its current
+ * count. An entry whose count is up to date is then the smallest current count.
+ * Each id is pushed again at most once for each time its count increased, so
+ * finding the coldest id takes O(log(n)) amortized time.
+ */
+class EvictionQueue
+{
+	private int[] ids;
+	private long[] counts;
+	private int size;
+
+	/**
+	 * Constructs an empty queue
+	 */
+	EvictionQueue()
+	{
+		this.ids = new int[16];
+		this.counts = new long[16];
+		this.size = 0;
+	}
+
+	/**
+	 * Adds an id which entered the frequency index
+	 * <p>
+	 * The runtime complexity of this operation is O(log(n)).
+	 * <p>
+	 *
+	 * @param id    The id in the frequency index
+	 * @param count The current count of the id
+	 */
+	void push(int id, long count)
+	{
+		if (this.size == this.ids.length)
+		{
+			this.ids = Arrays.copyOf(this.ids, 2 * this.size);
+			this.counts = Arrays.copyOf(this.counts, 2 * this.size);
+		}
+		int index = this.size++;
+		while (index > 0)
+		{
+			int parentIndex = (index - 1) >>> 1;
+			if (this.counts[parentIndex] <= count)
+			{
+				break;
+			}
+			this.ids[index] = this.ids[parentIndex];
+			this.counts[index] = this.counts[parentIndex];
+			index = parentIndex;
+		}
+		this.ids[index] = id;
+		this.counts[index] = count;
+	}
+
+	/**
+	 * Removes and returns the id with the smallest count in the frequency index
+	 * <p>
+	 * Ids which are no longer in the frequency index are dropped.
+	 * <p>
+	 *
+	 * @param frequencies The frequency index of the ids
+	 * @return The coldest id, which is left in the frequency index, or
+	 *         KeywordTable.NONE if the queue is empty
+	 */
+	int pollColdest(FrequencyIndex frequencies)
+	{
+		while (this.size > 0)
+		{
+			int id = this.ids[0];
+			long count = this.counts[0];
+			pop();
+			if (!frequencies.contains(id))
+			{
+				continue;
+			}
+			long current = frequencies.getCount(id);
+			if (current == count)
+			{
+				return id;
+			}
+			push(id, current);
+		}
+		return KeywordTable.NONE;
+	}
+
+	int size()
+	{
+		return this.size;
+	}
+
+	void clear()
+	{
+		this.size = 0;
+	}
+
+	/**
+	 * Removes the entry with the smallest count
+	 */
+	private void pop()
+	{
+		this.size--;
+		int id = this.ids[this.size];
+		long count = this.counts[this.size];
+		int index = 0;
+		while (true)
+		{
+			int childIndex = 2 * index + 1;
+			if (childIndex >= this.size)
+			{
+				break;
+			}
+			if (childIndex + 1 < this.size && this.counts[childIndex + 1] < this.counts[childIndex])
+			{
+				childIndex++;
+			}
+			if (this.counts[childIndex] >= count)
+			{
+				break;
+			}
+			this.ids[index] = this.ids[childIndex];
+			this.counts[index] = this.counts[childIndex];
+			index = childIndex;
+		}
+		this.ids[index] = id;
+		this.counts[index] = count;
+	}
+}
@@ -0,0 +1,95 @@
+package counter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+import structure.KeywordTable;
+
+/**
+ * Counts the searches of one keywords file into its own hash table.
+ * <p>
+ * The file is read through a memory-mapped buffer, and the frequencies of each
+ * keyword are summed into an array indexed by the keyword's id, so a file can
+ * be aggregated on any thread without sharing state. Queries are ignored, and
+ * a stop ends the file. The table and counts are then merged into a
+ * KeywordProcessor.
+ */
+class FileAggregator implements Callable<FileAggregator>
+{
+	private Path file;
+
+	// Keywords of the file, and the summed frequencies of each id
+	private KeywordTable keywords;
+	private long[] counts;
+
+	/**
+	 * Constructs an aggregator of the provided file, which is read by call
+	 * <p>
+	 *
+	 * @param file The keywords file to read
+	 */
+	FileAggregator(Path file)
+	{
+		this.file = file;
+		this.keywords = new KeywordTable();
+		this.counts = new long[16];
+	}
+
+	/**
+	 * Reads the file and sums the frequencies of its searches
+	 * <p>
+	 *
+	 * @return This aggregator
+	 * @throws IOException If an error occurs with reading the file
+	 */
+	@Override
+	public FileAggregator call() throws IOException
+	{
+		EntryTokenizer tokenizer = new EntryTokenizer();
+		try (MappedInputReader input = new MappedInputReader(this.file))
+		{
+			while (input.nextLine())
+			{
+				ByteBuffer buffer = input.getBuffer();
+				Entry entry = tokenizer.tokenize(buffer, input.getLineStart(), input.getLineEnd());
+				if (entry == Entry.STOP)
+				{
+					break;
+				}
+				else if (entry == Entry.SEARCH)
+				{
+					int start = tokenizer.getKeywordStart();
+					int end = tokenizer.getKeywordEnd();
+					int id = this.keywords.find(buffer, start, end);
+					if (id == KeywordTable.NONE)
+					{
+						id = this.keywords.add(buffer, start, end);
+						if (id == this.counts.length)
+						{
+							this.counts = Arrays.copyOf(this.counts, 2 * id);
+						}
+					}
+					this.counts[id] += tokenizer.getValue();
+				}
+			}
+		}
+		return this;
+	}
+
+	Path getFile()
+	{
+		return this.file;
+	}
+
+	KeywordTable getKeywords()
+	{
+		return this.keywords;
+	}
+
+	long getCount(int id)
+	{
+		return this.counts[id];
+	}
+}
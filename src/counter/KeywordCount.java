@@ -0,0 +1,63 @@
+package counter;
+
+/**
+ * A keyword and the number of times it has been searched.
+ * <p>
+ * An approximate count is an upper bound, which overestimates the true count by
+ * at most the error. An exact count has an error of 0.
+ */
+public class KeywordCount
+{
+	// The searched keyword
+	public final String keyword;
+
+	// The number of searches for the keyword
+	public final long count;
+
+	// The most that the count overestimates the number of searches
+	public final long error;
+
+	/**
+	 * Constructs a keyword count
+	 * <p>
+	 *
+	 * @param keyword The searched keyword
+	 * @param count   The number of searches for the keyword
+	 */
+	public KeywordCount(String keyword, long count)
+	{
+		this(keyword, count, 0);
+	}
+
+	/**
+	 * Constructs an approximate keyword count
+	 * <p>
+	 *
+	 * @param keyword The searched keyword
+	 * @param count   An upper bound of the number of searches for the keyword
+	 * @param error   The most that the count overestimates the number of searches
+	 */
+	public KeywordCount(String keyword, long count, long error)
+	{
+		this.keyword = keyword;
+		this.count = count;
+		this.error = error;
+	}
+
+	/**
+	 * Gets the smallest possible number of searches for the keyword
+	 * <p>
+	 *
+	 * @return The lower bound of the count
+	 */
+	public long getLowerBound()
+	{
+		return this.count - this.error;
+	}
+
+	@Override
+	public String toString()
+	{
+		return this.keyword + "=" + this.count;
+	}
+}
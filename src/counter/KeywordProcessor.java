@@ -1,54 +1,211 @@
 package counter;
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.Hashtable;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.StringJoiner;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import structure.FibonacciHeapNode;
-import structure.MaxFibonacciHeap;
+import structure.DecayedScoreIndex;
+import structure.FrequencyEngine;
+import structure.FrequencyIndex;
+import structure.KeywordTable;
+import structure.SnapshotReader;
+import structure.SnapshotWriter;
+import structure.SpaceSavingSummary;
  
 /**
  * Reads the keywords file, processes the text, and writes the results.
  * <p>
  * The keywords file consists of a search, query, and a stop.
+ * The file is read as UTF-8 on every path, whether its lines are decoded or
+ * its bytes are read directly, so a keyword has the same bytes in the hash
+ * table however it was read.
  * <p>
- * When a search is read, the keyword is inserted into the hash table and
- * Fibonacci heap if it is the first time the keyword has appeared. If the
- * keyword has already appeared, the Fibonacci node is obtained from the hash
- * table, and the increase key method is used to update the frequency count of
- * the keyword.
+ * When a search is read, the keyword is inserted into the hash table if it is
+ * the first time the keyword has appeared, which assigns the keyword an id. The
+ * count of the id is then increased in the frequency index. The frequency index
+ * is a priority queue chosen by FrequencyEngine, a max Fibonacci heap by
+ * default.
+ * <p>
+ * The counts are only read by queries, so the searches between two queries are
+ * first summed per id in PendingCounts. When the next query is read, each
+ * distinct id is increased once in the frequency index, so a keyword which
+ * repeats many times between queries costs a single increase. The sums are
+ * also applied once PENDING_LIMIT distinct ids are pending, so that the map
+ * stays small enough to be cached when few keywords repeat.
  * <p>
  * When a query is read, the N most popular keywords are obtained, where N is
- * the number of requested top keywords to obtain. The removeMax operation is
- * used on the Fibonnaci heap N times to obtain the nodes. The nodes are then
- * reinserted into the Fibonnaci heap.
+ * the number of requested top keywords to obtain. The ids are read from the
+ * frequency index without being removed, so the counts are left unchanged. The
+ * result is cached and kept up to date by each search, so the frequency index
+ * is only read again when more keywords are requested than ever before, and a
+ * repeated query whose keywords have not changed writes the previous output.
  * <p>
  * When a stop is read, the program exits and the input and output file are
- * closed. The output file is output.txt.
+ * closed. The output file is output.txt unless another is set, and is written
+ * on a separate thread by an AsyncOutputWriter.
+ * <p>
+ * Each batch of lines parsed between queries, each application of the pending
+ * counts, and each query are recorded as Flight Recorder events, together
+ * with the consolidations of the Fibonacci heaps.
+ * <p>
+ * The keywords and their counts can be saved to a binary snapshot and restored
+ * before processing another file, which continues the counts without reading
+ * the earlier files again. A snapshot holds the hash table's offsets and arena
+ * followed by the count of each id, and is restored with a bulk load of the
+ * frequency index.
+ * <p>
+ * Many keywords files, such as hourly logs, can be ingested before the input
+ * file. Each file is read and summed into its own hash table by a
+ * FileAggregator on a pool of threads, and the tables are merged into the
+ * processor's as the files complete, so the files are parsed in parallel.
+ * <p>
+ * Processors built independently, such as one per partition of the input, can
+ * be merged. The keywords of the other processors are merged into this
+ * processor's hash table, and their frequency indexes are merged into its own,
+ * which melds the heaps of two Fibonacci indexes.
+ * <p>
+ * For crash recovery, every search can also be appended to a WriteAheadLog in
+ * a directory, with a checkpoint saved as a snapshot every checkpoint interval
+ * of searches. Recovering loads the last checkpoint and replays the searches
+ * logged after it, and the lines of the input file which were already applied
+ * are then skipped. The log is deleted once the input is processed completely.
+ * <p>
+ * Instead of every search, a processor can count the searches of recent
+ * epochs in a SlidingWindow, decay them with their age in a DecayedScoreIndex,
+ * bound the number of keywords by evicting the smallest counts through an
+ * EvictionQueue, or count approximately in a SpaceSavingSummary. Each is a
+ * Mode, which also decides the operations that the processor supports. A query
+ * of an approximate count, or of a bounded count which is not provably exact,
+ * writes each keyword with the bounds of its true count, as
+ * keyword[lower..upper].
  */
 public class KeywordProcessor
 {
 	public final static String OUTPUT_FILE = "output.txt";
 
-	// Hash table with keys and values as keywords and Fibonacci nodes respectively
-	private Hashtable<String, FibonacciHeapNode<String>> keywords;
+	// Input file name which selects the standard input
+	public final static String STANDARD_INPUT = "-";
+
+	// Identifies a snapshot file, "KWCS", and the version of its layout
+	public final static int SNAPSHOT_MAGIC = 0x4B574353;
+	public final static int SNAPSHOT_VERSION = 1;
+
+	// Number of distinct pending ids at which the pending counts are applied
+	public final static int PENDING_LIMIT = 1 << 14;
+
+	// Number of searches between checkpoints of the write-ahead log
+	public final static long DEFAULT_CHECKPOINT_INTERVAL = 10000000;
+
+	// Charset of the keywords files, whose bytes are the keys of the hash table on every path
+	public final static Charset KEYWORD_CHARSET = StandardCharsets.UTF_8;
+
+	// Hash table with keys and values as keywords and ids respectively
+	private KeywordTable keywords;
+
+	// Type of priority queue used to track the frequencies
+	private FrequencyEngine engine;
+
+	// Priority queue used to track the frequencies of keyword ids
+	private FrequencyIndex frequencies;
+
+	// Mode in which the searches are counted, which is exact until another is set
+	private Mode mode;
+
+	// Approximate counts of the most frequent keywords, or null if counting exactly
+	private SpaceSavingSummary summary;
 
-	// Max Fibonacci heap used to track the frequencies of keywords
-	private MaxFibonacciHeap<String> frequencies;
+	// Largest ids or counters, kept up to date between queries
+	private TopKeywordCache cache;
+
+	// Counts of the searches since the last query, which are not yet in the frequency index
+	private PendingCounts pending;
+
+	// Most recently written query output, with its query and the cache version
+	private String cachedOutput;
+	private int cachedOutputQuery;
+	private long cachedOutputVersion;
+	private int cachedOutputKeywords;
 
 	// Reads the input file
 	private BufferedReader reader;
 
-	// Writes the OUTPUT_FILE
-	private BufferedWriter writer;
+	// Parses the lines of the input file
+	private EntryTokenizer tokenizer;
+
+	// Writes the output file on a separate thread
+	private AsyncOutputWriter writer;
+
+	// Path of the output file, or AsyncOutputWriter.STANDARD_OUTPUT
+	private String outputFile;
+
+	// Longest time in milliseconds that a written result waits to be flushed
+	private long flushInterval;
+
+	// Log of the applied searches, or null if crash recovery is not enabled
+	private WriteAheadLog log;
+
+	// Number of searches between checkpoints, and the number since the last checkpoint
+	private long checkpointInterval;
+	private long searchesSinceCheckpoint;
+
+	// Number of input lines read, and the number already applied before a crash
+	private long linesRead;
+	private long linesToSkip;
+
+	// Number of ids in the log, which are the ids of the keywords logged so far
+	private int loggedKeywords;
+
+	// Input position of the last applied searches
+	private long appliedPosition;
+
+	// Searches of the recent epochs, or null if the counts do not expire
+	private SlidingWindow window;
+
+	// Number of lines of each epoch, or 0 if epochs only end at epoch lines
+	private long epochLines;
+	private long linesInEpoch;
+
+	// Exponentially decayed scores of the ids, or null if the counts do not decay
+	private DecayedScoreIndex scores;
+
+	// Number of lines read by earlier updates, which continue the time of the decayed scores
+	private long earlierLines;
+
+	// Largest number of keywords in the frequency index, and the ids by their smallest counts, or null if unbounded
+	private int maxKeywords;
+	private EvictionQueue coldest;
+
+	// Largest evicted count, which bounds the searches of every keyword outside the frequency index
+	private long evictedCount;
+
+	// Evicted count inherited by each id when it entered the frequency index, which bounds its overestimate
+	private long[] inherited;
+
+	// Flight Recorder event of the lines parsed since the last query, or null if disabled
+	private ParseEvent parseEvent;
+	private long parseStartLine;
+	private int parseStartKeywords;
+	private long parsedSearches;
 
 	/**
 	 * Construct an instance of the KeywordCounter
@@ -57,131 +214,1313 @@ public class KeywordProcessor
 	 */
 	public KeywordProcessor()
 	{
-		this.keywords = new Hashtable<String, FibonacciHeapNode<String>>();
-		this.frequencies = new MaxFibonacciHeap<String>();
+		this(FrequencyEngine.FIBONACCI);
+	}
+
+	/**
+	 * Construct an instance of the KeywordCounter using the provided priority
+	 * queue to track the frequencies of keywords
+	 * <p>
+	 *
+	 * @param engine The type of frequency index
+	 */
+	public KeywordProcessor(FrequencyEngine engine)
+	{
+		this.keywords = new KeywordTable();
+		this.engine = engine;
+		this.frequencies = engine.create();
+		this.mode = Mode.EXACT;
+		this.tokenizer = new EntryTokenizer();
+		this.cache = new TopKeywordCache();
+		this.pending = new PendingCounts();
+		this.outputFile = OUTPUT_FILE;
+		this.flushInterval = AsyncOutputWriter.FLUSH_WHEN_IDLE;
+		this.checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+	}
+
+	/**
+	 * Factory method which creates a processor that counts the keywords
+	 * approximately in a fixed number of counters.
+	 * <p>
+	 * Any keyword searched more than the total number of searches divided by the
+	 * number of counters is always reported.
+	 * <p>
+	 *
+	 * @param counters The number of keywords monitored by the summary
+	 * @return An approximate keyword processor
+	 */
+	public static KeywordProcessor createApproximate(int counters)
+	{
+		KeywordProcessor processor = new KeywordProcessor();
+		processor.mode = Mode.APPROXIMATE;
+		processor.summary = new SpaceSavingSummary(counters);
+		return processor;
+	}
+
+	/**
+	 * Sets the path of the output file written by the following updates
+	 * <p>
+	 *
+	 * @param outputFile Path of the output file, or
+	 *                   AsyncOutputWriter.STANDARD_OUTPUT to write to the
+	 *                   standard output
+	 */
+	public void setOutputFile(String outputFile)
+	{
+		this.outputFile = outputFile;
+	}
+
+	/**
+	 * Sets how long a query result may wait before it is flushed to the output
+	 * file
+	 * <p>
+	 *
+	 * @param flushInterval Longest wait in milliseconds,
+	 *                      AsyncOutputWriter.FLUSH_EVERY_LINE, or
+	 *                      AsyncOutputWriter.FLUSH_WHEN_IDLE
+	 */
+	public void setFlushInterval(long flushInterval)
+	{
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * Counts only the searches of the most recent epochs
+	 * <p>
+	 * An epoch ends after the provided number of input lines, and at each epoch
+	 * line of the input. When an epoch ends, the searches of the epoch which
+	 * leaves the window are subtracted from the counts, so queries report the
+	 * most popular keywords within the window.
+	 * <p>
+	 *
+	 * @param numberOfEpochs The number of epochs in the window
+	 * @param epochLines     The number of input lines of each epoch, or 0 to end
+	 *                       epochs only at epoch lines
+	 * @throws IllegalStateException If the processor is not exact, or has counted
+	 *                               searches
+	 */
+	public void setWindow(int numberOfEpochs, long epochLines)
+	{
+		checkEmpty(Mode.WINDOWED);
+		if (epochLines < 0)
+		{
+			throw new IllegalArgumentException("The number of lines of an epoch must not be negative");
+		}
+		this.window = new SlidingWindow(numberOfEpochs);
+		this.mode = Mode.WINDOWED;
+		this.epochLines = epochLines;
+		this.linesInEpoch = 0;
+	}
+
+	/**
+	 * Decays the popularity of each search exponentially with its age
+	 * <p>
+	 * The time is the number of input lines read, so a search counts half as much
+	 * after each half-life of lines. Queries report the keywords with the largest
+	 * decayed scores, and the count of a keyword is its score rounded to the
+	 * nearest integer.
+	 * <p>
+	 *
+	 * @param halfLife The number of input lines over which a search loses half of
+	 *                 its weight
+	 * @throws IllegalStateException If the processor is not exact, or has counted
+	 *                               searches
+	 */
+	public void setDecay(double halfLife)
+	{
+		checkEmpty(Mode.DECAYED);
+		this.scores = new DecayedScoreIndex(halfLife);
+		this.mode = Mode.DECAYED;
+		this.earlierLines = 0;
+	}
+
+	/**
+	 * Bounds the number of keywords counted at once
+	 * <p>
+	 * Once more keywords are counted, those with the smallest counts are evicted.
+	 * A keyword which is counted afterwards starts from the largest evicted
+	 * count, so its count may exceed its searches by at most that much. A query
+	 * whose keywords are provably the exact top keywords is written as in the
+	 * exact mode, and otherwise each keyword is written with the bounds of its
+	 * count, as in the approximate mode.
+	 * <p>
+	 *
+	 * @param maxKeywords The largest number of keywords counted at once
+	 * @throws IllegalStateException If the processor is not exact, or has counted
+	 *                               searches
+	 */
+	public void setMaxKeywords(int maxKeywords)
+	{
+		checkEmpty(Mode.BOUNDED);
+		if (maxKeywords <= 0)
+		{
+			throw new IllegalArgumentException("The number of keywords must be greater than 0");
+		}
+		this.mode = Mode.BOUNDED;
+		this.maxKeywords = maxKeywords;
+		this.coldest = new EvictionQueue();
+		this.evictedCount = 0;
+		this.inherited = new long[16];
+	}
+
+	/**
+	 * Sets the number of logged searches between checkpoints
+	 * <p>
+	 * A shorter interval makes recovery replay fewer searches, at the cost of
+	 * saving the whole state more often.
+	 * <p>
+	 *
+	 * @param checkpointInterval Positive number of searches
+	 */
+	public void setCheckpointInterval(long checkpointInterval)
+	{
+		this.checkpointInterval = checkpointInterval;
 	}
 
 	/**
-	 * Reads the given keywords file and appends the result to output.txt
+	 * Reads the given keywords file and writes the result to the output file
 	 * <p>
 	 * This operation process the entire keywords files, and writes the output as
 	 * queries are reached.
 	 * <p>
+	 * If the file is STANDARD_INPUT, the lines are read from the standard input
+	 * until a stop or the end of the input. The file may also be a named pipe. The
+	 * lines are processed as they arrive, and each query result is handed to the
+	 * writer as soon as it is computed, to be flushed as set by the flush
+	 * interval.
+	 * <p>
 	 * 
-	 * @param file Keywords input file
+	 * @param file Keywords input file, or STANDARD_INPUT
 	 * @throws IOException If an error occurs with reading or writing
 	 */
 	public void updateKeywords(String file) throws IOException
 	{
 		// Create a buffered reader and writer
+		if (STANDARD_INPUT.equals(file))
+		{
+			this.reader = new BufferedReader(new InputStreamReader(System.in, KEYWORD_CHARSET));
+		}
+		else
+		{
+			Path inputPath = Paths.get(file);
+			if (Files.notExists(inputPath))
+			{
+				throw new IOException("Input file, " + file + ", does not exist");
+			}
+			this.reader = new BufferedReader(new FileReader(file.toString(), KEYWORD_CHARSET));
+		}
+		try
+		{
+			this.writer = openWriter(file);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			this.reader.close();
+			throw e;
+		}
+		this.linesRead = 0;
+		if (STANDARD_INPUT.equals(file))
+		{
+			// A stream continues after the lines that were applied, rather than repeating them
+			this.linesToSkip = 0;
+		}
+		this.appliedPosition = this.linesToSkip;
+
+		// Close the reader and writer even if a line fails, so the writer thread stops
+		try
+		{
+			parseLines();
+		}
+		finally
+		{
+			this.reader.close();
+			this.writer.close();
+		}
+		finishUpdate();
+	}
+
+	/**
+	 * Reads the given keywords file through a memory-mapped buffer and writes the
+	 * result to the output file
+	 * <p>
+	 * This operation produces the same output as updateKeywords. The raw bytes of
+	 * each line are tokenized directly, and keywords are looked up from the bytes
+	 * of the line. Only the first instance of each keyword is decoded.
+	 * <p>
+	 *
+	 * @param file Keywords input file
+	 * @throws IOException If an error occurs with reading or writing
+	 */
+	public void updateKeywordsMapped(String file) throws IOException
+	{
+		// Map the input file and create a writer
 		Path inputPath = Paths.get(file);
 		if (Files.notExists(inputPath))
 		{
 			throw new IOException("Input file, " + file + ", does not exist");
 		}
-		Path outputPath = Paths.get(OUTPUT_FILE);
-		this.reader = new BufferedReader(new FileReader(file.toString()));
-		this.writer = new BufferedWriter(new FileWriter(outputPath.toString()));
+		MappedInputReader input = new MappedInputReader(inputPath);
+		try
+		{
+			this.writer = openWriter(file);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			input.close();
+			throw e;
+		}
+		this.linesRead = 0;
+		this.appliedPosition = this.linesToSkip;
+
+		// Close the reader and writer even if a line fails, so the writer thread stops
+		try
+		{
+			parseLines(input);
+		}
+		finally
+		{
+			input.close();
+			this.writer.close();
+		}
+		finishUpdate();
+	}
 
-		// Parse the input file and perform the corresponding action, one line at a time
+	/**
+	 * Parses the lines of the reader, performing the action of each entry until a
+	 * stop or the end of the input
+	 */
+	private void parseLines() throws IOException
+	{
+		startParse();
 		String line = "";
-		while ((line = this.reader.readLine()) != null && !line.equalsIgnoreCase("stop"))
+		while ((line = readLine()) != null)
 		{
-			Entry entry = Entry.createEntry(line);
-			switch (entry)
+			if (++this.linesRead <= this.linesToSkip)
+			{
+				continue;
+			}
+			if (this.window != null)
+			{
+				countEpochLine();
+			}
+			Entry entry = this.tokenizer.tokenize(line);
+			if (entry == Entry.STOP)
 			{
-			case SEARCH:
-				processSearch(line);
-				break;
-			case QUERY:
-				processQuery(line);
 				break;
-			default:
+			}
+			else if (entry == Entry.SEARCH)
+			{
+				this.parsedSearches++;
+				processSearch(line, this.tokenizer.getKeywordStart(), this.tokenizer.getKeywordEnd(),
+						this.tokenizer.getValue());
+			}
+			else if (entry == Entry.QUERY)
+			{
+				finishParse();
+				processQuery(this.tokenizer.getValue());
+				startParse();
+			}
+			else if (entry == Entry.EPOCH && this.window != null)
+			{
+				endEpoch();
+			}
+		}
+		finishParse();
+	}
+
+	/**
+	 * Reads the next line of the reader
+	 * <p>
+	 * If the input has no line ready, as with a stream which is idle, the pending
+	 * searches are logged and committed before waiting, so they are not left out
+	 * of the log until more lines arrive.
+	 * <p>
+	 *
+	 * @return The next line, or null at the end of the input
+	 * @throws IOException If an error occurs with reading or writing the log
+	 */
+	private String readLine() throws IOException
+	{
+		if (this.log != null && !this.reader.ready())
+		{
+			if (this.pending.size() > 0)
+			{
+				applyPending();
+			}
+			this.log.commit();
+		}
+		return this.reader.readLine();
+	}
+
+	/**
+	 * Parses the lines of the mapped input, performing the action of each entry
+	 * until a stop or the end of the file
+	 */
+	private void parseLines(MappedInputReader input) throws IOException
+	{
+		startParse();
+		while (input.nextLine())
+		{
+			if (++this.linesRead <= this.linesToSkip)
+			{
+				continue;
+			}
+			if (this.window != null)
+			{
+				countEpochLine();
+			}
+			ByteBuffer buffer = input.getBuffer();
+			Entry entry = this.tokenizer.tokenize(buffer, input.getLineStart(), input.getLineEnd());
+			if (entry == Entry.STOP)
+			{
 				break;
 			}
+			else if (entry == Entry.SEARCH)
+			{
+				this.parsedSearches++;
+				processSearch(buffer, this.tokenizer.getKeywordStart(), this.tokenizer.getKeywordEnd(),
+						this.tokenizer.getValue());
+			}
+			else if (entry == Entry.QUERY)
+			{
+				finishParse();
+				processQuery(this.tokenizer.getValue());
+				startParse();
+			}
+			else if (entry == Entry.EPOCH && this.window != null)
+			{
+				endEpoch();
+			}
 		}
-		this.reader.close();
-		this.writer.close();
+		finishParse();
 	}
 
 	/**
-	 * Adds the keyword to the hash table and Fibonacci heap
+	 * Writes every keyword and its count to a snapshot file
 	 * <p>
-	 * If the keyword is not in the hash table, a Fibonacci node is created and
-	 * inserted as the value to the hash table, with the keyword string being the
-	 * key. Furthermore, the node is inserted into the Max Fibonacci Heap. The run
-	 * time complexity of this operation is O(1).
+	 * The hash table's offsets and arena are written in bulk, followed by the
+	 * count of each id in the order of the ids. An existing file is replaced.
+	 * <p>
+	 *
+	 * @param file Path of the snapshot file
+	 * @throws IOException If an error occurs with writing
+	 */
+	public void saveSnapshot(String file) throws IOException
+	{
+		if (!this.mode.isSnapshotSupported())
+		{
+			throw new IllegalStateException("Saving a snapshot is not supported with the " + this.mode);
+		}
+		try (SnapshotWriter output = new SnapshotWriter(Paths.get(file)))
+		{
+			writeSnapshot(output);
+		}
+	}
+
+	/**
+	 * Replaces every keyword and count with those of a snapshot file
 	 * <p>
-	 * If the keyword is in the hash table, then the value will point to the
-	 * corresponding entry in the heap. The increase key function is called on the
-	 * heap at that node. The key is increased by the frequency. The amortized
-	 * complexity of this operation is O(log(b))
+	 * The hash table is rehashed from its arena, and the counts are bulk loaded
+	 * into a new frequency index of the processor's engine, so the runtime
+	 * complexity is linear in the size of the snapshot rather than the number of
+	 * searches that produced it.
 	 * <p>
-	 * 
-	 * @param text Text formatted as a search line
+	 *
+	 * @param file Path of the snapshot file
+	 * @throws IOException If an error occurs with reading, or the file is not a
+	 *                     snapshot
+	 */
+	public void loadSnapshot(String file) throws IOException
+	{
+		this.mode.checkSupported("Loading a snapshot");
+		Path snapshotPath = Paths.get(file);
+		if (Files.notExists(snapshotPath))
+		{
+			throw new IOException("Snapshot file, " + file + ", does not exist");
+		}
+		try (SnapshotReader input = new SnapshotReader(snapshotPath))
+		{
+			readSnapshot(input, file);
+		}
+	}
+
+	/**
+	 * Counts the searches of keywords files in parallel, and adds them to the
+	 * keywords and counts
+	 * <p>
+	 * A directory adds every regular file in it. Each file is read through a
+	 * memory-mapped buffer and summed by a FileAggregator, on a pool of the
+	 * provided number of threads. The table of each file is merged on the calling
+	 * thread as soon as the file is read, while the other files are still being
+	 * read. Queries in the files are ignored, and a stop ends its file. The merged
+	 * counts are bulk loaded if the frequency index is empty.
+	 * <p>
+	 *
+	 * @param files   Keywords files, or directories of keywords files
+	 * @param threads The number of files read at once
+	 * @throws IOException If a file does not exist, or an error occurs with
+	 *                     reading a file
+	 */
+	public void ingestFiles(List<String> files, int threads) throws IOException
+	{
+		this.mode.checkSupported("Ingesting files");
+		if (threads <= 0)
+		{
+			throw new IllegalArgumentException("The number of threads must be greater than 0");
+		}
+		List<Path> paths = listFiles(files);
+		applyPending();
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads, new IngestThreadFactory());
+		try
+		{
+			CompletionService<FileAggregator> completed = new ExecutorCompletionService<FileAggregator>(pool);
+			for (Path path : paths)
+			{
+				completed.submit(new FileAggregator(path));
+			}
+
+			// Merge the files in the order that they complete
+			long[] counts = new long[Math.max(this.keywords.size(), 16)];
+			for (int index = 0; index < paths.size(); index++)
+			{
+				FileAggregator file = completed.take().get();
+				KeywordTable fileKeywords = file.getKeywords();
+				for (int fileId = 0; fileId < fileKeywords.size(); fileId++)
+				{
+					int id = this.keywords.merge(fileKeywords, fileId);
+					if (id >= counts.length)
+					{
+						counts = Arrays.copyOf(counts, Math.max(2 * counts.length, id + 1));
+					}
+					counts[id] += file.getCount(fileId);
+				}
+			}
+
+			if (this.frequencies.size() == 0)
+			{
+				this.frequencies.load(counts, this.keywords.size());
+			}
+			else
+			{
+				for (int id = 0; id < this.keywords.size(); id++)
+				{
+					if (counts[id] > 0 || !this.frequencies.contains(id))
+					{
+						this.frequencies.add(id, counts[id]);
+					}
+				}
+			}
+			this.cache = new TopKeywordCache();
+			this.cachedOutput = null;
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while ingesting the files", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IOException("A keywords file could not be ingested", e.getCause());
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Moves the keywords and counts of other processors into this processor
+	 * <p>
+	 * The pending searches of every processor are applied first. Each keyword of
+	 * another processor is found in or added to this processor's hash table,
+	 * and the other frequency index is then merged into this one. A keyword
+	 * counted by both has its counts summed. Two Fibonacci indexes are merged by
+	 * melding their heaps, where the keywords that are not shared are moved in
+	 * O(1) and each shared keyword costs an increase key and a removal.
+	 * <p>
+	 * Afterwards, the other processors are empty and can be reused. This and the
+	 * other processors must all be in the exact mode.
+	 * <p>
+	 *
+	 * @param others The processors to merge into this processor
+	 * @throws IOException If an error occurs with applying the pending searches
+	 */
+	public void merge(KeywordProcessor... others) throws IOException
+	{
+		this.mode.checkSupported("Merging");
+		for (KeywordProcessor other : others)
+		{
+			other.mode.checkSupported("Merging");
+			if (other == this)
+			{
+				throw new IllegalArgumentException("A processor cannot be merged into itself");
+			}
+		}
+		applyPending();
+		for (KeywordProcessor other : others)
+		{
+			other.applyPending();
+			int[] ids = new int[other.keywords.size()];
+			for (int id = 0; id < ids.length; id++)
+			{
+				ids[id] = this.keywords.merge(other.keywords, id);
+			}
+			this.frequencies.merge(other.frequencies, ids);
+
+			other.keywords = new KeywordTable();
+			other.frequencies = other.engine.create();
+			other.cache = new TopKeywordCache();
+			other.cachedOutput = null;
+		}
+		this.cache = new TopKeywordCache();
+		this.cachedOutput = null;
+	}
+
+	/**
+	 * Lists the provided files, and the regular files of the provided directories
+	 * in the order of their names
 	 */
-	private void processSearch(String text)
+	private static List<Path> listFiles(List<String> files) throws IOException
 	{
-		// Parse the line to get keyword and frequency
-		String[] items = text.split(" ");
-		String keyword = items[0].substring(1, items[0].length());
-		int frequency = Integer.parseInt(items[1]);
+		List<Path> paths = new ArrayList<Path>();
+		for (String file : files)
+		{
+			Path path = Paths.get(file);
+			if (Files.isDirectory(path))
+			{
+				List<Path> children = new ArrayList<Path>();
+				try (DirectoryStream<Path> directory = Files.newDirectoryStream(path))
+				{
+					for (Path child : directory)
+					{
+						if (Files.isRegularFile(child))
+						{
+							children.add(child);
+						}
+					}
+				}
+				Collections.sort(children);
+				paths.addAll(children);
+			}
+			else if (Files.notExists(path))
+			{
+				throw new IOException("Input file, " + file + ", does not exist");
+			}
+			else
+			{
+				paths.add(path);
+			}
+		}
+		return paths;
+	}
 
-		// Update hash table and Fibonacci heap
-		FibonacciHeapNode<String> node = keywords.get(keyword);
-		if (node == null)
+	/**
+	 * Recovers the keywords and counts from a write-ahead log, and logs every
+	 * following search to it
+	 * <p>
+	 * The last checkpoint in the directory is loaded, and the searches logged
+	 * after it are replayed. The following update then skips the lines of its
+	 * input file which were already applied, unless it reads the standard input.
+	 * If the directory is empty, the counts are left unchanged and the log is
+	 * started.
+	 * <p>
+	 *
+	 * @param directory Directory of the log, which is created if needed
+	 * @throws IOException If an error occurs with reading the log or checkpoint
+	 */
+	public void recover(String directory) throws IOException
+	{
+		this.mode.checkCombined(Mode.LOGGED);
+		this.log = new WriteAheadLog(Paths.get(directory));
+		this.mode = Mode.LOGGED;
+		int firstSegment = 0;
+		long checkpointLines = 0;
+		if (Files.exists(this.log.getCheckpoint()))
 		{
-			// If this is the first instance of the keyword, add to table and Fibonacci heap
-			node = new FibonacciHeapNode<String>(keyword);
-			keywords.put(keyword, node);
-			frequencies.insert(node, frequency);
+			try (SnapshotReader input = new SnapshotReader(this.log.getCheckpoint()))
+			{
+				readSnapshot(input, this.log.getCheckpoint().toString());
+				checkpointLines = input.readLong();
+				firstSegment = input.readInt();
+			}
+		}
+		long logLines = this.log.replay(firstSegment, this.keywords, this.frequencies);
+		this.linesToSkip = Math.max(checkpointLines, logLines);
+		this.loggedKeywords = this.keywords.size();
+		this.cache = new TopKeywordCache();
+		this.cachedOutput = null;
+	}
+
+	/**
+	 * Opens the writer of the output file, which continues the output of a
+	 * recovered run
+	 * <p>
+	 * A recovered run skips the lines which were already applied, so the answers
+	 * to their queries are kept from the output file, and any later answers are
+	 * replaced. The log flushes the output before each commit, so the answer to
+	 * every skipped query was written before the crash. A recovered stream keeps
+	 * every answer, since its lines are not read again.
+	 */
+	private AsyncOutputWriter openWriter(String file) throws IOException
+	{
+		if (this.log == null)
+		{
+			return new AsyncOutputWriter(this.outputFile, this.flushInterval);
+		}
+		AsyncOutputWriter writer;
+		if (this.linesToSkip == 0)
+		{
+			writer = new AsyncOutputWriter(this.outputFile, this.flushInterval);
+		}
+		else if (STANDARD_INPUT.equals(file))
+		{
+			writer = new AsyncOutputWriter(this.outputFile, this.flushInterval, AsyncOutputWriter.ALL_LINES);
 		}
 		else
 		{
-			// If there is already an instance of the keyword, increase the key
-			frequencies.increaseKey(node, frequency);
+			writer = new AsyncOutputWriter(this.outputFile, this.flushInterval, countQueries(file, this.linesToSkip));
 		}
+		this.log.setOutput(writer);
+		return writer;
 	}
 
 	/**
-	 * Writes the provided number of top keywords beginning from the most requested.
+	 * Counts the queries within the first lines of the input file
+	 */
+	private static long countQueries(String file, long lines) throws IOException
+	{
+		EntryTokenizer tokenizer = new EntryTokenizer();
+		long queries = 0;
+		try (BufferedReader input = new BufferedReader(new FileReader(file, KEYWORD_CHARSET)))
+		{
+			String line;
+			for (long index = 0; index < lines && (line = input.readLine()) != null; index++)
+			{
+				if (tokenizer.tokenize(line) == Entry.QUERY)
+				{
+					queries++;
+				}
+			}
+		}
+		return queries;
+	}
+
+	/**
+	 * Saves the state as the checkpoint of the log, then deletes the log segments
+	 * which it includes
+	 * <p>
+	 * The checkpoint is written to a temporary file and renamed over the previous
+	 * checkpoint, so a crash while saving leaves the previous checkpoint and its
+	 * segments intact.
+	 */
+	private void checkpoint() throws IOException
+	{
+		int firstSegment = this.log.rotate();
+		Path checkpoint = this.log.getCheckpoint();
+		Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+		try (SnapshotWriter output = new SnapshotWriter(temporary))
+		{
+			writeSnapshot(output);
+			output.writeLong(this.appliedPosition);
+			output.writeInt(firstSegment);
+		}
+		Files.move(temporary, checkpoint, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		this.log.syncDirectory();
+		this.log.deleteBefore(firstSegment);
+		this.searchesSinceCheckpoint = 0;
+	}
+
+	/**
+	 * Applies the remaining searches, deletes the log once the input has been
+	 * processed completely, and stops skipping the recovered lines
+	 */
+	private void finishUpdate() throws IOException
+	{
+		applyPending();
+		this.earlierLines += this.linesRead;
+		this.linesToSkip = 0;
+		if (this.log != null)
+		{
+			this.log.delete();
+			this.log = null;
+			this.mode = Mode.EXACT;
+		}
+	}
+
+	/**
+	 * Counts an input line of the current epoch, and ends the epoch once it has
+	 * the number of lines of an epoch
+	 */
+	private void countEpochLine() throws IOException
+	{
+		if (this.epochLines > 0 && this.linesInEpoch++ == this.epochLines)
+		{
+			endEpoch();
+			this.linesInEpoch = 1;
+		}
+	}
+
+	/**
+	 * Ends the current epoch of the window, subtracting the searches of the epoch
+	 * which leaves the window
+	 * <p>
+	 * The pending searches are applied first, so that they belong to the ending
+	 * epoch. The cache is cleared if any count decreased.
+	 */
+	private void endEpoch() throws IOException
+	{
+		applyPending();
+		if (this.window.advance(this.frequencies) > 0)
+		{
+			this.cache = new TopKeywordCache();
+			this.cachedOutput = null;
+		}
+		this.linesInEpoch = 0;
+
+		// Rebuild once the expired keywords outnumber those in the window, so the cost is amortized
+		if (this.keywords.size() - this.frequencies.size() > this.frequencies.size())
+		{
+			compact();
+		}
+	}
+
+	/**
+	 * Rebuilds the hash table and frequency index with only the keywords in the
+	 * frequency index, renumbering their ids in the window or eviction queue
+	 */
+	private void compact()
+	{
+		int[] ids = new int[this.keywords.size()];
+		KeywordTable table = new KeywordTable(this.frequencies.size());
+		long[] inherited = this.coldest != null ? new long[Math.max(this.frequencies.size(), 16)] : null;
+		if (this.coldest != null)
+		{
+			this.coldest.clear();
+		}
+		for (int id = 0; id < ids.length; id++)
+		{
+			if (this.frequencies.contains(id))
+			{
+				ids[id] = table.merge(this.keywords, id);
+				if (this.coldest != null)
+				{
+					inherited[ids[id]] = this.inherited[id];
+					this.coldest.push(ids[id], this.frequencies.getCount(id));
+				}
+			}
+		}
+		FrequencyIndex index = this.engine.create();
+		index.merge(this.frequencies, ids);
+		if (this.window != null)
+		{
+			this.window.renumber(ids, table.size());
+		}
+		if (this.coldest != null)
+		{
+			this.inherited = inherited;
+		}
+		this.keywords = table;
+		this.frequencies = index;
+		this.cache = new TopKeywordCache();
+		this.cachedOutput = null;
+	}
+
+	/**
+	 * Begins a parse event for the following lines
+	 */
+	private void startParse()
+	{
+		this.parseEvent = ParseEvent.start();
+		this.parseStartLine = this.linesRead;
+		this.parseStartKeywords = this.keywords.size();
+		this.parsedSearches = 0;
+	}
+
+	/**
+	 * Commits the parse event of the lines since it began, if it is enabled
+	 */
+	private void finishParse()
+	{
+		if (this.parseEvent != null)
+		{
+			this.parseEvent.finish(this.linesRead - this.parseStartLine, this.parsedSearches,
+					Math.max(this.keywords.size() - this.parseStartKeywords, 0));
+			this.parseEvent = null;
+		}
+	}
+
+	/**
+	 * Applies the summed counts of the searches since the last query
+	 * <p>
+	 * Each distinct id is increased once in the frequency index and updated in
+	 * the cache, in the order that the ids were first searched. If logging, each
+	 * sum is appended to the log, and a checkpoint is saved if the interval has
+	 * been reached. The log can commit part of the sums, so only the last one
+	 * carries the current input position.
+	 * <p>
+	 *
+	 * @throws IOException If an error occurs with writing the log
+	 */
+	void applyPending() throws IOException
+	{
+		applyPending(this.linesRead);
+	}
+
+	/**
+	 * Applies the summed counts of the searches up to the provided input position
 	 * <p>
-	 * This operation will use a Max Fibonacci heap to remove the provided number of
-	 * nodes. The items removed will be in descending order. Only the requested
-	 * number of items will be removed from the heap. Once the requested number of
-	 * nodes are removed, each node is reinserted into the Fibonacci heap.
+	 *
+	 * @param position Input position of the last pending search
+	 * @throws IOException If an error occurs with writing the log
+	 */
+	private void applyPending(long position) throws IOException
+	{
+		UpdateEvent event = UpdateEvent.start();
+		int size = this.pending.size();
+		if (Metrics.ENABLED)
+		{
+			Metrics.PENDING_IDS.record(size);
+		}
+		for (int entry = 0; entry < size; entry++)
+		{
+			int id = this.pending.getId(entry);
+			long increment = this.pending.getCount(entry);
+			if (this.coldest != null && !this.frequencies.contains(id))
+			{
+				admit(id, increment);
+			}
+			else
+			{
+				this.frequencies.add(id, increment);
+			}
+			this.cache.update(id, this.frequencies.getCount(id));
+			if (this.window != null)
+			{
+				this.window.record(id, increment);
+			}
+			if (this.log != null)
+			{
+				long entryPosition = entry == size - 1 ? position : this.appliedPosition;
+				if (id >= this.loggedKeywords)
+				{
+					this.log.appendKeyword(this.keywords, id, increment, entryPosition);
+				}
+				else
+				{
+					this.log.appendIncrement(id, increment, entryPosition);
+				}
+			}
+		}
+		this.pending.clear();
+		this.appliedPosition = position;
+		if (this.coldest != null && this.frequencies.size() > this.maxKeywords)
+		{
+			evict();
+		}
+		if (this.log != null)
+		{
+			this.loggedKeywords = this.keywords.size();
+			if (this.searchesSinceCheckpoint >= this.checkpointInterval)
+			{
+				checkpoint();
+			}
+		}
+		if (event != null)
+		{
+			event.finish(size, this.frequencies.size());
+		}
+	}
+
+	/**
+	 * Adds an id to the bounded frequency index, starting from the largest
+	 * evicted count
 	 * <p>
-	 * The amortized complexity of this operation is O(log(n) * m), where n is the
-	 * number of nodes in the Fibonacci heap, and m is the number of top keywords
-	 * that need to be displayed.
+	 * The keyword may have been evicted before, so its count includes the most
+	 * searches it could have lost.
+	 */
+	private void admit(int id, long increment)
+	{
+		if (id >= this.inherited.length)
+		{
+			this.inherited = Arrays.copyOf(this.inherited, Math.max(2 * this.inherited.length, id + 1));
+		}
+		this.inherited[id] = this.evictedCount;
+		this.frequencies.add(id, this.evictedCount + increment);
+		this.coldest.push(id, this.evictedCount + increment);
+	}
+
+	/**
+	 * Evicts the ids with the smallest counts until the frequency index is within
+	 * its bound
+	 * <p>
+	 * The cache is cleared if an evicted id was cached. The hash table is rebuilt
+	 * once the evicted keywords outnumber the others, so the cost is amortized.
+	 */
+	private void evict()
+	{
+		while (this.frequencies.size() > this.maxKeywords)
+		{
+			int id = this.coldest.pollColdest(this.frequencies);
+			this.evictedCount = Math.max(this.evictedCount, this.frequencies.getCount(id));
+			this.frequencies.remove(id);
+			if (this.cache.contains(id))
+			{
+				this.cache = new TopKeywordCache();
+			}
+		}
+
+		// The bounds of the written keywords may have changed
+		this.cachedOutput = null;
+		if (this.keywords.size() - this.frequencies.size() > this.frequencies.size())
+		{
+			compact();
+		}
+	}
+
+	/**
+	 * Writes the header, the hash table, and the count of each id
+	 */
+	private void writeSnapshot(SnapshotWriter output) throws IOException
+	{
+		output.writeInt(SNAPSHOT_MAGIC);
+		output.writeInt(SNAPSHOT_VERSION);
+		this.keywords.writeTo(output);
+		for (int id = 0; id < this.keywords.size(); id++)
+		{
+			output.writeLong(this.frequencies.getCount(id));
+		}
+	}
+
+	/**
+	 * Reads a snapshot written by writeSnapshot, replacing the hash table and
+	 * frequency index
+	 */
+	private void readSnapshot(SnapshotReader input, String file) throws IOException
+	{
+		if (input.readInt() != SNAPSHOT_MAGIC)
+		{
+			throw new IOException(file + " is not a keyword snapshot");
+		}
+		int version = input.readInt();
+		if (version != SNAPSHOT_VERSION)
+		{
+			throw new IOException("Unsupported snapshot version: " + version);
+		}
+		KeywordTable table = KeywordTable.readFrom(input);
+		long[] counts = new long[table.size()];
+		input.readLongs(counts, 0, counts.length);
+		FrequencyIndex index = this.engine.create();
+		index.load(counts, counts.length);
+
+		this.keywords = table;
+		this.frequencies = index;
+		this.cache = new TopKeywordCache();
+		this.cachedOutput = null;
+	}
+
+	/**
+	 * Checks that the processor can be switched to a mode which counts every
+	 * search from the start
+	 */
+	private void checkEmpty(Mode mode)
+	{
+		this.mode.checkCombined(mode);
+		if (this.keywords.size() > 0)
+		{
+			throw new IllegalStateException("The " + mode + " can only be set before any search is counted");
+		}
+	}
+
+	/**
+	 * Adds the keyword to the hash table and its frequency to the pending counts
+	 * <p>
+	 * If the keyword is not in the hash table, the keyword is added to the hash
+	 * table and assigned an id. The frequency is then added to the pending count
+	 * of the id, which is applied to the frequency index by the next query, or
+	 * once the pending limit is reached. The
+	 * complexity of this operation is O(k) on average, where k is the length of
+	 * the keyword.
+	 * <p>
+	 * 
+	 * @param line      Line containing the keyword
+	 * @param start     Position of the first character of the keyword
+	 * @param end       Position after the last character of the keyword
+	 * @param frequency The number of searches for the keyword
+	 * @throws IOException If an error occurs with writing the log
+	 */
+	private void processSearch(String line, int start, int end, int frequency) throws IOException
+	{
+		if (this.summary != null)
+		{
+			int counter = this.summary.add(line, start, end, frequency);
+			this.cache.update(counter, this.summary.getCount(counter));
+			return;
+		}
+		int id = this.keywords.find(line, start, end);
+		if (id == KeywordTable.NONE)
+		{
+			// If this is the first instance of the keyword, add to table
+			id = this.keywords.add(line, start, end);
+		}
+		if (this.scores != null)
+		{
+			// Each search decays from its own line, so it is not summed with other pending searches
+			this.scores.add(id, frequency, this.earlierLines + this.linesRead);
+			return;
+		}
+		this.pending.add(id, frequency);
+		this.searchesSinceCheckpoint++;
+		if (this.pending.size() >= PENDING_LIMIT)
+		{
+			applyPending();
+		}
+	}
+
+	/**
+	 * Adds the keyword contained in the bytes of a line to the hash table, and its
+	 * frequency to the pending counts
+	 * <p>
+	 * Looking up an existing keyword does not allocate. The keyword is only
+	 * decoded when it is added to the hash table.
+	 * <p>
+	 * 
+	 * @param buffer    Buffer containing the keyword
+	 * @param start     Position of the first byte of the keyword
+	 * @param end       Position after the last byte of the keyword
+	 * @param frequency The number of searches for the keyword
+	 * @throws IOException If an error occurs with writing the log
+	 */
+	void processSearch(ByteBuffer buffer, int start, int end, int frequency) throws IOException
+	{
+		if (this.summary != null)
+		{
+			int counter = this.summary.add(buffer, start, end, frequency);
+			this.cache.update(counter, this.summary.getCount(counter));
+			return;
+		}
+		int id = this.keywords.find(buffer, start, end);
+		if (id == KeywordTable.NONE)
+		{
+			// If this is the first instance of the keyword, add to table
+			id = this.keywords.add(buffer, start, end);
+		}
+		if (this.scores != null)
+		{
+			this.scores.add(id, frequency, this.earlierLines + this.linesRead);
+			return;
+		}
+		this.pending.add(id, frequency);
+		this.searchesSinceCheckpoint++;
+		if (this.pending.size() >= PENDING_LIMIT)
+		{
+			applyPending();
+		}
+	}
+
+	/**
+	 * Writes the provided number of top keywords beginning from the most requested.
+	 * <p>
+	 * The top keywords are obtained from getTopKeywords. If the same number of
+	 * keywords was written by the previous query and the keywords have not changed
+	 * since, the previous output is written again.
 	 * <p>
 	 * 
-	 * @param text Text formatted as a query line
+	 * @param toQuery The number of top keywords to write
 	 * @throws IOException If an error occurs with writing the results
 	 */
-	private void processQuery(String text) throws IOException
+	private void processQuery(int toQuery) throws IOException
 	{
-		// Parse the line to get the number of top keywords to get
-		int toQuery = Math.min(Integer.parseInt(text), this.frequencies.getNumberOfNodes());
+		long start = Metrics.ENABLED ? System.nanoTime() : 0;
+		QueryEvent event = QueryEvent.start();
+
+		// The query line is only applied once it is answered, so a recovered run answers it again
+		applyPending(this.linesRead - 1);
 
-		// Remove the top keywords from the heap
-		List<FibonacciHeapNode<String>> topKeywords = new ArrayList<FibonacciHeapNode<String>>(toQuery);
-		for (int count = 0; count < toQuery; count++)
+		// Read the top keywords, and in a bounded index the next keyword, which bounds those left out
+		boolean isNextRead = this.coldest != null && toQuery < Integer.MAX_VALUE;
+		int toRead = isNextRead ? toQuery + 1 : toQuery;
+
+		// The version only covers the cached ids, so the output of a larger query is not reused
+		long version = getOutputVersion();
+		boolean isCached = this.cachedOutput != null && this.cachedOutputQuery == toQuery
+				&& this.cachedOutputVersion == version && (this.scores != null || this.cache.covers(toRead));
+		if (!isCached)
+		{
+			List<KeywordCount> topKeywords = getTopKeywords(toRead);
+			int numberOfKeywords = Math.min(Math.max(toQuery, 0), topKeywords.size());
+			boolean isApproximate = this.summary != null || (this.coldest != null && !isExact(topKeywords, numberOfKeywords));
+
+			// Create a string with the keywords
+			StringJoiner output = new StringJoiner(",");
+			for (KeywordCount topKeyword : topKeywords.subList(0, numberOfKeywords))
+			{
+				if (isApproximate)
+				{
+					output.add(topKeyword.keyword + "[" + topKeyword.getLowerBound() + ".." + topKeyword.count + "]");
+				}
+				else
+				{
+					output.add(topKeyword.keyword);
+				}
+			}
+			this.cachedOutput = output.toString();
+			this.cachedOutputQuery = toQuery;
+			this.cachedOutputVersion = getOutputVersion();
+			this.cachedOutputKeywords = numberOfKeywords;
+		}
+
+		// Hand the output to the writer thread
+		this.writer.writeLine(this.cachedOutput);
+		if (Metrics.ENABLED)
+		{
+			Metrics.QUERY_LATENCY.record(System.nanoTime() - start);
+		}
+		if (event != null)
+		{
+			event.finish(toQuery, this.cachedOutputKeywords, isCached);
+		}
+	}
+
+	/**
+	 * Gets the version of the output of a query, which changes whenever the
+	 * output may have changed
+	 */
+	private long getOutputVersion()
+	{
+		if (this.summary != null || this.evictedCount > 0)
 		{
-			topKeywords.add(frequencies.removeMax());
+			// The approximate output and the exactness of a bounded output depend on the counts
+			return this.cache.getCountVersion();
 		}
 
-		// Reinsert the nodes and create a string with the keywords
-		StringJoiner output = new StringJoiner(",");
-		for (FibonacciHeapNode<String> nodeKeywords : topKeywords)
+		// Decay alone does not reorder the keywords, so only the searches change the output
+		return this.scores != null ? this.scores.getVersion() : this.cache.getVersion();
+	}
+
+	/**
+	 * Checks if the top keywords of a bounded index are provably the exact top
+	 * keywords in order
+	 * <p>
+	 * Each count is at most its error above the searches of its keyword. The
+	 * keywords are exact if the lower bound of each is at least the count of the
+	 * next, and the lower bound of the last is also at least the largest evicted
+	 * count, which bounds every keyword outside the index.
+	 * <p>
+	 *
+	 * @param topKeywords      The top keywords, followed by the next keyword if
+	 *                         there is one
+	 * @param numberOfKeywords The number of top keywords written
+	 * @return True if the written keywords are exact
+	 */
+	private boolean isExact(List<KeywordCount> topKeywords, int numberOfKeywords)
+	{
+		for (int rank = 0; rank < numberOfKeywords; rank++)
 		{
-			output.add(nodeKeywords.data);
-			frequencies.insert(nodeKeywords);
+			long next = rank + 1 < topKeywords.size() ? topKeywords.get(rank + 1).count : 0;
+			if (rank == numberOfKeywords - 1)
+			{
+				next = Math.max(next, this.evictedCount);
+			}
+			if (topKeywords.get(rank).getLowerBound() < next)
+			{
+				return false;
+			}
 		}
-		
-		// Write to the output file
-		this.writer.append(output.toString());
-		this.writer.newLine();
+		return true;
 	}
 
+	/**
+	 * Gets the provided number of top keywords beginning from the most requested.
+	 * <p>
+	 * The keywords are read from the cache. If more keywords are requested than
+	 * the cache holds, the ids are first read from the frequency index without
+	 * being removed, or in the approximate mode, the counters are read from the
+	 * summary. More than TopKeywordCache.MAX_LIMIT keywords are read from the
+	 * index on every request instead of being cached, since keeping that many in
+	 * order would cost every search. In the decayed mode, the ids are read from
+	 * the decayed scores instead, and the cache is not used.
+	 * <p>
+	 * With the default max Fibonacci heap, the amortized complexity of reading
+	 * the frequency index is O(log(n) + m * d * log(m)), where n is the number of
+	 * nodes in the Fibonacci heap, m is the number of top keywords that need to be
+	 * displayed, and d is the largest degree in the heap.
+	 * <p>
+	 * 
+	 * @param toQuery The number of top keywords to get
+	 * @return The top keywords and their counts, in descending order of frequency
+	 */
+	List<KeywordCount> getTopKeywords(int toQuery)
+	{
+		if (this.scores != null)
+		{
+			int[] topIds = this.scores.getTop(toQuery);
+			long time = this.earlierLines + this.linesRead;
+			List<KeywordCount> topKeywords = new ArrayList<KeywordCount>(topIds.length);
+			for (int id : topIds)
+			{
+				topKeywords.add(new KeywordCount(this.keywords.getKeyword(id, KEYWORD_CHARSET),
+						Math.round(this.scores.getScore(id, time))));
+			}
+			return topKeywords;
+		}
+		if (!this.cache.covers(toQuery))
+		{
+			int[] topIds = this.summary != null ? this.summary.getTop(toQuery) : this.frequencies.getTop(toQuery);
+			long[] topCounts = new long[topIds.length];
+			for (int rank = 0; rank < topIds.length; rank++)
+			{
+				topCounts[rank] = this.summary != null ? this.summary.getCount(topIds[rank])
+						: this.frequencies.getCount(topIds[rank]);
+			}
+			if (toQuery > TopKeywordCache.MAX_LIMIT)
+			{
+				List<KeywordCount> topKeywords = new ArrayList<KeywordCount>(topIds.length);
+				for (int rank = 0; rank < topIds.length; rank++)
+				{
+					topKeywords.add(createKeywordCount(topIds[rank], topCounts[rank]));
+				}
+				return topKeywords;
+			}
+			this.cache.fill(topIds, topCounts, toQuery);
+		}
+
+		int numberOfKeywords = Math.max(Math.min(toQuery, this.cache.size()), 0);
+		List<KeywordCount> topKeywords = new ArrayList<KeywordCount>(numberOfKeywords);
+		for (int rank = 0; rank < numberOfKeywords; rank++)
+		{
+			topKeywords.add(createKeywordCount(this.cache.getId(rank), this.cache.getCount(rank)));
+		}
+		return topKeywords;
+	}
+
+	/**
+	 * Creates the keyword and count of an id, with the error of its count in the
+	 * approximate and bounded modes
+	 */
+	private KeywordCount createKeywordCount(int id, long count)
+	{
+		if (this.summary != null)
+		{
+			return new KeywordCount(this.summary.getKeyword(id, KEYWORD_CHARSET), count, this.summary.getError(id));
+		}
+		long error = this.coldest != null ? this.inherited[id] : 0;
+		return new KeywordCount(this.keywords.getKeyword(id, KEYWORD_CHARSET), count, error);
+	}
+
+	/**
+	 * Creates the daemon threads which ingest files.
+	 */
+	private static class IngestThreadFactory implements ThreadFactory
+	{
+		private AtomicInteger numberOfThreads = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable task)
+		{
+			Thread thread = new Thread(task, "keyword-ingest-" + this.numberOfThreads.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
 }
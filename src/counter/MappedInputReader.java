@@ -0,0 +1,210 @@
+package counter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the lines of a keywords file directly from a memory-mapped buffer.
+ * <p>
+ * The file is mapped with a file channel in windows of at most the window
+ * size, so files larger than 2 GB can be read. The raw bytes are scanned for
+ * new lines, and no characters are decoded or strings created. Each line is
+ * described by its start and end positions within the current window. As with
+ * BufferedReader.readLine, a line ends at a line feed, a carriage return, or a
+ * carriage return followed by a line feed, so both readers count the same lines
+ * of a file.
+ * <p>
+ * When a line crosses the end of the current window, a new window is mapped
+ * beginning at the start of that line. A line can therefore not be larger than
+ * the window size.
+ */
+public class MappedInputReader implements Closeable
+{
+	public final static int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+	// Channel of the mapped input file
+	private FileChannel channel;
+
+	// Size of the input file in bytes
+	private long fileSize;
+
+	// Largest number of bytes mapped at once
+	private int windowSize;
+
+	// Currently mapped region of the input file
+	private MappedByteBuffer window;
+
+	// Offset of the current window within the input file
+	private long windowStart;
+
+	// Position within the window of the next line
+	private int position;
+
+	// Start (inclusive) and end (exclusive) of the current line within the window
+	private int lineStart;
+	private int lineEnd;
+
+	// Whether the last line ended with a carriage return, so a following line feed is skipped
+	private boolean isLineFeedSkipped;
+
+	/**
+	 * Opens and maps the provided file using the default window size.
+	 * <p>
+	 *
+	 * @param file The file to read
+	 * @throws IOException If an error occurs with opening or mapping the file
+	 */
+	public MappedInputReader(Path file) throws IOException
+	{
+		this(file, DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Opens and maps the provided file using the provided window size.
+	 * <p>
+	 *
+	 * @param file       The file to read
+	 * @param windowSize The largest number of bytes to map at once
+	 * @throws IOException If an error occurs with opening or mapping the file
+	 */
+	public MappedInputReader(Path file, int windowSize) throws IOException
+	{
+		if (windowSize <= 0)
+		{
+			throw new IllegalArgumentException("The window size must be greater than 0");
+		}
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+		this.fileSize = this.channel.size();
+		this.windowSize = windowSize;
+		this.position = 0;
+		if (this.fileSize > 0)
+		{
+			mapWindow(0);
+		}
+	}
+
+	/**
+	 * Advances to the next line of the file.
+	 * <p>
+	 * The bytes are scanned until a line feed, a carriage return, or the end of
+	 * the file is reached. The line terminator is not part of the line, and a
+	 * carriage return followed by a line feed is a single terminator.
+	 * <p>
+	 *
+	 * @return True if a line was read, false if the end of the file was reached
+	 * @throws IOException If a line is larger than the window size, or if an error
+	 *                     occurs with mapping the file
+	 */
+	public boolean nextLine() throws IOException
+	{
+		if (this.isLineFeedSkipped)
+		{
+			this.isLineFeedSkipped = false;
+			if (this.windowStart + this.position < this.fileSize)
+			{
+				if (this.position == this.window.limit())
+				{
+					mapWindow(this.windowStart + this.position);
+				}
+				if (this.window.get(this.position) == '\n')
+				{
+					this.position++;
+				}
+			}
+		}
+		if (this.windowStart + this.position >= this.fileSize)
+		{
+			return false;
+		}
+
+		// Scan for the end of the line, remapping if the line crosses the window
+		int index = this.position;
+		while (true)
+		{
+			if (index == this.window.limit())
+			{
+				if (this.windowStart + index >= this.fileSize)
+				{
+					break;
+				}
+				if (this.position == 0)
+				{
+					throw new IOException("A line exceeds the window size of " + this.windowSize + " bytes");
+				}
+				index -= this.position;
+				mapWindow(this.windowStart + this.position);
+			}
+			byte character = this.window.get(index);
+			if (character == '\n' || character == '\r')
+			{
+				this.isLineFeedSkipped = character == '\r';
+				break;
+			}
+			index++;
+		}
+
+		this.lineStart = this.position;
+		this.lineEnd = index;
+		this.position = index + 1;
+		return true;
+	}
+
+	/**
+	 * Gets the currently mapped window.
+	 * <p>
+	 * The window may change after each call to nextLine.
+	 * <p>
+	 *
+	 * @return The currently mapped window
+	 */
+	public MappedByteBuffer getBuffer()
+	{
+		return this.window;
+	}
+
+	/**
+	 * Gets the position of the first byte of the current line within the window
+	 * <p>
+	 *
+	 * @return The start of the current line
+	 */
+	public int getLineStart()
+	{
+		return this.lineStart;
+	}
+
+	/**
+	 * Gets the position after the last byte of the current line within the window
+	 * <p>
+	 *
+	 * @return The end of the current line
+	 */
+	public int getLineEnd()
+	{
+		return this.lineEnd;
+	}
+
+	/**
+	 * Closes the file channel. The mapped buffer should no longer be used.
+	 * <p>
+	 *
+	 * @throws IOException If an error occurs with closing the channel
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		this.window = null;
+		this.channel.close();
+	}
+
+	private void mapWindow(long start) throws IOException
+	{
+		long size = Math.min(this.windowSize, this.fileSize - start);
+		this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+		this.windowStart = start;
+		this.position = 0;
+	}
+}
@@ -0,0 +1,231 @@
+package counter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import structure.HeapMetrics;
+import structure.Histogram;
+
+/**
+ * Metrics of the processor and its output, together with those of the heaps.
+ * <p>
+ * Metrics are enabled by the same system property as HeapMetrics, and cost
+ * nothing when it is not set. The processor records the latency of each query
+ * and the number of distinct ids applied before it, and the output writer
+ * records how long each flush takes and how long the processor waits for room
+ * in its queue. Comparing the query latency with the root list lengths and the
+ * output times shows whether a slow run is spent consolidating the heap or
+ * writing the output.
+ * <p>
+ * The metrics are exposed through a platform MXBean named OBJECT_NAME, and can
+ * be written as JSON when the program exits.
+ */
+public class Metrics implements MetricsMXBean
+{
+	public final static boolean ENABLED = HeapMetrics.ENABLED;
+
+	public final static String OBJECT_NAME = "keywordcounter:type=Metrics";
+
+	public final static Histogram QUERY_LATENCY = new Histogram();
+	public final static Histogram PENDING_IDS = new Histogram();
+	public final static Histogram OUTPUT_FLUSH = new Histogram();
+	public final static Histogram OUTPUT_WAIT = new Histogram();
+
+	/**
+	 * Registers the metrics with the platform MBean server
+	 * <p>
+	 *
+	 * @throws JMException If the metrics cannot be registered
+	 */
+	public static void register() throws JMException
+	{
+		ManagementFactory.getPlatformMBeanServer().registerMBean(new Metrics(), new ObjectName(OBJECT_NAME));
+	}
+
+	/**
+	 * Writes the metrics as JSON to the provided file when the program exits
+	 * <p>
+	 *
+	 * @param file Path of the JSON file
+	 */
+	public static void writeJsonAtExit(String file)
+	{
+		Runtime.getRuntime().addShutdownHook(new Thread(new JsonWriter(file), "keyword-metrics"));
+	}
+
+	/**
+	 * Formats every metric as a JSON object
+	 * <p>
+	 *
+	 * @return The metrics in JSON
+	 */
+	public static String toJson()
+	{
+		StringBuilder builder = new StringBuilder();
+		builder.append("{\n  \"heap\": {\n");
+		appendHistogram(builder, "rootListLength", HeapMetrics.ROOT_LIST_LENGTH, ",\n");
+		appendHistogram(builder, "cascadeLength", HeapMetrics.CASCADE_LENGTH, ",\n");
+		builder.append("    \"increaseKeys\": ").append(HeapMetrics.INCREASES.sum()).append(",\n");
+		builder.append("    \"increaseKeyCuts\": ").append(HeapMetrics.INCREASE_CUTS.sum()).append(",\n");
+		builder.append("    \"maxDegree\": ").append(HeapMetrics.MAX_DEGREE.get()).append("\n  },\n");
+		builder.append("  \"processor\": {\n");
+		appendHistogram(builder, "queryLatencyNanos", QUERY_LATENCY, ",\n");
+		appendHistogram(builder, "pendingIds", PENDING_IDS, "\n  },\n");
+		builder.append("  \"output\": {\n");
+		appendHistogram(builder, "flushNanos", OUTPUT_FLUSH, ",\n");
+		appendHistogram(builder, "waitNanos", OUTPUT_WAIT, "\n  }\n}\n");
+		return builder.toString();
+	}
+
+	private static void appendHistogram(StringBuilder builder, String name, Histogram histogram, String separator)
+	{
+		builder.append("    \"").append(name).append("\": {");
+		builder.append("\"count\": ").append(histogram.getCount());
+		builder.append(", \"sum\": ").append(histogram.getSum());
+		builder.append(", \"mean\": ").append(String.format(Locale.ROOT, "%.3f", histogram.getMean()));
+		builder.append(", \"p50\": ").append(histogram.getPercentile(0.5));
+		builder.append(", \"p99\": ").append(histogram.getPercentile(0.99));
+		builder.append(", \"max\": ").append(histogram.getMax());
+		builder.append("}").append(separator);
+	}
+
+	@Override
+	public long getConsolidations()
+	{
+		return HeapMetrics.ROOT_LIST_LENGTH.getCount();
+	}
+
+	@Override
+	public double getRootListLengthMean()
+	{
+		return HeapMetrics.ROOT_LIST_LENGTH.getMean();
+	}
+
+	@Override
+	public long getRootListLengthMax()
+	{
+		return HeapMetrics.ROOT_LIST_LENGTH.getMax();
+	}
+
+	@Override
+	public long getCascadingCuts()
+	{
+		return HeapMetrics.CASCADE_LENGTH.getCount();
+	}
+
+	@Override
+	public double getCascadeLengthMean()
+	{
+		return HeapMetrics.CASCADE_LENGTH.getMean();
+	}
+
+	@Override
+	public long getCascadeLengthMax()
+	{
+		return HeapMetrics.CASCADE_LENGTH.getMax();
+	}
+
+	@Override
+	public long getIncreaseKeys()
+	{
+		return HeapMetrics.INCREASES.sum();
+	}
+
+	@Override
+	public long getIncreaseKeyCuts()
+	{
+		return HeapMetrics.INCREASE_CUTS.sum();
+	}
+
+	@Override
+	public long getMaxDegree()
+	{
+		return HeapMetrics.MAX_DEGREE.get();
+	}
+
+	@Override
+	public long getQueries()
+	{
+		return QUERY_LATENCY.getCount();
+	}
+
+	@Override
+	public double getQueryLatencyMeanNanos()
+	{
+		return QUERY_LATENCY.getMean();
+	}
+
+	@Override
+	public long getQueryLatencyP99Nanos()
+	{
+		return QUERY_LATENCY.getPercentile(0.99);
+	}
+
+	@Override
+	public long getQueryLatencyMaxNanos()
+	{
+		return QUERY_LATENCY.getMax();
+	}
+
+	@Override
+	public double getPendingIdsMean()
+	{
+		return PENDING_IDS.getMean();
+	}
+
+	@Override
+	public long getOutputFlushes()
+	{
+		return OUTPUT_FLUSH.getCount();
+	}
+
+	@Override
+	public double getOutputFlushMeanNanos()
+	{
+		return OUTPUT_FLUSH.getMean();
+	}
+
+	@Override
+	public long getOutputFlushMaxNanos()
+	{
+		return OUTPUT_FLUSH.getMax();
+	}
+
+	@Override
+	public long getOutputWaitTotalNanos()
+	{
+		return OUTPUT_WAIT.getSum();
+	}
+
+	/**
+	 * Writes the metrics as JSON to a file.
+	 */
+	private static class JsonWriter implements Runnable
+	{
+		private String file;
+
+		JsonWriter(String file)
+		{
+			this.file = file;
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				Files.write(Paths.get(this.file), toJson().getBytes(StandardCharsets.UTF_8));
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+		}
+	}
+}
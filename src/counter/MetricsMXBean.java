@@ -0,0 +1,46 @@
+package counter;
+
+/**
+ * Management interface of the keyword counter's metrics.
+ * <p>
+ * Durations are in nanoseconds. Percentiles are upper bounds within a factor
+ * of 2, as recorded by a Histogram.
+ */
+public interface MetricsMXBean
+{
+	public long getConsolidations();
+
+	public double getRootListLengthMean();
+
+	public long getRootListLengthMax();
+
+	public long getCascadingCuts();
+
+	public double getCascadeLengthMean();
+
+	public long getCascadeLengthMax();
+
+	public long getIncreaseKeys();
+
+	public long getIncreaseKeyCuts();
+
+	public long getMaxDegree();
+
+	public long getQueries();
+
+	public double getQueryLatencyMeanNanos();
+
+	public long getQueryLatencyP99Nanos();
+
+	public long getQueryLatencyMaxNanos();
+
+	public double getPendingIdsMean();
+
+	public long getOutputFlushes();
+
+	public double getOutputFlushMeanNanos();
+
+	public long getOutputFlushMaxNanos();
+
+	public long getOutputWaitTotalNanos();
+}
@@ -0,0 +1,107 @@
+package counter;
+/**
+ * The modes in which a keyword processor counts the searches, and the rules of
+ * which modes and operations can be used together.
+ * <p>
+ * EXACT counts every search, and is the mode of a new processor. APPROXIMATE
+ * counts in a fixed number of counters. LOGGED appends every search to a
+ * write-ahead log. WINDOWED counts only the searches of recent epochs. DECAYED
+ * decays each search with its age. BOUNDED evicts the smallest counts beyond a
+ * number of keywords.
+ * <p>
+ * Every other mode is set on an exact processor, so no two of them can be
+ * combined. Loading a snapshot, ingesting files, and merging processors replace
+ * or add to the exact counts, so they are only supported in the exact mode. A
+ * snapshot can also be saved while logging, since the log keeps the exact
+ * counts.
+ */
+enum Mode
+{
+	EXACT, APPROXIMATE, LOGGED, WINDOWED, DECAYED, BOUNDED;
+
+	/**
+	 * Checks that a processor in this mode can be switched to the provided mode
+	 * <p>
+	 *
+	 * @param mode The mode to switch to
+	 * @throws IllegalStateException If this mode is not exact
+	 */
+	void checkCombined(Mode mode)
+	{
+		if (this != EXACT)
+		{
+			throw new IllegalStateException("The " + mode + " cannot be combined with the " + this);
+		}
+	}
+
+	/**
+	 * Checks that an operation on the exact counts is supported in this mode
+	 * <p>
+	 *
+	 * @param operation Description of the operation, such as "Merging"
+	 * @throws IllegalStateException If this mode is not exact
+	 */
+	void checkSupported(String operation)
+	{
+		if (this != EXACT)
+		{
+			throw new IllegalStateException(operation + " is not supported with the " + this);
+		}
+	}
+
+	/**
+	 * Checks if a snapshot can be saved in this mode
+	 * <p>
+	 *
+	 * @return True if the mode is exact or logged
+	 */
+	boolean isSnapshotSupported()
+	{
+		return this == EXACT || this == LOGGED;
+	}
+
+	/**
+	 * Gets the command line option which selects this mode
+	 * <p>
+	 *
+	 * @return The option, or null for the exact mode, which is the default
+	 */
+	String getOption()
+	{
+		switch (this)
+		{
+		case APPROXIMATE:
+			return "-approximate";
+		case LOGGED:
+			return "-log";
+		case WINDOWED:
+			return "-window";
+		case DECAYED:
+			return "-decay";
+		case BOUNDED:
+			return "-bound";
+		default:
+			return null;
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		switch (this)
+		{
+		case APPROXIMATE:
+			return "approximate mode";
+		case LOGGED:
+			return "log";
+		case WINDOWED:
+			return "window";
+		case DECAYED:
+			return "decay";
+		case BOUNDED:
+			return "bound on the keywords";
+		default:
+			return "exact mode";
+		}
+	}
+}
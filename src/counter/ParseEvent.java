@@ -0,0 +1,63 @@
+package counter;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event for the lines parsed between two queries.
+ * <p>
+ * The lines are tokenized, and their keywords are looked up in the hash table
+ * and summed in the pending counts. Updates applied because the pending limit
+ * was reached are nested within the event.
+ */
+@Name("keywordcounter.Parse")
+@Label("Parse Batch")
+@Category({ "Keyword Counter", "Processor" })
+@Description("Lines read, tokenized, and looked up between two queries")
+class ParseEvent extends jdk.jfr.Event
+{
+	private final static EventType TYPE = EventType.getEventType(ParseEvent.class);
+
+	@Label("Lines")
+	long lines;
+
+	@Label("Searches")
+	long searches;
+
+	@Label("New Keywords")
+	int newKeywords;
+
+	/**
+	 * Begins an event if any recording has the event enabled
+	 * <p>
+	 *
+	 * @return The begun event, or null if the event is disabled
+	 */
+	static ParseEvent start()
+	{
+		if (!TYPE.isEnabled())
+		{
+			return null;
+		}
+		ParseEvent event = new ParseEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends the event and commits it with the provided sizes
+	 */
+	void finish(long lines, long searches, int newKeywords)
+	{
+		end();
+		if (shouldCommit())
+		{
+			this.lines = lines;
+			this.searches = searches;
+			this.newKeywords = newKeywords;
+			commit();
+		}
+	}
+}
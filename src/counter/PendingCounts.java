@@ -0,0 +1,147 @@
+package counter;
+import java.util.Arrays;
+
+/**
+ * The counts added to keyword ids since they were last applied to the
+ * frequency index.
+ * <p>
+ * The counts are only read by queries, so the searches between two queries can
+ * be summed per id and applied together, with one increase for each distinct
+ * id. The sums are kept in an open addressing map of primitive arrays. Its
+ * entries are stored densely in the order that their ids were first added, and
+ * each entry remembers its slot, so clearing the map takes time proportional to
+ * the number of entries rather than the number of slots.
+ */
+class PendingCounts
+{
+	private final static int NONE = -1;
+
+	private final static int DEFAULT_CAPACITY = 64;
+
+	// Slots of the map, containing an entry or NONE. The length is a power of 2
+	private int[] slots;
+
+	// Id, summed count, and slot of each entry, in the order that ids were first added
+	private int[] ids;
+	private long[] counts;
+	private int[] entrySlots;
+
+	private int size;
+
+	/**
+	 * Constructs an empty map
+	 */
+	PendingCounts()
+	{
+		this.slots = new int[2 * DEFAULT_CAPACITY];
+		Arrays.fill(this.slots, NONE);
+		this.ids = new int[DEFAULT_CAPACITY];
+		this.counts = new long[DEFAULT_CAPACITY];
+		this.entrySlots = new int[DEFAULT_CAPACITY];
+		this.size = 0;
+	}
+
+	/**
+	 * Adds to the summed count of the id
+	 * <p>
+	 * The runtime complexity of this operation is O(1) on average.
+	 * <p>
+	 *
+	 * @param id        Non-negative id
+	 * @param increment Value to add to the id's sum
+	 */
+	void add(int id, long increment)
+	{
+		int mask = this.slots.length - 1;
+		int slot = hash(id) & mask;
+		while (true)
+		{
+			int entry = this.slots[slot];
+			if (entry == NONE)
+			{
+				break;
+			}
+			if (this.ids[entry] == id)
+			{
+				this.counts[entry] += increment;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		if (this.size == this.ids.length)
+		{
+			this.ids = Arrays.copyOf(this.ids, 2 * this.size);
+			this.counts = Arrays.copyOf(this.counts, 2 * this.size);
+			this.entrySlots = Arrays.copyOf(this.entrySlots, 2 * this.size);
+		}
+		this.ids[this.size] = id;
+		this.counts[this.size] = increment;
+		this.entrySlots[this.size] = slot;
+		this.slots[slot] = this.size;
+		this.size++;
+
+		// Keep the map at most half full
+		if (2 * this.size > this.slots.length)
+		{
+			resize(2 * this.slots.length);
+		}
+	}
+
+	/**
+	 * Gets the number of distinct ids with a pending count
+	 * <p>
+	 *
+	 * @return The number of entries
+	 */
+	int size()
+	{
+		return this.size;
+	}
+
+	int getId(int entry)
+	{
+		return this.ids[entry];
+	}
+
+	long getCount(int entry)
+	{
+		return this.counts[entry];
+	}
+
+	/**
+	 * Removes every entry, keeping the capacity of the map
+	 */
+	void clear()
+	{
+		for (int entry = 0; entry < this.size; entry++)
+		{
+			this.slots[this.entrySlots[entry]] = NONE;
+		}
+		this.size = 0;
+	}
+
+	private void resize(int numberOfSlots)
+	{
+		this.slots = new int[numberOfSlots];
+		Arrays.fill(this.slots, NONE);
+		int mask = numberOfSlots - 1;
+		for (int entry = 0; entry < this.size; entry++)
+		{
+			int slot = hash(this.ids[entry]) & mask;
+			while (this.slots[slot] != NONE)
+			{
+				slot = (slot + 1) & mask;
+			}
+			this.slots[slot] = entry;
+			this.entrySlots[entry] = slot;
+		}
+	}
+
+	private static int hash(int id)
+	{
+		// Fibonacci hashing, with the high bits folded into the low bits used by the mask
+		int hash = id * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -0,0 +1,61 @@
+package counter;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event for each query, from applying the pending counts to
+ * handing the result to the output writer.
+ */
+@Name("keywordcounter.Query")
+@Label("Query")
+@Category({ "Keyword Counter", "Processor" })
+@Description("Top keywords read and handed to the output writer")
+class QueryEvent extends jdk.jfr.Event
+{
+	private final static EventType TYPE = EventType.getEventType(QueryEvent.class);
+
+	@Label("Requested")
+	int requested;
+
+	@Label("Result Size")
+	int resultSize;
+
+	@Label("Cached Output")
+	@Description("Whether the previous output was written again")
+	boolean cachedOutput;
+
+	/**
+	 * Begins an event if any recording has the event enabled
+	 * <p>
+	 *
+	 * @return The begun event, or null if the event is disabled
+	 */
+	static QueryEvent start()
+	{
+		if (!TYPE.isEnabled())
+		{
+			return null;
+		}
+		QueryEvent event = new QueryEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends the event and commits it with the provided sizes
+	 */
+	void finish(int requested, int resultSize, boolean cachedOutput)
+	{
+		end();
+		if (shouldCommit())
+		{
+			this.requested = requested;
+			this.resultSize = resultSize;
+			this.cachedOutput = cachedOutput;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,433 @@
+package counter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import structure.FrequencyEngine;
+import structure.KeywordTable;
+
+/**
+ * Reads the keywords file and processes the searches on multiple threads.
+ * <p>
+ * The keywords are divided into shards by the hash of their bytes. Each shard
+ * is a KeywordProcessor with its own hash table and frequency index, updated by
+ * its own worker thread. The input file is read through a memory-mapped buffer
+ * on the calling thread, and searches are handed to the workers in batches.
+ * <p>
+ * A query is a barrier. Every shard applies the searches read before the query
+ * and then obtains its own top keywords. As each keyword belongs to exactly one
+ * shard, the N most popular keywords are the N most popular among the top N of
+ * every shard.
+ * <p>
+ * When a stop is read, the workers are stopped and the input and output file
+ * are closed. The output file is output.txt unless another is set, and is
+ * written on a separate thread by an AsyncOutputWriter.
+ */
+public class ShardedKeywordProcessor
+{
+	// Number of searches in a batch handed to a worker
+	private final static int BATCH_SIZE = 4096;
+
+	// Number of batches owned by each shard
+	private final static int BATCHES_PER_SHARD = 4;
+
+	// Workers, each owning the keywords of one shard
+	private Shard[] shards;
+
+	// Parses the lines of the input file
+	private EntryTokenizer tokenizer;
+
+	// Writes the output file on a separate thread
+	private AsyncOutputWriter writer;
+
+	// Path of the output file, or AsyncOutputWriter.STANDARD_OUTPUT
+	private String outputFile;
+
+	// Longest time in milliseconds that a written result waits to be flushed
+	private long flushInterval;
+
+	/**
+	 * Constructs a processor with the provided number of shards
+	 * <p>
+	 *
+	 * @param numberOfShards The number of shards and worker threads
+	 */
+	public ShardedKeywordProcessor(int numberOfShards)
+	{
+		this(numberOfShards, FrequencyEngine.FIBONACCI);
+	}
+
+	/**
+	 * Constructs a processor with the provided number of shards, each using the
+	 * provided type of frequency index
+	 * <p>
+	 *
+	 * @param numberOfShards The number of shards and worker threads
+	 * @param engine         The type of frequency index of each shard
+	 */
+	public ShardedKeywordProcessor(int numberOfShards, FrequencyEngine engine)
+	{
+		if (numberOfShards <= 0)
+		{
+			throw new IllegalArgumentException("The number of shards must be greater than 0");
+		}
+		this.shards = new Shard[numberOfShards];
+		for (int index = 0; index < numberOfShards; index++)
+		{
+			this.shards[index] = new Shard(engine);
+		}
+		this.tokenizer = new EntryTokenizer();
+		this.outputFile = KeywordProcessor.OUTPUT_FILE;
+		this.flushInterval = AsyncOutputWriter.FLUSH_WHEN_IDLE;
+	}
+
+	/**
+	 * Sets the path of the output file written by the following updates
+	 * <p>
+	 *
+	 * @param outputFile Path of the output file, or
+	 *                   AsyncOutputWriter.STANDARD_OUTPUT to write to the
+	 *                   standard output
+	 */
+	public void setOutputFile(String outputFile)
+	{
+		this.outputFile = outputFile;
+	}
+
+	/**
+	 * Sets how long a query result may wait before it is flushed to the output
+	 * file
+	 * <p>
+	 *
+	 * @param flushInterval Longest wait in milliseconds,
+	 *                      AsyncOutputWriter.FLUSH_EVERY_LINE, or
+	 *                      AsyncOutputWriter.FLUSH_WHEN_IDLE
+	 */
+	public void setFlushInterval(long flushInterval)
+	{
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * Reads the given keywords file and writes the result to the output file
+	 * <p>
+	 * The output is the same as KeywordProcessor, except for the order of
+	 * keywords with equal frequencies.
+	 * <p>
+	 *
+	 * @param file Keywords input file
+	 * @throws IOException If an error occurs with reading or writing, or if a
+	 *                     worker fails
+	 */
+	public void updateKeywords(String file) throws IOException
+	{
+		// Map the input file and create a writer
+		Path inputPath = Paths.get(file);
+		if (Files.notExists(inputPath))
+		{
+			throw new IOException("Input file, " + file + ", does not exist");
+		}
+		MappedInputReader input = new MappedInputReader(inputPath);
+		this.writer = new AsyncOutputWriter(this.outputFile, this.flushInterval);
+
+		List<Thread> workers = new ArrayList<Thread>(this.shards.length);
+		for (int index = 0; index < this.shards.length; index++)
+		{
+			Thread worker = new Thread(this.shards[index], "keyword-shard-" + index);
+			worker.setDaemon(true);
+			worker.start();
+			workers.add(worker);
+		}
+		try
+		{
+			// Parse the input file and route each search to the shard of its keyword
+			while (input.nextLine())
+			{
+				ByteBuffer buffer = input.getBuffer();
+				Entry entry = this.tokenizer.tokenize(buffer, input.getLineStart(), input.getLineEnd());
+				if (entry == Entry.STOP)
+				{
+					break;
+				}
+				else if (entry == Entry.SEARCH)
+				{
+					int start = this.tokenizer.getKeywordStart();
+					int end = this.tokenizer.getKeywordEnd();
+					Shard shard = this.shards[getShardIndex(KeywordTable.hash(buffer, start, end))];
+					shard.add(buffer, start, end, this.tokenizer.getValue());
+				}
+				else if (entry == Entry.QUERY)
+				{
+					processQuery(this.tokenizer.getValue());
+				}
+			}
+
+			// Stop the workers once they have applied all searches
+			for (Shard shard : this.shards)
+			{
+				shard.current.isStop = true;
+				shard.dispatch();
+			}
+			for (Thread worker : workers)
+			{
+				worker.join();
+			}
+			checkFailures();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the shards", e);
+		}
+		finally
+		{
+			for (Thread worker : workers)
+			{
+				worker.interrupt();
+			}
+			input.close();
+			this.writer.close();
+		}
+	}
+
+	/**
+	 * Writes the provided number of top keywords beginning from the most requested.
+	 * <p>
+	 * Each shard applies its pending searches and obtains its own top keywords.
+	 * The results of all shards are then merged.
+	 * <p>
+	 *
+	 * @param toQuery The number of top keywords to write
+	 * @throws IOException          If an error occurs with writing the results, or
+	 *                              if a worker fails
+	 * @throws InterruptedException If interrupted while waiting for the shards
+	 */
+	private void processQuery(int toQuery) throws IOException, InterruptedException
+	{
+		// Send the query to every shard before waiting, so the shards work in parallel
+		for (Shard shard : this.shards)
+		{
+			shard.current.query = toQuery;
+			shard.dispatch();
+		}
+		List<KeywordCount> topKeywords = new ArrayList<KeywordCount>();
+		for (Shard shard : this.shards)
+		{
+			Batch batch = shard.completed.take();
+			topKeywords.addAll(batch.topKeywords);
+			batch.topKeywords = null;
+			shard.free.put(batch);
+		}
+		checkFailures();
+
+		// Merge the top keywords of each shard and create a string with the keywords
+		Collections.sort(topKeywords, new FrequencyComparator());
+		StringJoiner output = new StringJoiner(",");
+		for (int index = 0; index < Math.min(toQuery, topKeywords.size()); index++)
+		{
+			output.add(topKeywords.get(index).keyword);
+		}
+
+		// Hand the output to the writer thread
+		this.writer.writeLine(output.toString());
+	}
+
+	private void checkFailures() throws IOException
+	{
+		for (Shard shard : this.shards)
+		{
+			if (shard.failure != null)
+			{
+				throw new IOException("A shard failed to process its keywords", shard.failure);
+			}
+		}
+	}
+
+	private int getShardIndex(int hash)
+	{
+		// Use the high bits of a multiplicative hash, since the tables use the low bits
+		return (int) (((hash * 0x9E3779B9) & 0xFFFFFFFFL) * this.shards.length >>> 32);
+	}
+
+	/**
+	 * A batch of searches for a shard, optionally ending with a query or a stop.
+	 */
+	private static class Batch
+	{
+		// Bytes of the keywords, back to back
+		byte[] bytes = new byte[BATCH_SIZE * 16];
+		ByteBuffer buffer = ByteBuffer.wrap(this.bytes);
+		int length;
+
+		// End of each keyword in the bytes, and its frequency
+		int[] ends = new int[BATCH_SIZE];
+		int[] frequencies = new int[BATCH_SIZE];
+		int size;
+
+		// Number of top keywords requested after the searches, or -1 if none
+		int query = -1;
+		boolean isStop;
+
+		// Top keywords of the shard, set by the worker for a query
+		List<KeywordCount> topKeywords;
+
+		boolean isFull()
+		{
+			return this.size == BATCH_SIZE;
+		}
+
+		void add(ByteBuffer source, int start, int end, int frequency)
+		{
+			int keywordLength = end - start;
+			if (this.length + keywordLength > this.bytes.length)
+			{
+				this.bytes = Arrays.copyOf(this.bytes, Math.max(2 * this.bytes.length, this.length + keywordLength));
+				this.buffer = ByteBuffer.wrap(this.bytes);
+			}
+			for (int index = 0; index < keywordLength; index++)
+			{
+				this.bytes[this.length + index] = source.get(start + index);
+			}
+			this.length += keywordLength;
+			this.ends[this.size] = this.length;
+			this.frequencies[this.size] = frequency;
+			this.size++;
+		}
+
+		void clear()
+		{
+			this.length = 0;
+			this.size = 0;
+			this.query = -1;
+		}
+	}
+
+	/**
+	 * The keywords of one shard and the worker which updates them.
+	 * <p>
+	 * Batches cycle from the free queue, to the reading thread, to the pending
+	 * queue, to the worker, and back to the free queue. A batch ending with a query
+	 * is returned through the completed queue so that the results can be read.
+	 */
+	private static class Shard implements Runnable
+	{
+		KeywordProcessor counter;
+		BlockingQueue<Batch> free = new ArrayBlockingQueue<Batch>(BATCHES_PER_SHARD);
+		BlockingQueue<Batch> pending = new ArrayBlockingQueue<Batch>(BATCHES_PER_SHARD);
+		BlockingQueue<Batch> completed = new ArrayBlockingQueue<Batch>(BATCHES_PER_SHARD);
+
+		// Batch being filled by the reading thread
+		Batch current;
+
+		// First error thrown by the worker
+		volatile Throwable failure;
+
+		Shard(FrequencyEngine engine)
+		{
+			this.counter = new KeywordProcessor(engine);
+			this.current = new Batch();
+			for (int index = 1; index < BATCHES_PER_SHARD; index++)
+			{
+				this.free.add(new Batch());
+			}
+		}
+
+		void add(ByteBuffer buffer, int start, int end, int frequency) throws InterruptedException
+		{
+			this.current.add(buffer, start, end, frequency);
+			if (this.current.isFull())
+			{
+				dispatch();
+			}
+		}
+
+		void dispatch() throws InterruptedException
+		{
+			this.pending.put(this.current);
+			this.current = this.free.take();
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				while (true)
+				{
+					Batch batch = this.pending.take();
+					if (this.failure == null)
+					{
+						apply(batch);
+					}
+					if (batch.isStop)
+					{
+						return;
+					}
+					if (batch.query >= 0)
+					{
+						if (batch.topKeywords == null)
+						{
+							batch.topKeywords = Collections.emptyList();
+						}
+						batch.clear();
+						this.completed.put(batch);
+					}
+					else
+					{
+						batch.clear();
+						this.free.put(batch);
+					}
+				}
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private void apply(Batch batch)
+		{
+			try
+			{
+				int start = 0;
+				for (int index = 0; index < batch.size; index++)
+				{
+					this.counter.processSearch(batch.buffer, start, batch.ends[index], batch.frequencies[index]);
+					start = batch.ends[index];
+				}
+				if (batch.query >= 0)
+				{
+					this.counter.applyPending();
+					batch.topKeywords = this.counter.getTopKeywords(batch.query);
+				}
+			}
+			catch (Throwable e)
+			{
+				// Keep handing back the batches, so the dispatcher sees the failure rather than blocking
+				this.failure = e;
+			}
+		}
+	}
+
+	/**
+	 * Orders keyword counts by descending counts.
+	 */
+	private static class FrequencyComparator implements Comparator<KeywordCount>
+	{
+		@Override
+		public int compare(KeywordCount a, KeywordCount b)
+		{
+			return Long.compare(b.count, a.count);
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package counter;
+import java.util.Arrays;
+
+import structure.FrequencyIndex;
+
+/**
+ * The searches of the most recent epochs, which are subtracted from the
+ * frequency index as their epochs leave the window.
+ * <p>
+ * Each epoch of the window sums the searches applied during it per id, in its
+ * own PendingCounts. When an epoch ends, the oldest epoch expires: the count of
+ * each id it touched is decreased by the epoch's sum, and the epoch's map is
+ * cleared and reused for the next epoch. Expiring an epoch therefore takes time
+ * proportional to the number of distinct ids searched in it, rather than the
+ * number of ids in the index.
+ * <p>
+ * An id is removed from the index once its count falls to 0 and no later epoch
+ * of the window touched it, so the index only holds the keywords searched
+ * within the window.
+ */
+class SlidingWindow
+{
+	// Sums of each epoch, used as a ring with the current epoch at the current position
+	private PendingCounts[] epochs;
+	private int current;
+
+	// Sequence number of the current epoch
+	private long epochNumber;
+
+	// Sequence number of the last epoch which touched each id
+	private long[] lastEpochs;
+
+	/**
+	 * Constructs a window of empty epochs
+	 * <p>
+	 *
+	 * @param numberOfEpochs The number of epochs whose searches are counted
+	 */
+	SlidingWindow(int numberOfEpochs)
+	{
+		if (numberOfEpochs <= 0)
+		{
+			throw new IllegalArgumentException("The number of epochs must be greater than 0");
+		}
+		this.epochs = new PendingCounts[numberOfEpochs];
+		for (int index = 0; index < numberOfEpochs; index++)
+		{
+			this.epochs[index] = new PendingCounts();
+		}
+		this.current = 0;
+		this.epochNumber = 0;
+		this.lastEpochs = new long[16];
+	}
+
+	/**
+	 * Adds searches of the id to the current epoch
+	 * <p>
+	 *
+	 * @param id        Non-negative id
+	 * @param increment The number of searches applied to the id
+	 */
+	void record(int id, long increment)
+	{
+		this.epochs[this.current].add(id, increment);
+		if (id >= this.lastEpochs.length)
+		{
+			this.lastEpochs = Arrays.copyOf(this.lastEpochs, Math.max(2 * this.lastEpochs.length, id + 1));
+		}
+		this.lastEpochs[id] = this.epochNumber;
+	}
+
+	/**
+	 * Ends the current epoch, and subtracts the oldest epoch from the index
+	 * <p>
+	 *
+	 * @param frequencies The index which the searches of the epochs were applied to
+	 * @return The number of ids whose counts were decreased or removed
+	 */
+	int advance(FrequencyIndex frequencies)
+	{
+		this.current = (this.current + 1) % this.epochs.length;
+		this.epochNumber++;
+		long expiredNumber = this.epochNumber - this.epochs.length;
+		PendingCounts expired = this.epochs[this.current];
+		int size = expired.size();
+		for (int entry = 0; entry < size; entry++)
+		{
+			int id = expired.getId(entry);
+			long decrement = expired.getCount(entry);
+			if (frequencies.getCount(id) == decrement && this.lastEpochs[id] == expiredNumber)
+			{
+				frequencies.remove(id);
+			}
+			else
+			{
+				frequencies.decrease(id, decrement);
+			}
+		}
+		expired.clear();
+		return size;
+	}
+
+	/**
+	 * Renumbers the ids of every epoch, such as after the expired keywords are
+	 * removed from the hash table
+	 * <p>
+	 *
+	 * @param ids         The new id of each id in the window
+	 * @param numberOfIds The number of new ids
+	 */
+	void renumber(int[] ids, int numberOfIds)
+	{
+		long[] lastEpochs = new long[Math.max(numberOfIds, 16)];
+		for (int index = 0; index < this.epochs.length; index++)
+		{
+			PendingCounts epoch = this.epochs[index];
+			PendingCounts renumbered = new PendingCounts();
+			for (int entry = 0; entry < epoch.size(); entry++)
+			{
+				int id = epoch.getId(entry);
+				renumbered.add(ids[id], epoch.getCount(entry));
+				lastEpochs[ids[id]] = this.lastEpochs[id];
+			}
+			this.epochs[index] = renumbered;
+		}
+		this.lastEpochs = lastEpochs;
+	}
+}
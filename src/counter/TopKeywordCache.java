@@ -0,0 +1,208 @@
+package counter;
+import java.util.Arrays;
+
+/**
+ * The most recently extracted top keyword ids and their counts, kept up to date
+ * as counts increase.
+ * <p>
+ * The cache holds the largest limit ids in descending order of count, where
+ * limit is the largest number of keywords requested so far, up to MAX_LIMIT.
+ * Larger requests are not cached, since while the cache has room, every new id
+ * enters it at the cost of shifting the ids after it. Counts only
+ * increase, so an update can only change the cache in two ways. An id in the
+ * cache may move up past the ids before it, and an id outside the cache may
+ * move in if its count exceeds the smallest count in the cache, pushing out the
+ * last id. Both are applied in place, so an update which affects neither costs
+ * a single comparison, and the cache never has to be recomputed until a larger
+ * number of keywords is requested.
+ * <p>
+ * The version changes whenever the order or membership of the ids changes, and
+ * the count version changes whenever any cached count changes.
+ */
+class TopKeywordCache
+{
+	// Largest number of ids which are cached
+	public final static int MAX_LIMIT = 1 << 10;
+
+	// Ids in descending order of count, and their counts
+	private int[] ids;
+	private long[] counts;
+	private int size;
+
+	// Number of ids requested, which is the most ids the cache can hold
+	private int limit;
+
+	// Position of each id in the cache, or -1 if the id is not cached
+	private int[] ranks;
+
+	private long version;
+	private long countVersion;
+
+	/**
+	 * Constructs an empty cache which covers no queries
+	 */
+	TopKeywordCache()
+	{
+		this.ids = new int[0];
+		this.counts = new long[0];
+		this.size = 0;
+		this.limit = 0;
+		this.ranks = new int[16];
+		Arrays.fill(this.ranks, -1);
+		this.version = 0;
+		this.countVersion = 0;
+	}
+
+	/**
+	 * Checks if the cache holds the answer to a query for the provided number of
+	 * keywords
+	 * <p>
+	 *
+	 * @param toQuery The number of top keywords requested
+	 * @return True if the cache can answer the query
+	 */
+	boolean covers(int toQuery)
+	{
+		return toQuery <= this.limit;
+	}
+
+	/**
+	 * Replaces the cached ids with a new extraction
+	 * <p>
+	 *
+	 * @param topIds    The largest ids in descending order of count
+	 * @param topCounts The count of each id
+	 * @param limit     The number of ids requested, which is at least the number
+	 *                  of ids given, and at most MAX_LIMIT
+	 */
+	void fill(int[] topIds, long[] topCounts, int limit)
+	{
+		if (limit > MAX_LIMIT)
+		{
+			throw new IllegalArgumentException("At most " + MAX_LIMIT + " ids can be cached");
+		}
+		for (int rank = 0; rank < this.size; rank++)
+		{
+			this.ranks[this.ids[rank]] = -1;
+		}
+		this.ids = Arrays.copyOf(topIds, Math.max(topIds.length, 16));
+		this.counts = Arrays.copyOf(topCounts, this.ids.length);
+		this.size = topIds.length;
+		this.limit = limit;
+		for (int rank = 0; rank < this.size; rank++)
+		{
+			ensureCapacity(this.ids[rank] + 1);
+			this.ranks[this.ids[rank]] = rank;
+		}
+		this.version++;
+		this.countVersion++;
+	}
+
+	/**
+	 * Applies the increased count of an id
+	 * <p>
+	 * The runtime complexity of this operation is O(1) unless the id is in, or
+	 * enters, the cache, in which case it is O(m) where m is the number of cached
+	 * ids.
+	 * <p>
+	 *
+	 * @param id    The id whose count increased
+	 * @param count The new count of the id
+	 */
+	void update(int id, long count)
+	{
+		int rank = id < this.ranks.length ? this.ranks[id] : -1;
+		if (rank >= 0)
+		{
+			// Move the cached id up past any ids with a smaller count
+			this.counts[rank] = count;
+			this.countVersion++;
+			if (rank > 0 && this.counts[rank - 1] < count)
+			{
+				moveUp(rank, id, count);
+				this.version++;
+			}
+		}
+		else if (this.size < this.limit || (this.size > 0 && count > this.counts[this.size - 1]))
+		{
+			// Move the id into the cache, pushing out the last id if the cache is full
+			ensureCapacity(id + 1);
+			if (this.size == this.limit)
+			{
+				this.ranks[this.ids[this.size - 1]] = -1;
+			}
+			else
+			{
+				if (this.size == this.ids.length)
+				{
+					this.ids = Arrays.copyOf(this.ids, 2 * this.size);
+					this.counts = Arrays.copyOf(this.counts, 2 * this.size);
+				}
+				this.size++;
+			}
+			moveUp(this.size - 1, id, count);
+			this.version++;
+			this.countVersion++;
+		}
+	}
+
+	boolean contains(int id)
+	{
+		return id < this.ranks.length && this.ranks[id] >= 0;
+	}
+
+	int size()
+	{
+		return this.size;
+	}
+
+	int getId(int rank)
+	{
+		return this.ids[rank];
+	}
+
+	long getCount(int rank)
+	{
+		return this.counts[rank];
+	}
+
+	long getVersion()
+	{
+		return this.version;
+	}
+
+	long getCountVersion()
+	{
+		return this.countVersion;
+	}
+
+	/**
+	 * Places the id at the position, shifting down the ids before it with a
+	 * smaller count
+	 */
+	private void moveUp(int rank, int id, long count)
+	{
+		while (rank > 0 && this.counts[rank - 1] < count)
+		{
+			this.ids[rank] = this.ids[rank - 1];
+			this.counts[rank] = this.counts[rank - 1];
+			this.ranks[this.ids[rank]] = rank;
+			rank--;
+		}
+		this.ids[rank] = id;
+		this.counts[rank] = count;
+		this.ranks[id] = rank;
+	}
+
+	private void ensureCapacity(int capacity)
+	{
+		int oldCapacity = this.ranks.length;
+		if (capacity <= oldCapacity)
+		{
+			return;
+		}
+		int newCapacity = Math.max(capacity, 2 * oldCapacity);
+		this.ranks = Arrays.copyOf(this.ranks, newCapacity);
+		Arrays.fill(this.ranks, oldCapacity, newCapacity, -1);
+	}
+}
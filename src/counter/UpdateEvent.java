@@ -0,0 +1,56 @@
+package counter;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event for each application of the pending counts to the
+ * frequency index, including any logging and checkpoint.
+ */
+@Name("keywordcounter.Update")
+@Label("Update Batch")
+@Category({ "Keyword Counter", "Processor" })
+@Description("Pending counts applied to the frequency index and cache")
+class UpdateEvent extends jdk.jfr.Event
+{
+	private final static EventType TYPE = EventType.getEventType(UpdateEvent.class);
+
+	@Label("Ids")
+	int ids;
+
+	@Label("Indexed Keywords")
+	int keywords;
+
+	/**
+	 * Begins an event if any recording has the event enabled
+	 * <p>
+	 *
+	 * @return The begun event, or null if the event is disabled
+	 */
+	static UpdateEvent start()
+	{
+		if (!TYPE.isEnabled())
+		{
+			return null;
+		}
+		UpdateEvent event = new UpdateEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends the event and commits it with the provided sizes
+	 */
+	void finish(int ids, int keywords)
+	{
+		end();
+		if (shouldCommit())
+		{
+			this.ids = ids;
+			this.keywords = keywords;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,487 @@
+package counter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import structure.FrequencyIndex;
+import structure.KeywordTable;
+
+/**
+ * An append-only log of the searches applied to a keyword table and frequency
+ * index, used to recover the counts after a crash.
+ * <p>
+ * Each search is logged as a record, either the increment of an existing id or
+ * the bytes of a new keyword with its first count. New keywords are assigned
+ * ids in the order that they are logged, so ids are not written. Numbers are
+ * written as variable-length integers, so most increments take two or three
+ * bytes.
+ * <p>
+ * Records are collected in a buffer and written as a batch, which is forced to
+ * the storage device with a single call. A batch is committed when the buffer
+ * fills, on the first record after the commit interval has passed, or when
+ * the processor finds its input idle, so the cost of forcing is shared by every
+ * search of the batch. Each batch starts
+ * with its length, a CRC-32 checksum, and the input position of its last
+ * record. A batch which was only partly written before a crash fails its
+ * checksum, and is removed during recovery.
+ * <p>
+ * The output written from the logged searches is flushed before each commit,
+ * so the output of a crashed run is never behind its log.
+ * <p>
+ * The log is split into numbered segment files within a directory. A
+ * checkpoint starts a new segment, after which the segments before it can be
+ * deleted, so recovery only replays the searches since the last checkpoint.
+ */
+class WriteAheadLog implements Closeable
+{
+	// Longest time in milliseconds that a logged search waits to be committed
+	public final static long COMMIT_INTERVAL = 1000;
+
+	private final static String SEGMENT_PREFIX = "log.";
+	private final static String CHECKPOINT_FILE = "checkpoint";
+
+	// Length, checksum, and input position at the start of every batch
+	private final static int HEADER_SIZE = 16;
+
+	private final static int BUFFER_SIZE = 1 << 20;
+
+	// Largest size of a logged number
+	private final static int MAX_VARINT_SIZE = 10;
+
+	// Directory containing the segments and checkpoint
+	private Path directory;
+
+	// Segment being appended to, or null before the log is opened
+	private FileChannel channel;
+	private int segment;
+
+	// Records of the batch being collected, after room for the header
+	private ByteBuffer buffer;
+
+	// Input position of the last record in the buffer
+	private long position;
+
+	private CRC32 checksum;
+
+	// Output which is flushed before each commit, or null if there is none
+	private Flushable output;
+
+	// Time of the last commit in nanoseconds
+	private long lastCommit;
+
+	/**
+	 * Uses the provided directory for the log, creating it if needed
+	 * <p>
+	 *
+	 * @param directory Directory of the segments and checkpoint
+	 * @throws IOException If the directory cannot be created
+	 */
+	WriteAheadLog(Path directory) throws IOException
+	{
+		this.directory = Files.createDirectories(directory);
+		this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		this.buffer.position(HEADER_SIZE);
+		this.checksum = new CRC32();
+		this.lastCommit = System.nanoTime();
+	}
+
+	/**
+	 * Sets the output which is flushed before each commit
+	 * <p>
+	 *
+	 * @param output The output written from the logged searches
+	 */
+	void setOutput(Flushable output)
+	{
+		this.output = output;
+	}
+
+	/**
+	 * Gets the path of the checkpoint within the log directory
+	 * <p>
+	 *
+	 * @return The path of the checkpoint, which may not exist
+	 */
+	Path getCheckpoint()
+	{
+		return this.directory.resolve(CHECKPOINT_FILE);
+	}
+
+	/**
+	 * Applies every committed record from the provided segment onwards, then
+	 * opens a new segment for appending
+	 * <p>
+	 * Segments before the first segment are already part of the checkpoint and
+	 * are deleted. A batch which is incomplete or fails its checksum ends its
+	 * segment, and is truncated from the file.
+	 * <p>
+	 *
+	 * @param firstSegment The first segment which is not part of the checkpoint
+	 * @param keywords     Table to add the logged keywords to
+	 * @param frequencies  Index to add the logged counts to
+	 * @return The input position of the last record applied, or -1 if none were
+	 *         applied
+	 * @throws IOException If an error occurs with reading, or a committed record
+	 *                     is malformed
+	 */
+	long replay(int firstSegment, KeywordTable keywords, FrequencyIndex frequencies) throws IOException
+	{
+		long lastPosition = -1;
+		int nextSegment = firstSegment;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		ByteBuffer batch = ByteBuffer.allocate(BUFFER_SIZE);
+		for (int number : listSegments())
+		{
+			if (number < firstSegment)
+			{
+				Files.delete(getSegment(number));
+				continue;
+			}
+			nextSegment = number + 1;
+			try (FileChannel input = FileChannel.open(getSegment(number), StandardOpenOption.READ,
+					StandardOpenOption.WRITE))
+			{
+				long size = input.size();
+				long offset = 0;
+				while (true)
+				{
+					// Read the header and the records, stopping at an incomplete or corrupt batch
+					header.clear();
+					if (size - offset < HEADER_SIZE || input.read(header, offset) < HEADER_SIZE)
+					{
+						break;
+					}
+					int length = header.getInt(0);
+					if (length < 0 || length > size - offset - HEADER_SIZE)
+					{
+						break;
+					}
+					if (length > batch.capacity())
+					{
+						batch = ByteBuffer.allocate(length);
+					}
+					batch.clear().limit(length);
+					while (batch.hasRemaining())
+					{
+						if (input.read(batch, offset + HEADER_SIZE + batch.position()) < 0)
+						{
+							throw new IOException("The log segment ended unexpectedly");
+						}
+					}
+					this.checksum.reset();
+					this.checksum.update(header.array(), 8, HEADER_SIZE - 8);
+					this.checksum.update(batch.array(), 0, length);
+					if ((int) this.checksum.getValue() != header.getInt(4))
+					{
+						break;
+					}
+					batch.flip();
+					apply(batch, keywords, frequencies);
+					lastPosition = header.getLong(8);
+					offset += HEADER_SIZE + length;
+				}
+				input.truncate(offset);
+			}
+		}
+		open(nextSegment);
+		return lastPosition;
+	}
+
+	/**
+	 * Logs a search for a keyword which was just added to the table
+	 * <p>
+	 *
+	 * @param keywords Table containing the keyword
+	 * @param id       The id of the keyword, which is the latest id of the table
+	 * @param count    The count added to the keyword
+	 * @param position Input position after the search
+	 * @throws IOException If an error occurs with committing a batch
+	 */
+	void appendKeyword(KeywordTable keywords, int id, long count, long position) throws IOException
+	{
+		int length = keywords.getLength(id);
+		ensureRemaining(length + 2 * MAX_VARINT_SIZE);
+		putVarint(((long) length << 1) | 1);
+		keywords.copyKeyword(id, this.buffer);
+		putVarint(count);
+		appended(position);
+	}
+
+	/**
+	 * Logs a search for a keyword which was already in the table
+	 * <p>
+	 *
+	 * @param id        The id of the keyword
+	 * @param increment The count added to the keyword
+	 * @param position  Input position after the search
+	 * @throws IOException If an error occurs with committing a batch
+	 */
+	void appendIncrement(int id, long increment, long position) throws IOException
+	{
+		ensureRemaining(2 * MAX_VARINT_SIZE);
+		putVarint((long) id << 1);
+		putVarint(increment);
+		appended(position);
+	}
+
+	/**
+	 * Writes the collected records as a batch and forces it to the storage device
+	 * <p>
+	 *
+	 * @throws IOException If an error occurs with writing
+	 */
+	void commit() throws IOException
+	{
+		this.lastCommit = System.nanoTime();
+		int end = this.buffer.position();
+		if (end == HEADER_SIZE)
+		{
+			return;
+		}
+		if (this.output != null)
+		{
+			this.output.flush();
+		}
+		this.buffer.putLong(8, this.position);
+		this.checksum.reset();
+		this.checksum.update(this.buffer.array(), 8, end - 8);
+		this.buffer.putInt(0, end - HEADER_SIZE);
+		this.buffer.putInt(4, (int) this.checksum.getValue());
+		this.buffer.flip();
+		while (this.buffer.hasRemaining())
+		{
+			this.channel.write(this.buffer);
+		}
+		this.channel.force(false);
+		this.buffer.clear();
+		this.buffer.position(HEADER_SIZE);
+	}
+
+	/**
+	 * Commits the current segment and starts appending to a new segment
+	 * <p>
+	 * A checkpoint of the state after the committed records can then be saved,
+	 * naming the returned segment as the first to replay.
+	 * <p>
+	 *
+	 * @return The number of the new segment
+	 * @throws IOException If an error occurs with writing or creating a segment
+	 */
+	int rotate() throws IOException
+	{
+		commit();
+		this.channel.close();
+		open(this.segment + 1);
+		return this.segment;
+	}
+
+	/**
+	 * Deletes the segments before the provided segment, after a checkpoint which
+	 * includes them has been saved
+	 * <p>
+	 *
+	 * @param firstSegment The first segment which is not part of the checkpoint
+	 * @throws IOException If a segment cannot be deleted
+	 */
+	void deleteBefore(int firstSegment) throws IOException
+	{
+		for (int number : listSegments())
+		{
+			if (number < firstSegment)
+			{
+				Files.delete(getSegment(number));
+			}
+		}
+	}
+
+	/**
+	 * Forces the names of the files in the log directory to the storage device,
+	 * so that a created or renamed file survives a crash
+	 * <p>
+	 * Directories can not be opened on every platform, in which case the names
+	 * are left to the file system.
+	 */
+	void syncDirectory()
+	{
+		try (FileChannel directoryChannel = FileChannel.open(this.directory, StandardOpenOption.READ))
+		{
+			directoryChannel.force(true);
+		}
+		catch (IOException e)
+		{
+			// The directory is synchronized by the file system instead
+		}
+	}
+
+	/**
+	 * Closes the log and deletes its segments and checkpoint, once the input has
+	 * been processed completely and nothing needs to be recovered
+	 * <p>
+	 *
+	 * @throws IOException If a file cannot be deleted
+	 */
+	void delete() throws IOException
+	{
+		this.channel.close();
+		for (int number : listSegments())
+		{
+			Files.delete(getSegment(number));
+		}
+		Files.deleteIfExists(getCheckpoint());
+	}
+
+	/**
+	 * Commits the collected records and closes the current segment
+	 * <p>
+	 *
+	 * @throws IOException If an error occurs with writing
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (this.channel != null && this.channel.isOpen())
+		{
+			try
+			{
+				commit();
+			}
+			finally
+			{
+				this.channel.close();
+			}
+		}
+	}
+
+	private void open(int number) throws IOException
+	{
+		this.segment = number;
+		this.channel = FileChannel.open(getSegment(number), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+		syncDirectory();
+	}
+
+	/**
+	 * Applies the records of a batch to the table and index
+	 */
+	private void apply(ByteBuffer batch, KeywordTable keywords, FrequencyIndex frequencies) throws IOException
+	{
+		while (batch.hasRemaining())
+		{
+			long key = getVarint(batch);
+			int id;
+			if ((key & 1) == 1)
+			{
+				int length = (int) (key >>> 1);
+				int start = batch.position();
+				if (length < 0 || length > batch.remaining())
+				{
+					throw new IOException("A keyword in the log is malformed");
+				}
+				id = keywords.add(batch, start, start + length);
+				batch.position(start + length);
+			}
+			else
+			{
+				id = (int) (key >>> 1);
+				if (id >= keywords.size())
+				{
+					throw new IOException("The log increments an unknown id: " + id);
+				}
+			}
+			frequencies.add(id, getVarint(batch));
+		}
+	}
+
+	private void appended(long position) throws IOException
+	{
+		this.position = position;
+		// Checked on every record, since a slow stream may append only a few records
+		if (System.nanoTime() - this.lastCommit >= TimeUnit.MILLISECONDS.toNanos(COMMIT_INTERVAL))
+		{
+			commit();
+		}
+	}
+
+	private void ensureRemaining(int size) throws IOException
+	{
+		if (this.buffer.remaining() < size)
+		{
+			commit();
+		}
+		if (this.buffer.remaining() < size)
+		{
+			// A keyword larger than the buffer gets a batch of its own
+			this.buffer = ByteBuffer.allocate(HEADER_SIZE + size);
+			this.buffer.position(HEADER_SIZE);
+		}
+	}
+
+	private void putVarint(long value)
+	{
+		while ((value & ~0x7FL) != 0)
+		{
+			this.buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		this.buffer.put((byte) value);
+	}
+
+	private static long getVarint(ByteBuffer batch) throws IOException
+	{
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7)
+		{
+			if (!batch.hasRemaining())
+			{
+				break;
+			}
+			byte next = batch.get();
+			value |= (long) (next & 0x7F) << shift;
+			if (next >= 0)
+			{
+				return value;
+			}
+		}
+		throw new IOException("A number in the log is malformed");
+	}
+
+	private Path getSegment(int number)
+	{
+		return this.directory.resolve(SEGMENT_PREFIX + number);
+	}
+
+	/**
+	 * Lists the numbers of the segments in the directory in ascending order
+	 */
+	private List<Integer> listSegments() throws IOException
+	{
+		List<Integer> numbers = new ArrayList<Integer>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, SEGMENT_PREFIX + "*"))
+		{
+			for (Path file : files)
+			{
+				try
+				{
+					numbers.add(Integer.parseInt(file.getFileName().toString().substring(SEGMENT_PREFIX.length())));
+				}
+				catch (NumberFormatException e)
+				{
+					// Not a segment
+				}
+			}
+		}
+		Collections.sort(numbers);
+		return numbers;
+	}
+}
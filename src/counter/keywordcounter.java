@@ -1,4 +1,12 @@
 package counter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import structure.FrequencyEngine;
+import structure.HeapMetrics;
 
 /**
  * Launches the keyword counter program.
@@ -9,43 +17,449 @@ package counter;
  */
 public class keywordcounter
 {
+	// Options which are followed by a value
+	private final static List<String> VALUE_OPTIONS = Arrays.asList("-threads", "-engine", "-approximate", "-output",
+			"-flush", "-restore", "-snapshot", "-log", "-metrics", "-ingest", "-window", "-epoch", "-decay", "-bound",
+			"-checkpoint");
+
+	// Options which need the exact mode, where a snapshot is also saved with a log
+	private final static List<String> EXACT_OPTIONS = Arrays.asList("-threads", "-restore", "-ingest", "-snapshot");
+
 	// @formatter:off
 	/**
 	 * Processes the command line arguments and calls the main keyword counter class.
 	 * <p>
 	 * Usage:
 	 * <p>
-	 * java -jar keywordcounter <file_name> 
+	 * java -jar keywordcounter [options] <file_name> 
 	 * - file_name: name and path to the input file
+	 * - mapped: read the input file through a memory-mapped buffer
+	 * - threads: process the keywords in the given number of shards in parallel.
+	 *   The input file is always read through a memory-mapped buffer
+	 * - engine: priority queue used to track the frequencies, one of fibonacci,
+	 *   primitive, dary, pairing, or bucket. The default is fibonacci
+	 * - approximate: count the keywords approximately in the given number of
+	 *   counters, writing the bounds of each count. Not used with threads
+	 * - output: path of the output file, or - for the standard output. The
+	 *   default is output.txt
+	 * - flush: longest time in milliseconds that a query result waits before it
+	 *   is written, where 0 writes every result immediately. By default results
+	 *   are written whenever the writer is idle
+	 * - restore: snapshot file whose keywords and counts are loaded before the
+	 *   input file is processed. Not used with threads or approximate
+	 * - snapshot: snapshot file to which the keywords and counts are saved after
+	 *   the input file is processed. Not used with threads or approximate
+	 * - log: directory of a write-ahead log, from which the counts of a crashed
+	 *   run are recovered. The lines already applied are skipped, and the log is
+	 *   deleted once the input is processed. Not used with threads, approximate,
+	 *   or restore
+	 * - checkpoint: number of logged searches between checkpoints
+	 * - ingest: keywords file, or directory of keywords files, whose searches are
+	 *   counted before the input file. May be repeated. The files are read in
+	 *   parallel, and their queries are ignored. Not used with threads,
+	 *   approximate, or log
+	 * - window: number of recent epochs whose searches are counted. Epochs end at
+	 *   each "epoch" line of the input. Not used with threads, approximate,
+	 *   restore, snapshot, log, or ingest
+	 * - epoch: number of input lines after which an epoch also ends
+	 * - decay: half-life in input lines, after which a search counts half as
+	 *   much. The keywords with the largest decayed scores are reported. Not used
+	 *   with threads, approximate, restore, snapshot, log, ingest, or window
+	 * - bound: largest number of keywords counted at once. The keywords with the
+	 *   smallest counts are evicted, and a query is written with the bounds of
+	 *   its counts unless it is provably exact. Not used with threads,
+	 *   approximate, restore, snapshot, log, ingest, window, or decay
+	 * - metrics: file to which the metrics are written as JSON at exit. The
+	 *   metrics are also enabled, without a file, by the system property
+	 *   keywordcounter.metrics, and are exposed through an MXBean when enabled
+	 * The file name - reads from the standard input, which is processed as it
+	 * arrives. Named pipes are read the same way. Neither can be mapped or sharded
 	 * <p>
 	 * 
-	 * @param args Arguments to the keywordcounter program. This should only contain
-	 *             the keywords input file.
+	 * @param args Arguments to the keywordcounter program. This should contain the
+	 *             options followed by the keywords input file.
 	 */
 	// @formatter:on
 	public static void main(String[] args)
 	{
-		if (args.length < 1)
+		String inputFile = null;
+		boolean mapped = false;
+		int threads = 0;
+		FrequencyEngine engine = FrequencyEngine.FIBONACCI;
+		int counters = 0;
+		String outputFile = KeywordProcessor.OUTPUT_FILE;
+		long flushInterval = AsyncOutputWriter.FLUSH_WHEN_IDLE;
+		String restoreFile = null;
+		String snapshotFile = null;
+		String logDirectory = null;
+		int checkpointInterval = 0;
+		String metricsFile = null;
+		List<String> ingestFiles = new ArrayList<String>();
+		int windowEpochs = 0;
+		int epochLines = 0;
+		int halfLife = 0;
+		int maxKeywords = 0;
+		Set<String> options = new HashSet<String>();
+		String error = null;
+		for (int index = 0; index < args.length; index++)
+		{
+			String option = args[index];
+			if (args[index].equals("-mapped"))
+			{
+				mapped = true;
+			}
+			else if (args[index].equals("-threads") && index + 1 < args.length)
+			{
+				threads = parseCount(args[++index]);
+				error = checkValue(error, threads > 0, args, index);
+			}
+			else if (args[index].equals("-engine") && index + 1 < args.length)
+			{
+				engine = FrequencyEngine.fromName(args[++index]);
+				error = checkValue(error, engine != null, args, index);
+			}
+			else if (args[index].equals("-approximate") && index + 1 < args.length)
+			{
+				counters = parseCount(args[++index]);
+				error = checkValue(error, counters > 0, args, index);
+			}
+			else if (args[index].equals("-output") && index + 1 < args.length)
+			{
+				outputFile = args[++index];
+			}
+			else if (args[index].equals("-flush") && index + 1 < args.length)
+			{
+				flushInterval = parseInterval(args[++index]);
+				error = checkValue(error, flushInterval >= 0, args, index);
+			}
+			else if (args[index].equals("-restore") && index + 1 < args.length)
+			{
+				restoreFile = args[++index];
+			}
+			else if (args[index].equals("-snapshot") && index + 1 < args.length)
+			{
+				snapshotFile = args[++index];
+			}
+			else if (args[index].equals("-log") && index + 1 < args.length)
+			{
+				logDirectory = args[++index];
+			}
+			else if (args[index].equals("-metrics") && index + 1 < args.length)
+			{
+				// Set before any heap is used, since the property is read once
+				metricsFile = args[++index];
+				System.setProperty(HeapMetrics.PROPERTY, "true");
+			}
+			else if (args[index].equals("-ingest") && index + 1 < args.length)
+			{
+				ingestFiles.add(args[++index]);
+			}
+			else if (args[index].equals("-window") && index + 1 < args.length)
+			{
+				windowEpochs = parseCount(args[++index]);
+				error = checkValue(error, windowEpochs > 0, args, index);
+			}
+			else if (args[index].equals("-epoch") && index + 1 < args.length)
+			{
+				epochLines = parseCount(args[++index]);
+				error = checkValue(error, epochLines > 0, args, index);
+			}
+			else if (args[index].equals("-decay") && index + 1 < args.length)
+			{
+				halfLife = parseCount(args[++index]);
+				error = checkValue(error, halfLife > 0, args, index);
+			}
+			else if (args[index].equals("-bound") && index + 1 < args.length)
+			{
+				maxKeywords = parseCount(args[++index]);
+				error = checkValue(error, maxKeywords > 0, args, index);
+			}
+			else if (args[index].equals("-checkpoint") && index + 1 < args.length)
+			{
+				checkpointInterval = parseCount(args[++index]);
+				error = checkValue(error, checkpointInterval > 0, args, index);
+			}
+			else if (args[index].startsWith("-") && !args[index].equals(KeywordProcessor.STANDARD_INPUT))
+			{
+				error = checkOption(error, args[index]);
+				continue;
+			}
+			else if (inputFile != null)
+			{
+				if (error == null)
+				{
+					error = "Only one input file can be provided, but " + inputFile + " and " + args[index]
+							+ " are given";
+				}
+				continue;
+			}
+			else
+			{
+				inputFile = args[index];
+				continue;
+			}
+			options.add(option);
+		}
+		boolean isStream = KeywordProcessor.STANDARD_INPUT.equals(inputFile);
+		boolean isLogged = logDirectory != null;
+		boolean isIngested = !ingestFiles.isEmpty();
+		boolean isWindowed = windowEpochs > 0;
+		boolean isDecayed = halfLife > 0;
+		boolean isBounded = maxKeywords > 0;
+		if (error == null && inputFile == null)
+		{
+			error = "The input file is not provided";
+		}
+		else if (error == null && isStream && (threads > 0 || mapped))
+		{
+			error = "The standard input cannot be used with " + (mapped ? "-mapped" : "-threads");
+		}
+		else if (error == null && epochLines > 0 && !isWindowed)
+		{
+			error = "-epoch can only be used with -window";
+		}
+		else if (error == null)
+		{
+			error = findConflict(options);
+		}
+		if (error != null)
 		{
 			// @formatter:off
 			System.out.println(
-					  "The input file is not provided. Usage:\n"
+					  error + ". Usage:\n"
 					+ "\n"
-					+ "  java keywordcounter <file_name>\n"
-					+ "    - file_name: name and path to the input file\n");
+					+ "  java keywordcounter [options] <file_name>\n"
+					+ "    - file_name: name and path to the input file, or - for the standard input\n"
+					+ "\n"
+					+ "  Options:\n"
+					+ "    -mapped: read the input file through a memory-mapped buffer\n"
+					+ "    -threads <count>: number of shards to process in parallel\n"
+					+ "    -engine <name>: fibonacci, primitive, dary, pairing, or bucket\n"
+					+ "    -approximate <counters>: number of counters for approximate counting\n"
+					+ "    -output <file_name>: output file, or - for the standard output\n"
+					+ "    -flush <milliseconds>: longest wait before a result is written\n"
+					+ "    -restore <file_name>: snapshot to load before processing\n"
+					+ "    -snapshot <file_name>: snapshot to save after processing\n"
+					+ "    -log <directory>: write-ahead log to recover from and append to\n"
+					+ "    -checkpoint <searches>: number of logged searches between checkpoints\n"
+					+ "    -ingest <file_name>: file or directory of files to count in parallel first\n"
+					+ "    -window <epochs>: count only the searches of the most recent epochs\n"
+					+ "    -epoch <lines>: number of input lines after which an epoch ends\n"
+					+ "    -decay <lines>: half-life of a search's weight in input lines\n"
+					+ "    -bound <keywords>: largest number of keywords counted at once\n"
+					+ "    -metrics <file_name>: enable metrics and write them as JSON at exit\n");
 			// @formatter:on
 			return;
 		}
 		try
 		{
-			String inputFile = args[0];
-			KeywordProcessor counter = new KeywordProcessor();
-			counter.updateKeywords(inputFile);
-			System.out.println("Finished... Output written to " + KeywordProcessor.OUTPUT_FILE);
+			if (Metrics.ENABLED)
+			{
+				Metrics.register();
+				if (metricsFile != null)
+				{
+					Metrics.writeJsonAtExit(metricsFile);
+				}
+			}
+			if (threads > 0)
+			{
+				ShardedKeywordProcessor counter = new ShardedKeywordProcessor(threads, engine);
+				counter.setOutputFile(outputFile);
+				counter.setFlushInterval(flushInterval);
+				counter.updateKeywords(inputFile);
+				printFinished(outputFile);
+				return;
+			}
+			KeywordProcessor counter = counters > 0 ? KeywordProcessor.createApproximate(counters)
+					: new KeywordProcessor(engine);
+			counter.setOutputFile(outputFile);
+			counter.setFlushInterval(flushInterval);
+			if (restoreFile != null)
+			{
+				counter.loadSnapshot(restoreFile);
+			}
+			if (isIngested)
+			{
+				counter.ingestFiles(ingestFiles, Runtime.getRuntime().availableProcessors());
+			}
+			if (isWindowed)
+			{
+				counter.setWindow(windowEpochs, epochLines);
+			}
+			if (isDecayed)
+			{
+				counter.setDecay(halfLife);
+			}
+			if (isBounded)
+			{
+				counter.setMaxKeywords(maxKeywords);
+			}
+			if (checkpointInterval > 0)
+			{
+				counter.setCheckpointInterval(checkpointInterval);
+			}
+			if (isLogged)
+			{
+				counter.recover(logDirectory);
+			}
+			if (mapped)
+			{
+				counter.updateKeywordsMapped(inputFile);
+			}
+			else
+			{
+				counter.updateKeywords(inputFile);
+			}
+			if (snapshotFile != null)
+			{
+				counter.saveSnapshot(snapshotFile);
+			}
+			printFinished(outputFile);
 		}
 		catch (Exception e)
 		{
 			e.printStackTrace();
 		}
 	}
+
+	/**
+	 * Keeps the first error, or reports the value of an option which is not valid
+	 * <p>
+	 *
+	 * @param error   The error of an earlier option, or null
+	 * @param isValid Whether the value of the option is valid
+	 * @param args    The command line arguments
+	 * @param index   Position of the value, which follows its option
+	 * @return The first error, or null if there is none
+	 */
+	private static String checkValue(String error, boolean isValid, String[] args, int index)
+	{
+		if (error != null || isValid)
+		{
+			return error;
+		}
+		return "The value of " + args[index - 1] + " is not valid: " + args[index];
+	}
+
+	/**
+	 * Keeps the first error, or reports an option which is not known, or which
+	 * takes a value but is the last argument
+	 * <p>
+	 *
+	 * @param error  The error of an earlier argument, or null
+	 * @param option The option which was not parsed
+	 * @return The first error
+	 */
+	private static String checkOption(String error, String option)
+	{
+		if (error != null)
+		{
+			return error;
+		}
+		if (VALUE_OPTIONS.contains(option))
+		{
+			return "The value of " + option + " is not provided";
+		}
+		return "The option " + option + " is not known";
+	}
+
+	/**
+	 * Finds the first pair of options which cannot be used together
+	 * <p>
+	 * The options of two modes cannot be combined, and the options which need the
+	 * exact mode cannot be used with the option of any mode, following the rules
+	 * of Mode. The sharded processor only counts, so threads cannot be used with
+	 * the other options which need the exact mode either.
+	 * <p>
+	 *
+	 * @param options The options given on the command line
+	 * @return A message naming both options, or null if there is no conflict
+	 */
+	private static String findConflict(Set<String> options)
+	{
+		if (options.contains("-threads"))
+		{
+			for (String option : EXACT_OPTIONS)
+			{
+				if (!option.equals("-threads") && options.contains(option))
+				{
+					return "-threads cannot be used with " + option;
+				}
+			}
+		}
+		Mode[] modes = Mode.values();
+		for (int index = 0; index < modes.length; index++)
+		{
+			if (!options.contains(modes[index].getOption()))
+			{
+				continue;
+			}
+			for (String option : EXACT_OPTIONS)
+			{
+				if (options.contains(option) && !(option.equals("-snapshot") && modes[index].isSnapshotSupported()))
+				{
+					return modes[index].getOption() + " cannot be used with " + option;
+				}
+			}
+			for (int other = index + 1; other < modes.length; other++)
+			{
+				if (options.contains(modes[other].getOption()))
+				{
+					return modes[index].getOption() + " cannot be used with " + modes[other].getOption();
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Reports where the output was written, unless it was written to the standard
+	 * output
+	 */
+	private static void printFinished(String outputFile)
+	{
+		if (!AsyncOutputWriter.STANDARD_OUTPUT.equals(outputFile))
+		{
+			System.out.println("Finished... Output written to " + outputFile);
+		}
+	}
+
+	/**
+	 * Parses a flush interval from a command line argument
+	 * <p>
+	 * 
+	 * @param text The argument to parse
+	 * @return The parsed interval in milliseconds, or -1 if the argument is not a
+	 *         non-negative integer
+	 */
+	private static long parseInterval(String text)
+	{
+		try
+		{
+			return Math.max(Long.parseLong(text), -1);
+		}
+		catch (NumberFormatException e)
+		{
+			return -1;
+		}
+	}
+
+	/**
+	 * Parses a positive count from a command line argument
+	 * <p>
+	 * 
+	 * @param text The argument to parse
+	 * @return The parsed count, or 0 if the argument is not a positive integer
+	 */
+	private static int parseCount(String text)
+	{
+		try
+		{
+			return Math.max(Integer.parseInt(text), 0);
+		}
+		catch (NumberFormatException e)
+		{
+			return 0;
+		}
+	}
 }
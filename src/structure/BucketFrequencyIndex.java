@@ -0,0 +1,660 @@
+package structure;
+import java.util.Arrays;
+
+/**
+ * A frequency index which groups ids into buckets of equal count.
+ * <p>
+ * The buckets form a doubly linked list in ascending order of count, and the
+ * ids of each bucket form a doubly linked list. Both lists are stored in
+ * primitive arrays, and the buckets which become empty are reused.
+ * <p>
+ * Increasing the count of an id unlinks it from its bucket and links it into
+ * the bucket of its new count. The bucket of each count is found in an open
+ * addressing hash table of the buckets, so if a bucket with the new count
+ * exists, the id is moved in O(1) time. Otherwise the bucket is created between
+ * the last bucket with a smaller count and the first with a larger count. An
+ * increment which lands between the old bucket and the next also takes O(1)
+ * time. Any other missing count, such as the first count of a new id, is placed
+ * by searching a skip list of the buckets in O(log(b)) expected time, where b is
+ * the number of distinct counts. Decreasing the count of an id is the same,
+ * searching down from its old bucket.
+ * <p>
+ * Each bucket is in the skip list up to a random height, where a quarter of the
+ * buckets at each level are also at the level above. The buckets of each level
+ * are doubly linked, so a bucket is unlinked in O(1) expected time. A created
+ * bucket is linked at each level above the first by walking back from its
+ * neighbour at the level below to the nearest bucket which is at least as high,
+ * which takes O(1) expected time.
+ * <p>
+ * The top m ids are read by walking from the bucket with the largest count,
+ * which takes O(m) time. Nothing is restructured by a query.
+ */
+public class BucketFrequencyIndex implements FrequencyIndex
+{
+	public final static int NONE = -1;
+
+	private final static int DEFAULT_CAPACITY = 16;
+
+	// Largest number of levels of a bucket in the skip list
+	private final static int MAX_HEIGHT = 16;
+
+	// Bucket of each id, or NONE if the id is not in the index
+	private int[] bucketOf;
+
+	// Next and previous id within the same bucket
+	private int[] nextId;
+	private int[] previousId;
+
+	// Count, first id, and next and previous buckets in ascending order of count
+	private long[] bucketCounts;
+	private int[] firstIds;
+	private int[] nextBucket;
+	private int[] previousBucket;
+
+	// Number of buckets which have been created, including those being reused
+	private int numberOfBuckets;
+
+	// Most recently emptied bucket, with the others linked through nextBucket
+	private int freeBucket;
+
+	// Buckets with the smallest and largest counts
+	private int lowestBucket;
+	private int highestBucket;
+
+	// Slots of the hash table of buckets by count, containing a bucket or NONE. The length is a power of 2
+	private int[] slots;
+
+	// Number of buckets in the hash table, which are the linked buckets
+	private int linkedBuckets;
+
+	// Number of levels of each bucket in the skip list, where the first level is nextBucket and previousBucket
+	private byte[] heights;
+
+	// Next and previous buckets at each level above the first, allocated once a bucket reaches the level
+	private int[][] skipNext;
+	private int[][] skipPrevious;
+
+	// First bucket at each level above the first
+	private int[] skipFirst;
+
+	// State of the generator of the bucket heights
+	private long seed;
+
+	private int size;
+
+	/**
+	 * Constructs an empty index
+	 */
+	public BucketFrequencyIndex()
+	{
+		this.bucketOf = new int[DEFAULT_CAPACITY];
+		this.nextId = new int[DEFAULT_CAPACITY];
+		this.previousId = new int[DEFAULT_CAPACITY];
+		Arrays.fill(this.bucketOf, NONE);
+		this.bucketCounts = new long[DEFAULT_CAPACITY];
+		this.firstIds = new int[DEFAULT_CAPACITY];
+		this.nextBucket = new int[DEFAULT_CAPACITY];
+		this.previousBucket = new int[DEFAULT_CAPACITY];
+		this.numberOfBuckets = 0;
+		this.freeBucket = NONE;
+		this.lowestBucket = NONE;
+		this.highestBucket = NONE;
+		this.slots = new int[2 * DEFAULT_CAPACITY];
+		Arrays.fill(this.slots, NONE);
+		this.linkedBuckets = 0;
+		this.heights = new byte[DEFAULT_CAPACITY];
+		this.skipNext = new int[MAX_HEIGHT - 1][];
+		this.skipPrevious = new int[MAX_HEIGHT - 1][];
+		this.skipFirst = new int[MAX_HEIGHT - 1];
+		Arrays.fill(this.skipFirst, NONE);
+		this.seed = 0x2545F4914F6CDD1DL;
+		this.size = 0;
+	}
+
+	@Override
+	public void add(int id, long increment)
+	{
+		if (id < 0)
+		{
+			throw new IllegalArgumentException("The id cannot be negative: " + id);
+		}
+		if (contains(id))
+		{
+			if (increment == 0)
+			{
+				return;
+			}
+			int oldBucket = this.bucketOf[id];
+			unlinkId(id);
+			linkId(id, findBucket(this.bucketCounts[oldBucket] + increment, oldBucket));
+			if (this.firstIds[oldBucket] == NONE)
+			{
+				removeBucket(oldBucket);
+			}
+		}
+		else
+		{
+			ensureCapacity(id + 1);
+			linkId(id, findBucket(increment, NONE));
+			this.size++;
+		}
+	}
+
+	@Override
+	public void decrease(int id, long decrement)
+	{
+		if (decrement == 0)
+		{
+			return;
+		}
+		int oldBucket = this.bucketOf[id];
+		unlinkId(id);
+		linkId(id, findLowerBucket(this.bucketCounts[oldBucket] - decrement, oldBucket));
+		if (this.firstIds[oldBucket] == NONE)
+		{
+			removeBucket(oldBucket);
+		}
+	}
+
+	@Override
+	public void remove(int id)
+	{
+		int bucket = this.bucketOf[id];
+		unlinkId(id);
+		this.bucketOf[id] = NONE;
+		if (this.firstIds[bucket] == NONE)
+		{
+			removeBucket(bucket);
+		}
+		this.size--;
+	}
+
+	/**
+	 * Sorts the counts to create one bucket per distinct count in ascending order,
+	 * then links each id into the bucket of its count. The runtime complexity is
+	 * O(n * log(n)) for the sort, without searching the buckets for each id.
+	 */
+	@Override
+	public void load(long[] counts, int size)
+	{
+		if (this.size != 0)
+		{
+			throw new IllegalStateException("The index must be empty to load counts");
+		}
+		if (size <= 0)
+		{
+			return;
+		}
+		ensureCapacity(size);
+		long[] sorted = Arrays.copyOf(counts, size);
+		Arrays.sort(sorted);
+
+		// Create the buckets in ascending order, so that each level is linked by appending
+		this.numberOfBuckets = 0;
+		this.freeBucket = NONE;
+		Arrays.fill(this.slots, NONE);
+		this.linkedBuckets = 0;
+		Arrays.fill(this.skipFirst, NONE);
+		int[] lastAtLevel = new int[MAX_HEIGHT];
+		Arrays.fill(lastAtLevel, NONE);
+		for (int index = 0; index < size; index++)
+		{
+			if (index > 0 && sorted[index] == sorted[index - 1])
+			{
+				continue;
+			}
+			int created = createBucket(sorted[index]);
+			for (int level = 0; level < this.heights[created]; level++)
+			{
+				int last = lastAtLevel[level];
+				setNext(level, created, NONE);
+				setPrevious(level, created, last);
+				if (last == NONE)
+				{
+					setFirst(level, created);
+				}
+				else
+				{
+					setNext(level, last, created);
+				}
+				lastAtLevel[level] = created;
+			}
+		}
+		this.highestBucket = lastAtLevel[0];
+
+		// Link in descending order, so that each bucket lists its ids in ascending order
+		for (int id = size - 1; id >= 0; id--)
+		{
+			linkId(id, this.slots[findSlot(counts[id])]);
+		}
+		this.size = size;
+	}
+
+	@Override
+	public boolean contains(int id)
+	{
+		return id >= 0 && id < this.bucketOf.length && this.bucketOf[id] != NONE;
+	}
+
+	@Override
+	public long getCount(int id)
+	{
+		return this.bucketCounts[this.bucketOf[id]];
+	}
+
+	@Override
+	public int size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * Gets an id with the smallest count
+	 * <p>
+	 * The runtime complexity of this operation is O(1).
+	 * <p>
+	 *
+	 * @return An id with the smallest count, or NONE if the index is empty
+	 */
+	public int getMinimum()
+	{
+		return this.lowestBucket == NONE ? NONE : this.firstIds[this.lowestBucket];
+	}
+
+	@Override
+	public int[] getTop(int count)
+	{
+		int toGet = Math.max(Math.min(count, this.size), 0);
+		int[] topIds = new int[toGet];
+		int index = 0;
+		for (int bucket = this.highestBucket; index < toGet; bucket = this.previousBucket[bucket])
+		{
+			for (int id = this.firstIds[bucket]; id != NONE && index < toGet; id = this.nextId[id])
+			{
+				topIds[index++] = id;
+			}
+		}
+		return topIds;
+	}
+
+	/**
+	 * Finds the bucket with the provided count, creating it if needed
+	 * <p>
+	 *
+	 * @param count The count of the bucket
+	 * @param start A bucket with a smaller count, or NONE
+	 * @return The bucket with the count
+	 */
+	private int findBucket(long count, int start)
+	{
+		int bucket = this.slots[findSlot(count)];
+		if (bucket != NONE)
+		{
+			return bucket;
+		}
+		int after = start == NONE ? this.lowestBucket : this.nextBucket[start];
+		if (after == NONE || this.bucketCounts[after] > count)
+		{
+			return insertBucket(count, start, after);
+		}
+		int before = findPrevious(count);
+		return insertBucket(count, before, before == NONE ? this.lowestBucket : this.nextBucket[before]);
+	}
+
+	/**
+	 * Finds the bucket with the provided count, creating it if needed
+	 * <p>
+	 *
+	 * @param count The count of the bucket
+	 * @param start A bucket with a larger count
+	 * @return The bucket with the count
+	 */
+	private int findLowerBucket(long count, int start)
+	{
+		int bucket = this.slots[findSlot(count)];
+		if (bucket != NONE)
+		{
+			return bucket;
+		}
+		int before = this.previousBucket[start];
+		if (before == NONE || this.bucketCounts[before] < count)
+		{
+			return insertBucket(count, before, start);
+		}
+		before = findPrevious(count);
+		return insertBucket(count, before, before == NONE ? this.lowestBucket : this.nextBucket[before]);
+	}
+
+	/**
+	 * Finds the last bucket with a smaller count by searching the skip list from
+	 * its highest level
+	 * <p>
+	 *
+	 * @param count The count to search for
+	 * @return The last bucket with a smaller count, or NONE if there is none
+	 */
+	private int findPrevious(long count)
+	{
+		int before = NONE;
+		for (int level = MAX_HEIGHT - 1; level >= 0; level--)
+		{
+			int next = before == NONE ? getFirst(level) : getNext(level, before);
+			while (next != NONE && this.bucketCounts[next] < count)
+			{
+				before = next;
+				next = getNext(level, next);
+			}
+		}
+		return before;
+	}
+
+	/**
+	 * Creates a bucket between the last smaller count and the first larger count,
+	 * and links it at each of its levels
+	 */
+	private int insertBucket(long count, int before, int after)
+	{
+		int bucket = createBucket(count);
+		this.previousBucket[bucket] = before;
+		this.nextBucket[bucket] = after;
+		if (before == NONE)
+		{
+			this.lowestBucket = bucket;
+		}
+		else
+		{
+			this.nextBucket[before] = bucket;
+		}
+		if (after == NONE)
+		{
+			this.highestBucket = bucket;
+		}
+		else
+		{
+			this.previousBucket[after] = bucket;
+		}
+
+		// Walk back from the previous bucket of each level to the nearest bucket which reaches the next level
+		for (int level = 1; level < this.heights[bucket]; level++)
+		{
+			while (before != NONE && this.heights[before] <= level)
+			{
+				before = getPrevious(level - 1, before);
+			}
+			int next = before == NONE ? getFirst(level) : getNext(level, before);
+			setPrevious(level, bucket, before);
+			setNext(level, bucket, next);
+			if (before == NONE)
+			{
+				setFirst(level, bucket);
+			}
+			else
+			{
+				setNext(level, before, bucket);
+			}
+			if (next != NONE)
+			{
+				setPrevious(level, next, bucket);
+			}
+		}
+		return bucket;
+	}
+
+	/**
+	 * Creates an unlinked bucket with a random height, and adds it to the hash
+	 * table
+	 */
+	private int createBucket(long count)
+	{
+		int bucket;
+		if (this.freeBucket != NONE)
+		{
+			bucket = this.freeBucket;
+			this.freeBucket = this.nextBucket[bucket];
+		}
+		else
+		{
+			if (this.numberOfBuckets == this.bucketCounts.length)
+			{
+				int newCapacity = 2 * this.numberOfBuckets;
+				this.bucketCounts = Arrays.copyOf(this.bucketCounts, newCapacity);
+				this.firstIds = Arrays.copyOf(this.firstIds, newCapacity);
+				this.nextBucket = Arrays.copyOf(this.nextBucket, newCapacity);
+				this.previousBucket = Arrays.copyOf(this.previousBucket, newCapacity);
+				this.heights = Arrays.copyOf(this.heights, newCapacity);
+				for (int level = 0; level < this.skipNext.length && this.skipNext[level] != null; level++)
+				{
+					this.skipNext[level] = Arrays.copyOf(this.skipNext[level], newCapacity);
+					this.skipPrevious[level] = Arrays.copyOf(this.skipPrevious[level], newCapacity);
+				}
+			}
+			bucket = this.numberOfBuckets++;
+		}
+		this.bucketCounts[bucket] = count;
+		this.firstIds[bucket] = NONE;
+		this.heights[bucket] = (byte) nextHeight();
+		for (int level = 0; level < this.heights[bucket] - 1; level++)
+		{
+			if (this.skipNext[level] == null)
+			{
+				this.skipNext[level] = new int[this.bucketCounts.length];
+				this.skipPrevious[level] = new int[this.bucketCounts.length];
+			}
+		}
+		this.slots[findSlot(count)] = bucket;
+		this.linkedBuckets++;
+
+		// Keep the hash table at most half full
+		if (2 * this.linkedBuckets > this.slots.length)
+		{
+			resizeSlots(2 * this.slots.length);
+		}
+		return bucket;
+	}
+
+	/**
+	 * Unlinks an empty bucket from each of its levels and the hash table, and adds
+	 * it to the free buckets
+	 */
+	private void removeBucket(int bucket)
+	{
+		for (int level = 0; level < this.heights[bucket]; level++)
+		{
+			int before = getPrevious(level, bucket);
+			int after = getNext(level, bucket);
+			if (before == NONE)
+			{
+				setFirst(level, after);
+			}
+			else
+			{
+				setNext(level, before, after);
+			}
+			if (after != NONE)
+			{
+				setPrevious(level, after, before);
+			}
+			else if (level == 0)
+			{
+				this.highestBucket = before;
+			}
+		}
+		deleteSlot(findSlot(this.bucketCounts[bucket]));
+		this.linkedBuckets--;
+		this.nextBucket[bucket] = this.freeBucket;
+		this.freeBucket = bucket;
+	}
+
+	/**
+	 * Draws a height where each level above the first is reached with a
+	 * probability of 1/4
+	 */
+	private int nextHeight()
+	{
+		// Xorshift generator, which does not allocate
+		this.seed ^= this.seed << 13;
+		this.seed ^= this.seed >>> 7;
+		this.seed ^= this.seed << 17;
+		return Math.min(1 + Long.numberOfTrailingZeros(this.seed) / 2, MAX_HEIGHT);
+	}
+
+	private int getFirst(int level)
+	{
+		return level == 0 ? this.lowestBucket : this.skipFirst[level - 1];
+	}
+
+	private void setFirst(int level, int bucket)
+	{
+		if (level == 0)
+		{
+			this.lowestBucket = bucket;
+		}
+		else
+		{
+			this.skipFirst[level - 1] = bucket;
+		}
+	}
+
+	private int getNext(int level, int bucket)
+	{
+		return level == 0 ? this.nextBucket[bucket] : this.skipNext[level - 1][bucket];
+	}
+
+	private void setNext(int level, int bucket, int next)
+	{
+		if (level == 0)
+		{
+			this.nextBucket[bucket] = next;
+		}
+		else
+		{
+			this.skipNext[level - 1][bucket] = next;
+		}
+	}
+
+	private int getPrevious(int level, int bucket)
+	{
+		return level == 0 ? this.previousBucket[bucket] : this.skipPrevious[level - 1][bucket];
+	}
+
+	private void setPrevious(int level, int bucket, int previous)
+	{
+		if (level == 0)
+		{
+			this.previousBucket[bucket] = previous;
+		}
+		else
+		{
+			this.skipPrevious[level - 1][bucket] = previous;
+		}
+	}
+
+	/**
+	 * Finds the slot of the bucket with the provided count, or the empty slot
+	 * where it would be added
+	 */
+	private int findSlot(long count)
+	{
+		int mask = this.slots.length - 1;
+		int slot = hash(count) & mask;
+		while (this.slots[slot] != NONE && this.bucketCounts[this.slots[slot]] != count)
+		{
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Empties a slot of the hash table, moving back the buckets after it which
+	 * would no longer be found past the empty slot
+	 */
+	private void deleteSlot(int slot)
+	{
+		int mask = this.slots.length - 1;
+		int empty = slot;
+		int next = slot;
+		while (true)
+		{
+			next = (next + 1) & mask;
+			int bucket = this.slots[next];
+			if (bucket == NONE)
+			{
+				break;
+			}
+
+			// The bucket can move back if its home slot is not between the empty slot and its slot
+			int home = hash(this.bucketCounts[bucket]) & mask;
+			if (((next - home) & mask) >= ((next - empty) & mask))
+			{
+				this.slots[empty] = bucket;
+				empty = next;
+			}
+		}
+		this.slots[empty] = NONE;
+	}
+
+	private void resizeSlots(int numberOfSlots)
+	{
+		int[] oldSlots = this.slots;
+		this.slots = new int[numberOfSlots];
+		Arrays.fill(this.slots, NONE);
+		for (int bucket : oldSlots)
+		{
+			if (bucket != NONE)
+			{
+				this.slots[findSlot(this.bucketCounts[bucket])] = bucket;
+			}
+		}
+	}
+
+	private static int hash(long count)
+	{
+		// Fibonacci hashing, taking the high bits of the product which depend on every bit of the count
+		return (int) ((count * 0x9E3779B97F4A7C15L) >>> 32);
+	}
+
+	private void linkId(int id, int bucket)
+	{
+		int first = this.firstIds[bucket];
+		this.nextId[id] = first;
+		this.previousId[id] = NONE;
+		if (first != NONE)
+		{
+			this.previousId[first] = id;
+		}
+		this.firstIds[bucket] = id;
+		this.bucketOf[id] = bucket;
+	}
+
+	private void unlinkId(int id)
+	{
+		int next = this.nextId[id];
+		int previous = this.previousId[id];
+		if (previous == NONE)
+		{
+			this.firstIds[this.bucketOf[id]] = next;
+		}
+		else
+		{
+			this.nextId[previous] = next;
+		}
+		if (next != NONE)
+		{
+			this.previousId[next] = previous;
+		}
+	}
+
+	private void ensureCapacity(int capacity)
+	{
+		int oldCapacity = this.bucketOf.length;
+		if (capacity <= oldCapacity)
+		{
+			return;
+		}
+		int newCapacity = Math.max(capacity, 2 * oldCapacity);
+		this.bucketOf = Arrays.copyOf(this.bucketOf, newCapacity);
+		this.nextId = Arrays.copyOf(this.nextId, newCapacity);
+		this.previousId = Arrays.copyOf(this.previousId, newCapacity);
+		Arrays.fill(this.bucketOf, oldCapacity, newCapacity, NONE);
+	}
+}
@@ -0,0 +1,93 @@
+package structure;
+import java.util.Arrays;
+
+/**
+ * A binary max heap of ids ordered by a key stored alongside each id.
+ * <p>
+ * The queue is used to hold the candidates while reading the largest entries
+ * of a heap-ordered structure without modifying it.
+ */
+class CandidateQueue
+{
+	private int[] ids;
+	private long[] keys;
+	private int size;
+
+	/**
+	 * Constructs an empty queue with room for the provided number of ids
+	 * <p>
+	 *
+	 * @param capacity The initial number of ids
+	 */
+	CandidateQueue(int capacity)
+	{
+		capacity = Math.max(capacity, 16);
+		this.ids = new int[capacity];
+		this.keys = new long[capacity];
+		this.size = 0;
+	}
+
+	/**
+	 * Adds the id with the provided key
+	 * <p>
+	 * The runtime complexity of this operation is O(log(n)).
+	 */
+	void push(int id, long key)
+	{
+		if (this.size == this.ids.length)
+		{
+			this.ids = Arrays.copyOf(this.ids, 2 * this.size);
+			this.keys = Arrays.copyOf(this.keys, 2 * this.size);
+		}
+		int index = this.size++;
+		while (index > 0)
+		{
+			int parentIndex = (index - 1) >>> 1;
+			if (this.keys[parentIndex] >= key)
+			{
+				break;
+			}
+			this.ids[index] = this.ids[parentIndex];
+			this.keys[index] = this.keys[parentIndex];
+			index = parentIndex;
+		}
+		this.ids[index] = id;
+		this.keys[index] = key;
+	}
+
+	/**
+	 * Removes and returns the id with the largest key
+	 * <p>
+	 * The runtime complexity of this operation is O(log(n)).
+	 */
+	int pop()
+	{
+		int top = this.ids[0];
+		this.size--;
+		int id = this.ids[this.size];
+		long key = this.keys[this.size];
+		int index = 0;
+		while (true)
+		{
+			int childIndex = 2 * index + 1;
+			if (childIndex >= this.size)
+			{
+				break;
+			}
+			if (childIndex + 1 < this.size && this.keys[childIndex + 1] > this.keys[childIndex])
+			{
+				childIndex++;
+			}
+			if (this.keys[childIndex] <= key)
+			{
+				break;
+			}
+			this.ids[index] = this.ids[childIndex];
+			this.keys[index] = this.keys[childIndex];
+			index = childIndex;
+		}
+		this.ids[index] = id;
+		this.keys[index] = key;
+		return top;
+	}
+}
@@ -0,0 +1,66 @@
+package structure;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event for each pairwise combine of a max Fibonacci heap.
+ * <p>
+ * The event is only created while a recording has it enabled, so the heaps do
+ * not allocate when nothing is recorded.
+ */
+@Name("keywordcounter.Consolidation")
+@Label("Heap Consolidation")
+@Category({ "Keyword Counter", "Heap" })
+@Description("Pairwise combine of the roots of a max Fibonacci heap")
+class ConsolidationEvent extends jdk.jfr.Event
+{
+	private final static EventType TYPE = EventType.getEventType(ConsolidationEvent.class);
+
+	@Label("Roots Before")
+	int rootsBefore;
+
+	@Label("Roots After")
+	int rootsAfter;
+
+	@Label("Largest Degree")
+	int largestDegree;
+
+	@Label("Nodes")
+	int nodes;
+
+	/**
+	 * Begins an event if any recording has the event enabled
+	 * <p>
+	 *
+	 * @return The begun event, or null if the event is disabled
+	 */
+	static ConsolidationEvent start()
+	{
+		if (!TYPE.isEnabled())
+		{
+			return null;
+		}
+		ConsolidationEvent event = new ConsolidationEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends the event and commits it with the provided sizes
+	 */
+	void finish(int rootsBefore, int rootsAfter, int largestDegree, int nodes)
+	{
+		end();
+		if (shouldCommit())
+		{
+			this.rootsBefore = rootsBefore;
+			this.rootsAfter = rootsAfter;
+			this.largestDegree = largestDegree;
+			this.nodes = nodes;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,263 @@
+package structure;
+import java.util.Arrays;
+
+/**
+ * A frequency index backed by an indexed d-ary max heap stored in an array.
+ * <p>
+ * The heap array holds ids, and the position of each id within the heap array
+ * is tracked so that its count can be increased in place. A larger arity makes
+ * the heap shallower, so an increased count is sifted up through fewer levels,
+ * and the children of a position are adjacent in memory.
+ * <p>
+ * The complexities for each operation are:
+ * <p>
+ * Add O(log_d(n))
+ * <p>
+ * Load O(n)
+ * <p>
+ * Top m ids O(m * d * log(m))
+ */
+public class DaryHeapFrequencyIndex implements FrequencyIndex
+{
+	public final static int DEFAULT_ARITY = 4;
+
+	private final static int DEFAULT_CAPACITY = 16;
+
+	// Number of children of each position
+	private int arity;
+
+	// Ids in heap order
+	private int[] heap;
+
+	// Position of each id within the heap, or -1 if the id is not in the heap
+	private int[] positions;
+
+	// Count of each id
+	private long[] counts;
+
+	private int size;
+
+	/**
+	 * Constructs an empty index using the default arity
+	 */
+	public DaryHeapFrequencyIndex()
+	{
+		this(DEFAULT_ARITY);
+	}
+
+	/**
+	 * Constructs an empty index using the provided arity
+	 * <p>
+	 *
+	 * @param arity The number of children of each position, at least 2
+	 */
+	public DaryHeapFrequencyIndex(int arity)
+	{
+		if (arity < 2)
+		{
+			throw new IllegalArgumentException("The arity must be at least 2");
+		}
+		this.arity = arity;
+		this.heap = new int[DEFAULT_CAPACITY];
+		this.positions = new int[DEFAULT_CAPACITY];
+		this.counts = new long[DEFAULT_CAPACITY];
+		Arrays.fill(this.positions, -1);
+		this.size = 0;
+	}
+
+	@Override
+	public void add(int id, long increment)
+	{
+		if (id < 0)
+		{
+			throw new IllegalArgumentException("The id cannot be negative: " + id);
+		}
+		if (contains(id))
+		{
+			this.counts[id] += increment;
+		}
+		else
+		{
+			ensureCapacity(id + 1);
+			if (this.size == this.heap.length)
+			{
+				this.heap = Arrays.copyOf(this.heap, 2 * this.size);
+			}
+			this.counts[id] = increment;
+			this.heap[this.size] = id;
+			this.positions[id] = this.size;
+			this.size++;
+		}
+		siftUp(this.positions[id]);
+	}
+
+	@Override
+	public void decrease(int id, long decrement)
+	{
+		this.counts[id] -= decrement;
+		siftDown(this.positions[id]);
+	}
+
+	/**
+	 * Moves the last id of the heap into the position of the removed id, then
+	 * sifts it up or down
+	 */
+	@Override
+	public void remove(int id)
+	{
+		int position = this.positions[id];
+		this.positions[id] = -1;
+		this.size--;
+		if (position < this.size)
+		{
+			int lastId = this.heap[this.size];
+			this.heap[position] = lastId;
+			this.positions[lastId] = position;
+			siftUp(position);
+			siftDown(this.positions[lastId]);
+		}
+	}
+
+	/**
+	 * Builds the heap from the ids in order, then sifts down each position which
+	 * has children, from the last to the first
+	 */
+	@Override
+	public void load(long[] counts, int size)
+	{
+		if (this.size != 0)
+		{
+			throw new IllegalStateException("The index must be empty to load counts");
+		}
+		ensureCapacity(size);
+		if (size > this.heap.length)
+		{
+			this.heap = new int[size];
+		}
+		System.arraycopy(counts, 0, this.counts, 0, size);
+		for (int id = 0; id < size; id++)
+		{
+			this.heap[id] = id;
+			this.positions[id] = id;
+		}
+		this.size = size;
+		if (size > 1)
+		{
+			for (int position = (size - 2) / this.arity; position >= 0; position--)
+			{
+				siftDown(position);
+			}
+		}
+	}
+
+	@Override
+	public boolean contains(int id)
+	{
+		return id >= 0 && id < this.positions.length && this.positions[id] >= 0;
+	}
+
+	@Override
+	public long getCount(int id)
+	{
+		return this.counts[id];
+	}
+
+	@Override
+	public int size()
+	{
+		return this.size;
+	}
+
+	@Override
+	public int[] getTop(int count)
+	{
+		int toGet = Math.max(Math.min(count, this.size), 0);
+		int[] topIds = new int[toGet];
+		if (toGet == 0)
+		{
+			return topIds;
+		}
+
+		// Take the largest candidate position and add its children to the candidates
+		CandidateQueue candidates = new CandidateQueue(toGet * this.arity);
+		candidates.push(0, this.counts[this.heap[0]]);
+		for (int index = 0; index < toGet; index++)
+		{
+			int position = candidates.pop();
+			topIds[index] = this.heap[position];
+			int firstChild = position * this.arity + 1;
+			int lastChild = Math.min(firstChild + this.arity, this.size);
+			for (int child = firstChild; child < lastChild; child++)
+			{
+				candidates.push(child, this.counts[this.heap[child]]);
+			}
+		}
+		return topIds;
+	}
+
+	private void siftUp(int position)
+	{
+		int id = this.heap[position];
+		long count = this.counts[id];
+		while (position > 0)
+		{
+			int parent = (position - 1) / this.arity;
+			int parentId = this.heap[parent];
+			if (this.counts[parentId] >= count)
+			{
+				break;
+			}
+			this.heap[position] = parentId;
+			this.positions[parentId] = position;
+			position = parent;
+		}
+		this.heap[position] = id;
+		this.positions[id] = position;
+	}
+
+	private void siftDown(int position)
+	{
+		int id = this.heap[position];
+		long count = this.counts[id];
+		while (true)
+		{
+			int firstChild = position * this.arity + 1;
+			if (firstChild >= this.size)
+			{
+				break;
+			}
+			int lastChild = Math.min(firstChild + this.arity, this.size);
+			int largest = firstChild;
+			for (int child = firstChild + 1; child < lastChild; child++)
+			{
+				if (this.counts[this.heap[child]] > this.counts[this.heap[largest]])
+				{
+					largest = child;
+				}
+			}
+			int largestId = this.heap[largest];
+			if (this.counts[largestId] <= count)
+			{
+				break;
+			}
+			this.heap[position] = largestId;
+			this.positions[largestId] = position;
+			position = largest;
+		}
+		this.heap[position] = id;
+		this.positions[id] = position;
+	}
+
+	private void ensureCapacity(int capacity)
+	{
+		int oldCapacity = this.positions.length;
+		if (capacity <= oldCapacity)
+		{
+			return;
+		}
+		int newCapacity = Math.max(capacity, 2 * oldCapacity);
+		this.positions = Arrays.copyOf(this.positions, newCapacity);
+		this.counts = Arrays.copyOf(this.counts, newCapacity);
+		Arrays.fill(this.positions, oldCapacity, newCapacity, -1);
+	}
+}
@@ -0,0 +1,199 @@
+package structure;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An index of exponentially decayed scores, which finds the ids with the
+ * largest scores.
+ * <p>
+ * A weight added at time t is worth weight * 2^(-(now - t) / halfLife) at a
+ * later time. Rather than decaying every score on each tick, each weight is
+ * stored scaled up by a global factor of 2^((t - base) / halfLife), which grows
+ * with time. A score is read by dividing its key by the factor of the current
+ * time. As every key is divided by the same factor, the order of the keys is the
+ * order of the decayed scores, so adding a weight is a single increase key of a
+ * max Fibonacci heap, and no other key is touched.
+ * <p>
+ * Once the factor exceeds RENORMALIZE_LIMIT, every key is divided by the factor
+ * and the base time is moved to the current time. Dividing every key by the same
+ * number keeps the heap ordered, so the keys are rescaled in place in O(n) time
+ * without restructuring the heap. The limit keeps the keys far within the range
+ * of a double, and is only reached once every 256 half-lives.
+ */
+public class DecayedScoreIndex
+{
+	// Factor above which the keys are renormalized
+	public final static double RENORMALIZE_LIMIT = 0x1p256;
+
+	// Max Fibonacci heap of the scaled keys
+	private MaxFibonacciHeap<Integer> heap;
+
+	// Fibonacci node of each id, or null if the id is not in the heap
+	private List<FibonacciHeapNode<Integer>> nodes;
+
+	// Time over which a score halves
+	private double halfLife;
+
+	// Time at which the factor is 1
+	private long baseTime;
+
+	// Factor of the last time added at, which is only recomputed when the time changes
+	private long factorTime;
+	private double factor;
+
+	// Number of additions, which change the order of the ids
+	private long version;
+
+	/**
+	 * Constructs an empty index whose time starts at 0
+	 * <p>
+	 *
+	 * @param halfLife Positive time over which a score halves
+	 */
+	public DecayedScoreIndex(double halfLife)
+	{
+		if (!(halfLife > 0) || Double.isInfinite(halfLife))
+		{
+			throw new IllegalArgumentException("The half-life must be positive and finite");
+		}
+		this.heap = new MaxFibonacciHeap<Integer>();
+		this.nodes = new ArrayList<FibonacciHeapNode<Integer>>();
+		this.halfLife = halfLife;
+		this.baseTime = 0;
+		this.factorTime = 0;
+		this.factor = 1;
+		this.version = 0;
+	}
+
+	/**
+	 * Adds a weight to the score of the id at the provided time
+	 * <p>
+	 * The runtime complexity of this operation is O(1) amortized, except when the
+	 * keys are renormalized.
+	 * <p>
+	 *
+	 * @param id     Non-negative id
+	 * @param weight Non-negative weight to add
+	 * @param time   The time of the weight, which is not before the time of any
+	 *               earlier addition
+	 */
+	public void add(int id, double weight, long time)
+	{
+		double scaled = weight * getFactor(time);
+		FibonacciHeapNode<Integer> node = getNode(id);
+		if (node == null)
+		{
+			while (this.nodes.size() <= id)
+			{
+				this.nodes.add(null);
+			}
+			node = new FibonacciHeapNode<Integer>(id);
+			this.nodes.set(id, node);
+			this.heap.insert(node, scaled);
+		}
+		else
+		{
+			this.heap.increaseKey(node, scaled);
+		}
+		this.version++;
+	}
+
+	/**
+	 * Gets the decayed score of the id at the provided time
+	 * <p>
+	 *
+	 * @param id   An id in the index
+	 * @param time The time of the score, which is not before the last addition
+	 * @return The sum of the id's weights, each halved for every half-life since
+	 *         it was added
+	 */
+	public double getScore(int id, long time)
+	{
+		return this.nodes.get(id).key / getFactor(time);
+	}
+
+	public boolean contains(int id)
+	{
+		return getNode(id) != null;
+	}
+
+	public int size()
+	{
+		return this.heap.getNumberOfNodes();
+	}
+
+	/**
+	 * Gets the number of additions, which changes whenever the order of the ids
+	 * may have changed
+	 * <p>
+	 * Time alone does not change the order, since every score decays at the same
+	 * rate.
+	 * <p>
+	 *
+	 * @return The version of the order
+	 */
+	public long getVersion()
+	{
+		return this.version;
+	}
+
+	/**
+	 * Gets the ids with the largest scores, which are the same at any time until
+	 * the next addition
+	 * <p>
+	 *
+	 * @param count The number of ids to get
+	 * @return At most count ids, in descending order of their scores
+	 */
+	public int[] getTop(int count)
+	{
+		this.heap.consolidate();
+		List<FibonacciHeapNode<Integer>> topNodes = this.heap.peekTop(count);
+		int[] topIds = new int[topNodes.size()];
+		for (int index = 0; index < topIds.length; index++)
+		{
+			topIds[index] = topNodes.get(index).data;
+		}
+		return topIds;
+	}
+
+	/**
+	 * Gets the factor of the provided time, renormalizing the keys first if the
+	 * factor would exceed the limit
+	 */
+	private double getFactor(long time)
+	{
+		if (time != this.factorTime)
+		{
+			this.factorTime = time;
+			this.factor = Math.pow(2, (time - this.baseTime) / this.halfLife);
+			if (this.factor > RENORMALIZE_LIMIT)
+			{
+				renormalize();
+			}
+		}
+		return this.factor;
+	}
+
+	/**
+	 * Divides every key by the current factor, and makes the current time the base
+	 */
+	private void renormalize()
+	{
+		double scale = 1 / this.factor;
+		for (FibonacciHeapNode<Integer> node : this.nodes)
+		{
+			if (node != null)
+			{
+				node.key *= scale;
+			}
+		}
+		this.baseTime = this.factorTime;
+		this.factor = 1;
+	}
+
+	private FibonacciHeapNode<Integer> getNode(int id)
+	{
+		return id < this.nodes.size() ? this.nodes.get(id) : null;
+	}
+}
@@ -0,0 +1,162 @@
+package structure;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A frequency index backed by a max Fibonacci heap.
+ * <p>
+ * Each id is held by a Fibonacci heap node, which is found through a list
+ * indexed by id. Adding to an existing id is an increase key, with an amortized
+ * complexity of O(1). Decreasing the count of an id removes its node and
+ * inserts it again with the smaller count, with an amortized complexity of
+ * O(log(n)). The top ids are read from the heap without removing them, after
+ * the top-level list is consolidated.
+ * <p>
+ * Another Fibonacci index is merged by moving its nodes. The node of an id in
+ * both indexes is removed from the other heap and its count is added with an
+ * increase key, and the remaining nodes are renumbered and melded in O(1).
+ */
+public class FibonacciFrequencyIndex implements FrequencyIndex
+{
+	// Max Fibonacci heap used to track the counts of ids
+	private MaxFibonacciHeap<Integer> heap;
+
+	// Fibonacci node of each id, or null if the id is not in the heap
+	private List<FibonacciHeapNode<Integer>> nodes;
+
+	/**
+	 * Constructs an empty index
+	 */
+	public FibonacciFrequencyIndex()
+	{
+		this.heap = new MaxFibonacciHeap<Integer>();
+		this.nodes = new ArrayList<FibonacciHeapNode<Integer>>();
+	}
+
+	@Override
+	public void add(int id, long increment)
+	{
+		FibonacciHeapNode<Integer> node = getNode(id);
+		if (node == null)
+		{
+			while (this.nodes.size() <= id)
+			{
+				this.nodes.add(null);
+			}
+			node = new FibonacciHeapNode<Integer>(id);
+			this.nodes.set(id, node);
+			this.heap.insert(node, increment);
+		}
+		else
+		{
+			this.heap.increaseKey(node, increment);
+		}
+	}
+
+	@Override
+	public void decrease(int id, long decrement)
+	{
+		FibonacciHeapNode<Integer> node = this.nodes.get(id);
+		double key = node.getKey() - decrement;
+		this.heap.remove(node);
+		this.heap.insert(node, key);
+	}
+
+	@Override
+	public void remove(int id)
+	{
+		this.heap.remove(this.nodes.get(id));
+		this.nodes.set(id, null);
+	}
+
+	@Override
+	public void load(long[] counts, int size)
+	{
+		if (this.heap.getNumberOfNodes() != 0)
+		{
+			throw new IllegalStateException("The index must be empty to load counts");
+		}
+		List<FibonacciHeapNode<Integer>> loaded = new ArrayList<FibonacciHeapNode<Integer>>(size);
+		for (int id = 0; id < size; id++)
+		{
+			FibonacciHeapNode<Integer> node = new FibonacciHeapNode<Integer>(id);
+			node.key = counts[id];
+			loaded.add(node);
+		}
+		this.heap.insertAll(loaded);
+		this.nodes = loaded;
+	}
+
+	@Override
+	public void merge(FrequencyIndex other, int[] ids)
+	{
+		if (!(other instanceof FibonacciFrequencyIndex))
+		{
+			FrequencyIndex.super.merge(other, ids);
+			return;
+		}
+		FibonacciFrequencyIndex index = (FibonacciFrequencyIndex) other;
+		for (int id = 0; id < index.nodes.size(); id++)
+		{
+			FibonacciHeapNode<Integer> node = index.nodes.get(id);
+			if (node == null)
+			{
+				continue;
+			}
+			int newId = ids[id];
+			FibonacciHeapNode<Integer> existing = getNode(newId);
+			if (existing != null)
+			{
+				index.heap.remove(node);
+				this.heap.increaseKey(existing, node.getKey());
+			}
+			else
+			{
+				while (this.nodes.size() <= newId)
+				{
+					this.nodes.add(null);
+				}
+				node.data = newId;
+				this.nodes.set(newId, node);
+			}
+		}
+		this.heap.meld(index.heap);
+		index.nodes = new ArrayList<FibonacciHeapNode<Integer>>();
+	}
+
+	@Override
+	public boolean contains(int id)
+	{
+		return getNode(id) != null;
+	}
+
+	@Override
+	public long getCount(int id)
+	{
+		return (long) this.nodes.get(id).getKey();
+	}
+
+	@Override
+	public int size()
+	{
+		return this.heap.getNumberOfNodes();
+	}
+
+	@Override
+	public int[] getTop(int count)
+	{
+		this.heap.consolidate();
+		List<FibonacciHeapNode<Integer>> topNodes = this.heap.peekTop(count);
+		int[] topIds = new int[topNodes.size()];
+		for (int index = 0; index < topIds.length; index++)
+		{
+			topIds[index] = topNodes.get(index).data;
+		}
+		return topIds;
+	}
+
+	private FibonacciHeapNode<Integer> getNode(int id)
+	{
+		return id < this.nodes.size() ? this.nodes.get(id) : null;
+	}
+}
@@ -0,0 +1,56 @@
+package structure;
+
+/**
+ * The priority queues available as a frequency index.
+ * <p>
+ * FIBONACCI uses the max Fibonacci heap with a node object per id. PRIMITIVE
+ * uses the max Fibonacci heap stored in primitive arrays. DARY uses an indexed
+ * 4-ary array heap. PAIRING uses a max pairing heap stored in primitive arrays.
+ * BUCKET groups ids into a linked list of buckets of equal count.
+ */
+public enum FrequencyEngine
+{
+	FIBONACCI, PRIMITIVE, DARY, PAIRING, BUCKET;
+
+	/**
+	 * Creates an empty frequency index of this type
+	 * <p>
+	 *
+	 * @return An empty frequency index
+	 */
+	public FrequencyIndex create()
+	{
+		switch (this)
+		{
+		case PRIMITIVE:
+			return new PrimitiveFibonacciFrequencyIndex();
+		case DARY:
+			return new DaryHeapFrequencyIndex();
+		case PAIRING:
+			return new PairingHeapFrequencyIndex();
+		case BUCKET:
+			return new BucketFrequencyIndex();
+		default:
+			return new FibonacciFrequencyIndex();
+		}
+	}
+
+	/**
+	 * Factory method which parses an engine from its name, ignoring case.
+	 * <p>
+	 *
+	 * @param name Name of the engine
+	 * @return The engine, or null if the name does not match any engine
+	 */
+	public static FrequencyEngine fromName(String name)
+	{
+		for (FrequencyEngine engine : values())
+		{
+			if (engine.name().equalsIgnoreCase(name))
+			{
+				return engine;
+			}
+		}
+		return null;
+	}
+}
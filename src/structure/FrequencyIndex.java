@@ -0,0 +1,117 @@
+package structure;
+
+/**
+ * An index which tracks the count of each keyword id and finds the ids with
+ * the largest counts.
+ * <p>
+ * Ids are non-negative integers, such as those assigned by a KeywordTable. An
+ * id is added to the index the first time its count is increased, and stays
+ * in the index until it is removed, such as when its searches expire. The index is
+ * implemented by different priority queues, which are listed by
+ * FrequencyEngine.
+ */
+public interface FrequencyIndex
+{
+	/**
+	 * Increases the count of the id, adding the id if it is not in the index
+	 * <p>
+	 *
+	 * @param id        Non-negative id
+	 * @param increment Non-negative value to increase the count by
+	 */
+	public void add(int id, long increment);
+
+	/**
+	 * Decreases the count of the id, which stays in the index
+	 * <p>
+	 *
+	 * @param id        An id in the index
+	 * @param decrement Non-negative value to decrease the count by, at most the
+	 *                  count of the id
+	 */
+	public void decrease(int id, long decrement);
+
+	/**
+	 * Removes the id and its count from the index
+	 * <p>
+	 *
+	 * @param id An id in the index
+	 */
+	public void remove(int id);
+
+	/**
+	 * Adds the ids from 0 to size - 1 to an empty index, with the counts at their
+	 * positions in the array
+	 * <p>
+	 * The index is built in bulk, which is faster than adding each id, such as
+	 * when restoring a snapshot. The runtime complexity is O(n) unless stated
+	 * otherwise by the implementation.
+	 * <p>
+	 *
+	 * @param counts Non-negative count of each id
+	 * @param size   The number of ids to add
+	 * @throws IllegalStateException If the index is not empty
+	 */
+	public void load(long[] counts, int size);
+
+	/**
+	 * Moves every id of another index into this index, renumbering each id
+	 * <p>
+	 * An id which is already in this index after being renumbered has its count
+	 * increased, and any other id is added with its count. The other index must
+	 * not be used afterwards. By default, each id of the other index is added in
+	 * turn, and implementations may move their structures instead.
+	 * <p>
+	 *
+	 * @param other The index to merge, which is consumed
+	 * @param ids   The id in this index of each id of the other index
+	 */
+	public default void merge(FrequencyIndex other, int[] ids)
+	{
+		for (int id = 0; id < ids.length; id++)
+		{
+			if (other.contains(id))
+			{
+				add(ids[id], other.getCount(id));
+			}
+		}
+	}
+
+	/**
+	 * Checks if the id is in the index
+	 * <p>
+	 *
+	 * @param id The id to check
+	 * @return True if the id is in the index
+	 */
+	public boolean contains(int id);
+
+	/**
+	 * Gets the count of the id
+	 * <p>
+	 *
+	 * @param id An id in the index
+	 * @return The count of the id
+	 */
+	public long getCount(int id);
+
+	/**
+	 * Gets the number of ids in the index
+	 * <p>
+	 *
+	 * @return The number of ids
+	 */
+	public int size();
+
+	/**
+	 * Gets the ids with the largest counts.
+	 * <p>
+	 * The counts are unchanged. Implementations may restructure themselves to
+	 * answer the request faster.
+	 * <p>
+	 *
+	 * @param count The number of ids to get
+	 * @return At most count ids, in descending order of their counts
+	 */
+	public int[] getTop(int count);
+}
@@ -0,0 +1,55 @@
+package structure;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms of the work done by the max Fibonacci heaps.
+ * <p>
+ * Metrics are disabled unless the system property named by PROPERTY is true
+ * when this class is first used. ENABLED is then a constant to the JIT
+ * compiler, so the recording in the heaps is compiled out when it is false.
+ * <p>
+ * The metrics are shared by every heap, so that the shards of a parallel run
+ * are combined:
+ * <p>
+ * ROOT_LIST_LENGTH The number of roots before each pairwise combine
+ * <p>
+ * CASCADE_LENGTH The number of cuts made by each cascading cut
+ * <p>
+ * INCREASES and INCREASE_CUTS The number of increase keys, and how many of them
+ * cut the node from its parent
+ * <p>
+ * MAX_DEGREE The largest degree of a root after a pairwise combine
+ */
+public class HeapMetrics
+{
+	// System property which enables the metrics
+	public final static String PROPERTY = "keywordcounter.metrics";
+
+	public final static boolean ENABLED = Boolean.getBoolean(PROPERTY);
+
+	public final static Histogram ROOT_LIST_LENGTH = new Histogram();
+	public final static Histogram CASCADE_LENGTH = new Histogram();
+	public final static LongAdder INCREASES = new LongAdder();
+	public final static LongAdder INCREASE_CUTS = new LongAdder();
+	public final static AtomicLong MAX_DEGREE = new AtomicLong();
+
+	private HeapMetrics()
+	{
+	}
+
+	/**
+	 * Records the largest degree of the roots after a pairwise combine
+	 * <p>
+	 *
+	 * @param degree The largest degree of a root
+	 */
+	static void recordDegree(int degree)
+	{
+		long previous = MAX_DEGREE.get();
+		while (degree > previous && !MAX_DEGREE.compareAndSet(previous, degree))
+		{
+			previous = MAX_DEGREE.get();
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package structure;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative values in buckets of powers of 2.
+ * <p>
+ * A value v is counted in bucket 64 - numberOfLeadingZeros(v), so bucket 0
+ * holds 0, and bucket b holds the values from 2^(b-1) to 2^b - 1. Recording a
+ * value is a few atomic additions without allocating, so several threads can
+ * record into the same histogram. Percentiles are reported as the upper bound
+ * of their bucket, which is within a factor of 2 of the true value.
+ */
+public class Histogram
+{
+	private final static int NUMBER_OF_BUCKETS = 65;
+
+	// Number of values in each bucket
+	private AtomicLongArray buckets;
+
+	private AtomicLong count;
+	private AtomicLong sum;
+	private AtomicLong max;
+
+	/**
+	 * Constructs an empty histogram
+	 */
+	public Histogram()
+	{
+		this.buckets = new AtomicLongArray(NUMBER_OF_BUCKETS);
+		this.count = new AtomicLong();
+		this.sum = new AtomicLong();
+		this.max = new AtomicLong();
+	}
+
+	/**
+	 * Records a value
+	 * <p>
+	 *
+	 * @param value Non-negative value to record
+	 */
+	public void record(long value)
+	{
+		value = Math.max(value, 0);
+		this.buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+		this.count.incrementAndGet();
+		this.sum.addAndGet(value);
+		long previous = this.max.get();
+		while (value > previous && !this.max.compareAndSet(previous, value))
+		{
+			previous = this.max.get();
+		}
+	}
+
+	public long getCount()
+	{
+		return this.count.get();
+	}
+
+	public long getSum()
+	{
+		return this.sum.get();
+	}
+
+	public long getMax()
+	{
+		return this.max.get();
+	}
+
+	/**
+	 * Gets the mean of the recorded values
+	 * <p>
+	 *
+	 * @return The mean, or 0 if no values were recorded
+	 */
+	public double getMean()
+	{
+		long values = this.count.get();
+		return values == 0 ? 0 : (double) this.sum.get() / values;
+	}
+
+	/**
+	 * Gets an upper bound of the value below which the provided fraction of the
+	 * recorded values fall
+	 * <p>
+	 *
+	 * @param fraction The fraction of values, between 0 and 1
+	 * @return The upper bound of the bucket containing the percentile, at most the
+	 *         largest value, or 0 if no values were recorded
+	 */
+	public long getPercentile(double fraction)
+	{
+		long values = this.count.get();
+		long rank = (long) Math.ceil(fraction * values);
+		long seen = 0;
+		for (int bucket = 0; bucket < NUMBER_OF_BUCKETS; bucket++)
+		{
+			seen += this.buckets.get(bucket);
+			if (seen >= rank && seen > 0)
+			{
+				long upper = bucket == 0 ? 0 : bucket == 64 ? Long.MAX_VALUE : (1L << bucket) - 1;
+				return Math.min(upper, this.max.get());
+			}
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,435 @@
+package structure;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A hash table which maps keywords to consecutive integer ids.
+ * <p>
+ * The table uses open addressing with linear probing. The bytes of every
+ * keyword are stored back to back in a single shared arena, and each slot of
+ * the table holds only the id of a keyword. Keywords are looked up directly
+ * from a slice of a byte buffer, such as a line of a mapped input file, so
+ * looking up an existing keyword does not allocate.
+ * <p>
+ * Ids are assigned in the order that keywords are added, starting at 0.
+ * Keywords can not be removed. Keywords given as characters are encoded as
+ * UTF-8.
+ * <p>
+ * The table is saved as its offsets and arena, and is restored by rehashing the
+ * arena in a single pass, so neither is copied keyword by keyword.
+ */
+public class KeywordTable
+{
+	public final static int NONE = -1;
+
+	// Largest number of keywords, whose slots are the largest power of 2 length of an array
+	public final static int MAX_CAPACITY = 1 << 29;
+
+	private final static int DEFAULT_CAPACITY = 16;
+
+	// Slots of the hash table, containing an id or NONE. The length is a power of 2
+	private int[] slots;
+
+	// Hash of each id
+	private int[] hashes;
+
+	// Position of each id's bytes in the arena. The end is the next id's offset
+	private int[] offsets;
+
+	// Bytes of every keyword, in the order of their ids
+	private byte[] arena;
+
+	private int numberOfKeywords;
+
+	// Reusable buffer for encoding characters into bytes
+	private Utf8Encoder encoder;
+
+	/**
+	 * Constructs an empty table
+	 */
+	public KeywordTable()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs an empty table with room for the provided number of keywords
+	 * <p>
+	 *
+	 * @param capacity The expected number of keywords, at most MAX_CAPACITY
+	 * @throws IllegalArgumentException If the capacity is greater than
+	 *                                  MAX_CAPACITY
+	 */
+	public KeywordTable(int capacity)
+	{
+		this(capacity, (int) Math.min(Math.max(capacity, DEFAULT_CAPACITY) * 8L, Integer.MAX_VALUE - 8));
+	}
+
+	private KeywordTable(int capacity, int arenaSize)
+	{
+		if (capacity > MAX_CAPACITY)
+		{
+			throw new IllegalArgumentException(
+					"The capacity must be at most " + MAX_CAPACITY + " keywords, but is " + capacity);
+		}
+		capacity = Math.max(capacity, DEFAULT_CAPACITY);
+		this.slots = new int[Integer.highestOneBit(capacity - 1) << 2];
+		Arrays.fill(this.slots, NONE);
+		this.hashes = new int[capacity];
+		this.offsets = new int[capacity + 1];
+		this.arena = new byte[arenaSize];
+		this.numberOfKeywords = 0;
+		this.encoder = new Utf8Encoder();
+	}
+
+	/**
+	 * Reads a table written by writeTo
+	 * <p>
+	 * The offsets and the arena are read in bulk, then each keyword is hashed and
+	 * placed in a single pass. The runtime complexity of this operation is O(n +
+	 * b), where n is the number of keywords and b is the total length of the
+	 * keywords. The keywords keep their ids.
+	 * <p>
+	 *
+	 * @param input The snapshot to read from
+	 * @return The restored table
+	 * @throws IOException If an error occurs with reading, or the table is
+	 *                     malformed
+	 */
+	public static KeywordTable readFrom(SnapshotReader input) throws IOException
+	{
+		int numberOfKeywords = input.readInt();
+		int arenaSize = input.readInt();
+		if (numberOfKeywords < 0 || numberOfKeywords > MAX_CAPACITY || arenaSize < 0)
+		{
+			throw new IOException("The keyword table in the snapshot is malformed");
+		}
+		KeywordTable table = new KeywordTable(numberOfKeywords, Math.max(arenaSize, DEFAULT_CAPACITY));
+		input.readInts(table.offsets, 0, numberOfKeywords + 1);
+		input.readBytes(table.arena, 0, arenaSize);
+
+		ByteBuffer buffer = ByteBuffer.wrap(table.arena);
+		for (int id = 0; id < numberOfKeywords; id++)
+		{
+			int start = table.offsets[id];
+			int end = table.offsets[id + 1];
+			if (start < 0 || end < start || end > arenaSize)
+			{
+				throw new IOException("The keyword table in the snapshot is malformed");
+			}
+			table.hashes[id] = hash(buffer, start, end);
+			table.place(id);
+		}
+		table.numberOfKeywords = numberOfKeywords;
+		return table;
+	}
+
+	/**
+	 * Writes the keywords, so that readFrom restores them with the same ids
+	 * <p>
+	 *
+	 * @param output The snapshot to write to
+	 * @throws IOException If an error occurs with writing
+	 */
+	public void writeTo(SnapshotWriter output) throws IOException
+	{
+		int arenaSize = this.offsets[this.numberOfKeywords];
+		output.writeInt(this.numberOfKeywords);
+		output.writeInt(arenaSize);
+		output.writeInts(this.offsets, 0, this.numberOfKeywords + 1);
+		output.writeBytes(this.arena, 0, arenaSize);
+	}
+
+	/**
+	 * Gets the number of keywords in the table
+	 * <p>
+	 *
+	 * @return The number of keywords
+	 */
+	public int size()
+	{
+		return this.numberOfKeywords;
+	}
+
+	/**
+	 * Finds the id of the keyword contained between start and end in the buffer.
+	 * <p>
+	 * The runtime complexity of this operation is O(k) on average, where k is the
+	 * length of the keyword.
+	 * <p>
+	 *
+	 * @param buffer Buffer containing the keyword
+	 * @param start  Position of the first byte of the keyword
+	 * @param end    Position after the last byte of the keyword
+	 * @return The id of the keyword, or NONE if the keyword is not in the table
+	 */
+	public int find(ByteBuffer buffer, int start, int end)
+	{
+		int hash = hash(buffer, start, end);
+		int mask = this.slots.length - 1;
+		for (int slot = hash & mask;; slot = (slot + 1) & mask)
+		{
+			int id = this.slots[slot];
+			if (id == NONE)
+			{
+				return NONE;
+			}
+			if (this.hashes[id] == hash && matches(id, buffer, start, end))
+			{
+				return id;
+			}
+		}
+	}
+
+	/**
+	 * Finds the id of the keyword contained between start and end in the text.
+	 * <p>
+	 *
+	 * @param text  Text containing the keyword
+	 * @param start Position of the first character of the keyword
+	 * @param end   Position after the last character of the keyword
+	 * @return The id of the keyword, or NONE if the keyword is not in the table
+	 */
+	public int find(CharSequence text, int start, int end)
+	{
+		int length = this.encoder.encode(text, start, end);
+		return find(this.encoder.getBuffer(), 0, length);
+	}
+
+	/**
+	 * Adds the keyword contained between start and end in the buffer.
+	 * <p>
+	 * This operation assumes that the keyword is not already in the table. The
+	 * runtime complexity of this operation is O(k) amortized, where k is the length
+	 * of the keyword.
+	 * <p>
+	 *
+	 * @param buffer Buffer containing the keyword
+	 * @param start  Position of the first byte of the keyword
+	 * @param end    Position after the last byte of the keyword
+	 * @return The id assigned to the keyword
+	 */
+	public int add(ByteBuffer buffer, int start, int end)
+	{
+		int length = end - start;
+		int offset = reserve(length);
+		for (int index = 0; index < length; index++)
+		{
+			this.arena[offset + index] = buffer.get(start + index);
+		}
+		return append(length, hash(buffer, start, end));
+	}
+
+	/**
+	 * Adds the keyword contained between start and end in the text.
+	 * <p>
+	 * This operation assumes that the keyword is not already in the table.
+	 * <p>
+	 *
+	 * @param text  Text containing the keyword
+	 * @param start Position of the first character of the keyword
+	 * @param end   Position after the last character of the keyword
+	 * @return The id assigned to the keyword
+	 */
+	public int add(CharSequence text, int start, int end)
+	{
+		int length = this.encoder.encode(text, start, end);
+		return add(this.encoder.getBuffer(), 0, length);
+	}
+
+	/**
+	 * Finds the id of a keyword of another table, adding the keyword if it is not
+	 * in this table
+	 * <p>
+	 * The keyword is compared with its stored hash and bytes, so it is neither
+	 * decoded nor hashed again. A keyword which is added is copied directly from
+	 * the arena of the source table, with its stored hash. The runtime complexity
+	 * of this operation is O(k) amortized, where k is the length of the keyword.
+	 * <p>
+	 *
+	 * @param source The table containing the keyword
+	 * @param id     The id of the keyword in the source table
+	 * @return The id of the keyword in this table
+	 */
+	public int merge(KeywordTable source, int id)
+	{
+		int hash = source.hashes[id];
+		int start = source.offsets[id];
+		int end = source.offsets[id + 1];
+		int mask = this.slots.length - 1;
+		for (int slot = hash & mask;; slot = (slot + 1) & mask)
+		{
+			int match = this.slots[slot];
+			if (match == NONE)
+			{
+				int offset = reserve(end - start);
+				System.arraycopy(source.arena, start, this.arena, offset, end - start);
+				return append(end - start, hash);
+			}
+			if (this.hashes[match] == hash && Arrays.equals(this.arena, this.offsets[match], this.offsets[match + 1],
+					source.arena, start, end))
+			{
+				return match;
+			}
+		}
+	}
+
+	/**
+	 * Decodes the keyword with the provided id
+	 * <p>
+	 *
+	 * @param id      The id of the keyword
+	 * @param charset The charset used to decode the keyword's bytes
+	 * @return The keyword
+	 */
+	public String getKeyword(int id, Charset charset)
+	{
+		return new String(this.arena, this.offsets[id], this.offsets[id + 1] - this.offsets[id], charset);
+	}
+
+	/**
+	 * Gets the number of bytes of the keyword with the provided id
+	 * <p>
+	 *
+	 * @param id The id of the keyword
+	 * @return The length of the keyword in bytes
+	 */
+	public int getLength(int id)
+	{
+		return this.offsets[id + 1] - this.offsets[id];
+	}
+
+	/**
+	 * Puts the bytes of the keyword with the provided id into the buffer
+	 * <p>
+	 *
+	 * @param id     The id of the keyword
+	 * @param target Buffer with at least getLength(id) bytes remaining
+	 */
+	public void copyKeyword(int id, ByteBuffer target)
+	{
+		target.put(this.arena, this.offsets[id], this.offsets[id + 1] - this.offsets[id]);
+	}
+
+	private boolean matches(int id, ByteBuffer buffer, int start, int end)
+	{
+		int offset = this.offsets[id];
+		int length = end - start;
+		if (this.offsets[id + 1] - offset != length)
+		{
+			return false;
+		}
+		for (int index = 0; index < length; index++)
+		{
+			if (this.arena[offset + index] != buffer.get(start + index))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Makes room for the next keyword
+	 * <p>
+	 *
+	 * @param length The number of bytes of the keyword
+	 * @return The position in the arena where the keyword's bytes are copied
+	 */
+	private int reserve(int length)
+	{
+		int id = this.numberOfKeywords;
+		if (id == MAX_CAPACITY)
+		{
+			throw new IllegalStateException("The keywords exceed the table's capacity");
+		}
+		if (id == this.hashes.length)
+		{
+			this.hashes = Arrays.copyOf(this.hashes, 2 * id);
+			this.offsets = Arrays.copyOf(this.offsets, 2 * id + 1);
+		}
+		int offset = this.offsets[id];
+		if ((long) offset + length > this.arena.length)
+		{
+			long arenaSize = Math.max(2L * this.arena.length, (long) offset + length);
+			if (arenaSize > Integer.MAX_VALUE - 8)
+			{
+				throw new IllegalStateException("The keywords exceed the table's capacity");
+			}
+			this.arena = Arrays.copyOf(this.arena, (int) arenaSize);
+		}
+		return offset;
+	}
+
+	/**
+	 * Assigns the next id to the keyword whose bytes were copied after the last
+	 * keyword, and places it in the table
+	 * <p>
+	 *
+	 * @param length The number of bytes of the keyword
+	 * @param hash   The hash of the keyword
+	 * @return The id assigned to the keyword
+	 */
+	private int append(int length, int hash)
+	{
+		int id = this.numberOfKeywords;
+		this.offsets[id + 1] = this.offsets[id] + length;
+		this.hashes[id] = hash;
+		this.numberOfKeywords++;
+
+		// Keep the table at most half full
+		if (2 * this.numberOfKeywords > this.slots.length)
+		{
+			resize(2 * this.slots.length);
+		}
+		else
+		{
+			place(id);
+		}
+		return id;
+	}
+
+	private void place(int id)
+	{
+		int mask = this.slots.length - 1;
+		int slot = this.hashes[id] & mask;
+		while (this.slots[slot] != NONE)
+		{
+			slot = (slot + 1) & mask;
+		}
+		this.slots[slot] = id;
+	}
+
+	private void resize(int numberOfSlots)
+	{
+		this.slots = new int[numberOfSlots];
+		Arrays.fill(this.slots, NONE);
+		for (int id = 0; id < this.numberOfKeywords; id++)
+		{
+			place(id);
+		}
+	}
+
+	/**
+	 * Computes the hash of the bytes between start and end, as used by the table
+	 * <p>
+	 *
+	 * @param buffer Buffer containing the bytes
+	 * @param start  Position of the first byte
+	 * @param end    Position after the last byte
+	 * @return The hash of the bytes
+	 */
+	public static int hash(ByteBuffer buffer, int start, int end)
+	{
+		// FNV-1a, with the high bits folded into the low bits used by the mask
+		int hash = 0x811C9DC5;
+		for (int index = start; index < end; index++)
+		{
+			hash ^= buffer.get(index) & 0xFF;
+			hash *= 0x01000193;
+		}
+		return hash ^ (hash >>> 16);
+	}
+}
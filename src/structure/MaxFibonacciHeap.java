@@ -1,7 +1,9 @@
 package structure;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Queue;
 
 // @formatter:off
@@ -26,10 +28,19 @@ import java.util.Queue;
 //@formatter:on
 public class MaxFibonacciHeap<T>
 {
+	// Larger than the degree of any node, which is at most log_phi(n) < 45
+	private final static int DEGREE_TABLE_SIZE = 64;
+
 	FibonacciHeapNode<T> maxNode;
 
 	int numberOfNodes;
 
+	// Number of nodes in the top-level list
+	int numberOfRoots;
+
+	// Reusable table used by the pairwise combine to merge heaps of like-degrees
+	private FibonacciHeapNode<T>[] degreeTable;
+
 	/**
 	 * Constructs an empty heap
 	 */
@@ -37,6 +48,8 @@ public class MaxFibonacciHeap<T>
 	{
 		this.maxNode = null;
 		this.numberOfNodes = 0;
+		this.numberOfRoots = 0;
+		this.degreeTable = createDegreeTable();
 	}
 
 	/**
@@ -49,6 +62,8 @@ public class MaxFibonacciHeap<T>
 	{
 		this.maxNode = node;
 		this.numberOfNodes = 1;
+		this.numberOfRoots = 1;
+		this.degreeTable = createDegreeTable();
 	}
 
 	/**
@@ -112,6 +127,7 @@ public class MaxFibonacciHeap<T>
 			this.maxNode = node;
 		}
 		this.numberOfNodes++;
+		this.numberOfRoots++;
 	}
 
 	/**
@@ -125,6 +141,62 @@ public class MaxFibonacciHeap<T>
 		insert(node, node.key);
 	}
 
+	/**
+	 * Inserts the nodes into the heap with their current keys
+	 * <p>
+	 * The nodes are linked to each other in a single pass, and the list is then
+	 * joined to the top level list next to the max node. The runtime complexity
+	 * of this operation is O(m), where m is the number of nodes.
+	 * <p>
+	 * 
+	 * @param nodes Nodes to insert, none of which are in a heap
+	 */
+	public void insertAll(List<FibonacciHeapNode<T>> nodes)
+	{
+		if (nodes.isEmpty())
+		{
+			return;
+		}
+		FibonacciHeapNode<T> first = nodes.get(0);
+		FibonacciHeapNode<T> largest = first;
+		FibonacciHeapNode<T> previous = null;
+		for (FibonacciHeapNode<T> node : nodes)
+		{
+			node.parent = null;
+			node.child = null;
+			node.degree = 0;
+			node.childCut = false;
+			node.left = previous;
+			if (previous != null)
+			{
+				previous.right = node;
+			}
+			if (node.key > largest.key)
+			{
+				largest = node;
+			}
+			previous = node;
+		}
+
+		// Close the list, then splice it into the top level list
+		first.left = previous;
+		previous.right = first;
+		if (this.maxNode != null)
+		{
+			FibonacciHeapNode<T> maxRight = this.maxNode.right;
+			this.maxNode.right = first;
+			first.left = this.maxNode;
+			previous.right = maxRight;
+			maxRight.left = previous;
+		}
+		if (this.maxNode == null || largest.key > this.maxNode.key)
+		{
+			this.maxNode = largest;
+		}
+		this.numberOfNodes += nodes.size();
+		this.numberOfRoots += nodes.size();
+	}
+
 	/**
 	 * Returns the node with the largest key value.
 	 * <p>
@@ -140,6 +212,88 @@ public class MaxFibonacciHeap<T>
 		return this.maxNode;
 	}
 
+	/**
+	 * Returns the nodes with the largest key values without modifying the heap.
+	 * <p>
+	 * The largest roots are selected first, since a node can only be among the
+	 * largest if its root is. A frontier of candidates is then expanded from these
+	 * roots: the largest candidate is taken and its children become candidates.
+	 * The nodes are returned in descending order of their keys.
+	 * <p>
+	 * The runtime complexity of this operation is O(r * log(m) + m * d * log(m)),
+	 * where r is the size of the top-level list, m is the number of requested
+	 * nodes, and d is the largest degree. Calling consolidate beforehand keeps r
+	 * small.
+	 * <p>
+	 * 
+	 * @param count The number of nodes to return
+	 * @return The nodes with the largest keys, in descending order
+	 */
+	public List<FibonacciHeapNode<T>> peekTop(int count)
+	{
+		int toPeek = Math.min(count, this.numberOfNodes);
+		if (toPeek <= 0)
+		{
+			return new ArrayList<FibonacciHeapNode<T>>(0);
+		}
+		List<FibonacciHeapNode<T>> topNodes = new ArrayList<FibonacciHeapNode<T>>(toPeek);
+
+		// Keep the largest roots, with the smallest of them at the head of the queue
+		PriorityQueue<FibonacciHeapNode<T>> topRoots = new PriorityQueue<FibonacciHeapNode<T>>(toPeek,
+				new KeyComparator<T>());
+		FibonacciHeapNode<T> currentNode = this.maxNode;
+		do
+		{
+			if (topRoots.size() < toPeek)
+			{
+				topRoots.add(currentNode);
+			}
+			else if (currentNode.key > topRoots.peek().key)
+			{
+				topRoots.poll();
+				topRoots.add(currentNode);
+			}
+			currentNode = currentNode.right;
+		} while (currentNode != this.maxNode);
+
+		// Take the largest candidate and add its children to the candidates
+		PriorityQueue<FibonacciHeapNode<T>> candidates = new PriorityQueue<FibonacciHeapNode<T>>(toPeek,
+				new KeyComparator<T>().reversed());
+		candidates.addAll(topRoots);
+		while (topNodes.size() < toPeek)
+		{
+			FibonacciHeapNode<T> candidate = candidates.poll();
+			topNodes.add(candidate);
+			if (candidate.child != null)
+			{
+				FibonacciHeapNode<T> childNode = candidate.child;
+				do
+				{
+					candidates.add(childNode);
+					childNode = childNode.right;
+				} while (childNode != candidate.child);
+			}
+		}
+		return topNodes;
+	}
+
+	/**
+	 * Performs a pairwise combine on the top-level list.
+	 * <p>
+	 * The nodes and keys within the heap are unchanged. Only the tree structure is
+	 * updated so that no two roots share the same degree.
+	 * <p>
+	 * The actual complexity of this operation is O(n) and the amortized cost is
+	 * O(log(n)).
+	 */
+	public void consolidate()
+	{
+		if (this.maxNode != null)
+		{
+			pairwiseCombine();
+		}
+	}
+
 	/**
 	 * Returns, removes, and updates the largest key value.
 	 * <p>
@@ -175,17 +329,20 @@ public class MaxFibonacciHeap<T>
 					currentNode = currentNode.right;
 				} while (currentNode != this.maxNode.child);
 				this.maxNode.meld(this.maxNode.child);
+				this.numberOfRoots += this.maxNode.degree;
 			}
 
 			// Perform a pairwise combine
 			FibonacciHeapNode<T> rightSibling = this.maxNode.right;
 			this.maxNode.removeFromList();
+			this.numberOfRoots--;
 			this.maxNode = rightSibling;
 			pairwiseCombine();
 		}
 		else
 		{
 			this.maxNode = null;
+			this.numberOfRoots = 0;
 		}
 		maxNode.child = null;
 		return maxNode;
@@ -225,6 +382,7 @@ public class MaxFibonacciHeap<T>
 					currentNode = currentNode.right;
 				} while (currentNode != node.child);
 				this.maxNode.meld(node.child);
+				this.numberOfRoots += node.degree;
 			}
 
 			// Update parent node and perform a cascading cut
@@ -246,6 +404,7 @@ public class MaxFibonacciHeap<T>
 			else
 			{
 				node.removeFromList();
+				this.numberOfRoots--;
 			}
 		}
 		node.child = null;
@@ -266,10 +425,18 @@ public class MaxFibonacciHeap<T>
 	public void increaseKey(FibonacciHeapNode<T> node, double increment)
 	{
 		node.key += increment;
+		if (HeapMetrics.ENABLED)
+		{
+			HeapMetrics.INCREASES.increment();
+		}
 		if (node.parent != null)
 		{
 			if (node.key > node.parent.key)
 			{
+				if (HeapMetrics.ENABLED)
+				{
+					HeapMetrics.INCREASE_CUTS.increment();
+				}
 				// Add children to the top-level list
 				FibonacciHeapNode<T> parentNode = node.parent;
 				node.parent = null;
@@ -284,6 +451,7 @@ public class MaxFibonacciHeap<T>
 				}
 				node.removeFromList();
 				this.maxNode.addAsRightSibling(node);
+				this.numberOfRoots++;
 				cascadingCut(parentNode);
 			}
 		}
@@ -295,29 +463,43 @@ public class MaxFibonacciHeap<T>
 	}
 
 	/**
-	 * Melds the provided heap with this heap.
+	 * Melds the provided heap into this heap.
+	 * <p>
+	 * The two heaps will be combined at the root level list. The root list of the
+	 * parameter heap is inserted to the right of this heap's max node, and the max
+	 * node is updated. The nodes then belong to this heap, and the parameter heap
+	 * is left empty, so it can be reused without sharing any nodes. Either heap may
+	 * be empty.
 	 * <p>
-	 * The two heaps will be combined at the root level list. The max node of the
-	 * parameter heap is inserted to the left of this heap. The max pointers of both
-	 * heaps are updated.
+	 * The runtime complexity of this operation is O(1).
 	 * <p>
 	 * 
-	 * @param heap Heap to meld this heap with
+	 * @param heap Heap to meld into this heap
 	 */
 	public void meld(MaxFibonacciHeap<T> heap)
 	{
-		FibonacciHeapNode<T> otherMaxNode = heap.getMax();
-		this.maxNode.meld(otherMaxNode);
-		if (otherMaxNode.key > this.maxNode.key)
+		if (heap == this || heap.isEmpty())
+		{
+			return;
+		}
+		FibonacciHeapNode<T> otherMaxNode = heap.maxNode;
+		if (this.maxNode == null)
 		{
 			this.maxNode = otherMaxNode;
 		}
 		else
 		{
-			heap.maxNode = this.maxNode;
+			this.maxNode.meld(otherMaxNode);
+			if (otherMaxNode.key > this.maxNode.key)
+			{
+				this.maxNode = otherMaxNode;
+			}
 		}
 		this.numberOfNodes += heap.numberOfNodes;
-		heap.numberOfNodes = this.numberOfNodes;
+		this.numberOfRoots += heap.numberOfRoots;
+		heap.maxNode = null;
+		heap.numberOfNodes = 0;
+		heap.numberOfRoots = 0;
 	}
 
 	/**
@@ -438,14 +620,17 @@ public class MaxFibonacciHeap<T>
 
 	private void pairwiseCombine()
 	{
-		// Construct a table to merge heaps of like-degrees
-		int tableSize = ((int) Math.floor(Math.log(this.numberOfNodes) * 3)) + 1;
-		List<FibonacciHeapNode<T>> table = new ArrayList<FibonacciHeapNode<T>>();
-		for (int tableIndex = 0; tableIndex < tableSize; tableIndex++)
+		// Merge heaps of like-degrees using the reusable table, which is empty between
+		// calls
+		FibonacciHeapNode<T>[] table = this.degreeTable;
+		ConsolidationEvent event = ConsolidationEvent.start();
+		int topListSize = this.numberOfRoots;
+		int largestDegree = 0;
+		int rootsBefore = topListSize;
+		if (HeapMetrics.ENABLED)
 		{
-			table.add(null);
+			HeapMetrics.ROOT_LIST_LENGTH.record(topListSize);
 		}
-		int topListSize = this.maxNode.getNumberOfSiblings() + 1;
 
 		// Begin pairwise combining all top-level heaps
 		FibonacciHeapNode<T> currentNode = this.maxNode;
@@ -457,11 +642,12 @@ public class MaxFibonacciHeap<T>
 				this.maxNode = currentNode;
 			}
 
-			FibonacciHeapNode<T> tableNode = table.get(degree);
+			FibonacciHeapNode<T> tableNode = table[degree];
 			if (tableNode == null)
 			{
 				// If current degree in table is empty, place root of heap into table
-				table.set(degree, currentNode);
+				table[degree] = currentNode;
+				largestDegree = Math.max(largestDegree, degree);
 				currentNode = currentNode.right;
 				topListSize--;
 			}
@@ -469,7 +655,8 @@ public class MaxFibonacciHeap<T>
 			{
 				// If there is an existing degree, add the smaller one as a child of the node
 				// with the larger key.
-				table.set(degree, null);
+				table[degree] = null;
+				this.numberOfRoots--;
 				if (tableNode.key > currentNode.key)
 				{
 					currentNode.removeFromList();
@@ -488,11 +675,26 @@ public class MaxFibonacciHeap<T>
 				currentNode = currentNode.right;
 			}
 		} while (topListSize > 0);
+
+		// Clear the table for the next call
+		for (int degree = 0; degree <= largestDegree; degree++)
+		{
+			table[degree] = null;
+		}
+		if (HeapMetrics.ENABLED)
+		{
+			HeapMetrics.recordDegree(largestDegree);
+		}
+		if (event != null)
+		{
+			event.finish(rootsBefore, this.numberOfRoots, largestDegree, this.numberOfNodes);
+		}
 	}
 
 	private void cascadingCut(FibonacciHeapNode<T> node)
 	{
 		// Continue up the heap for each node with its childCut value set to true.
+		int cuts = 0;
 		while (node.childCut && node.parent != null)
 		{
 			FibonacciHeapNode<T> parentNode = node.parent;
@@ -512,8 +714,34 @@ public class MaxFibonacciHeap<T>
 
 			// Meld the cut node with the top level-list
 			this.maxNode.meld(node);
+			this.numberOfRoots++;
+			cuts++;
 			node = parentNode;
 		}
 		node.childCut = true;
+		if (HeapMetrics.ENABLED)
+		{
+			HeapMetrics.CASCADE_LENGTH.record(cuts);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> FibonacciHeapNode<T>[] createDegreeTable()
+	{
+		return (FibonacciHeapNode<T>[]) new FibonacciHeapNode<?>[DEGREE_TABLE_SIZE];
+	}
+
+	/**
+	 * Orders Fibonacci heap nodes by ascending key values.
+	 *
+	 * @param <T> The data type contained within a node
+	 */
+	private static class KeyComparator<T> implements Comparator<FibonacciHeapNode<T>>
+	{
+		@Override
+		public int compare(FibonacciHeapNode<T> a, FibonacciHeapNode<T> b)
+		{
+			return Double.compare(a.key, b.key);
+		}
 	}
 }
@@ -0,0 +1,333 @@
+package structure;
+import java.util.Arrays;
+
+/**
+ * A frequency index backed by a max pairing heap stored in primitive arrays.
+ * <p>
+ * Each id has a first child, a next sibling, and a previous link, which is
+ * either the previous sibling or, for a first child, the parent. Linking two
+ * trees makes the root with the smaller count the first child of the other.
+ * <p>
+ * Adding a new id links it with the root. Increasing the count of an id cuts
+ * its subtree and links it with the root. Both take O(1) time. Decreasing the
+ * count of an id, or removing it, combines its children with two-pass pairing
+ * and links them with the root in place of the id. The top ids are
+ * read by repeatedly taking the largest candidate. Before the children of a
+ * candidate are considered, they are combined into a single tree using the
+ * two-pass pairing of a remove max, so that the counts are unchanged and the
+ * heap is restructured as if those ids had been removed and reinserted.
+ */
+public class PairingHeapFrequencyIndex implements FrequencyIndex
+{
+	private final static int NONE = -1;
+
+	private final static int DEFAULT_CAPACITY = 16;
+
+	// Count of each id
+	private long[] counts;
+
+	// First child, next sibling, and previous sibling or parent of each id
+	private int[] child;
+	private int[] next;
+	private int[] previous;
+
+	// Whether each id is in the heap
+	private boolean[] isPresent;
+
+	private int root;
+
+	private int size;
+
+	/**
+	 * Constructs an empty index
+	 */
+	public PairingHeapFrequencyIndex()
+	{
+		this.counts = new long[DEFAULT_CAPACITY];
+		this.child = new int[DEFAULT_CAPACITY];
+		this.next = new int[DEFAULT_CAPACITY];
+		this.previous = new int[DEFAULT_CAPACITY];
+		this.isPresent = new boolean[DEFAULT_CAPACITY];
+		this.root = NONE;
+		this.size = 0;
+	}
+
+	@Override
+	public void add(int id, long increment)
+	{
+		if (id < 0)
+		{
+			throw new IllegalArgumentException("The id cannot be negative: " + id);
+		}
+		if (contains(id))
+		{
+			this.counts[id] += increment;
+			if (id != this.root)
+			{
+				cut(id);
+				this.root = link(this.root, id);
+			}
+		}
+		else
+		{
+			ensureCapacity(id + 1);
+			this.counts[id] = increment;
+			this.child[id] = NONE;
+			this.next[id] = NONE;
+			this.previous[id] = NONE;
+			this.isPresent[id] = true;
+			this.root = this.root == NONE ? id : link(this.root, id);
+			this.size++;
+		}
+	}
+
+	@Override
+	public void decrease(int id, long decrement)
+	{
+		detach(id);
+		this.counts[id] -= decrement;
+		this.root = this.root == NONE ? id : link(this.root, id);
+	}
+
+	@Override
+	public void remove(int id)
+	{
+		detach(id);
+		this.isPresent[id] = false;
+		this.size--;
+	}
+
+	/**
+	 * Makes the id with the largest count the root, and every other id a child of
+	 * the root, which is the shape left by adding the ids in order. The children
+	 * are paired by the first read of the top ids.
+	 */
+	@Override
+	public void load(long[] counts, int size)
+	{
+		if (this.size != 0)
+		{
+			throw new IllegalStateException("The index must be empty to load counts");
+		}
+		if (size <= 0)
+		{
+			return;
+		}
+		ensureCapacity(size);
+		System.arraycopy(counts, 0, this.counts, 0, size);
+		Arrays.fill(this.child, 0, size, NONE);
+		Arrays.fill(this.isPresent, 0, size, true);
+		this.root = 0;
+		for (int id = 1; id < size; id++)
+		{
+			if (counts[id] > counts[this.root])
+			{
+				this.root = id;
+			}
+		}
+
+		// Chain the other ids as the children of the root
+		int last = this.root;
+		this.next[this.root] = NONE;
+		this.previous[this.root] = NONE;
+		for (int id = 0; id < size; id++)
+		{
+			if (id == this.root)
+			{
+				continue;
+			}
+			if (last == this.root)
+			{
+				this.child[this.root] = id;
+			}
+			else
+			{
+				this.next[last] = id;
+			}
+			this.previous[id] = last;
+			this.next[id] = NONE;
+			last = id;
+		}
+		this.size = size;
+	}
+
+	@Override
+	public boolean contains(int id)
+	{
+		return id >= 0 && id < this.isPresent.length && this.isPresent[id];
+	}
+
+	@Override
+	public long getCount(int id)
+	{
+		return this.counts[id];
+	}
+
+	@Override
+	public int size()
+	{
+		return this.size;
+	}
+
+	@Override
+	public int[] getTop(int count)
+	{
+		int toGet = Math.max(Math.min(count, this.size), 0);
+		int[] topIds = new int[toGet];
+		if (toGet == 0)
+		{
+			return topIds;
+		}
+
+		// Each candidate has its children combined, so it adds at most one candidate
+		CandidateQueue candidates = new CandidateQueue(toGet);
+		candidates.push(this.root, this.counts[this.root]);
+		for (int index = 0; index < toGet; index++)
+		{
+			int id = candidates.pop();
+			topIds[index] = id;
+			combineChildren(id);
+			if (this.child[id] != NONE)
+			{
+				candidates.push(this.child[id], this.counts[this.child[id]]);
+			}
+		}
+		return topIds;
+	}
+
+	/**
+	 * Links two detached trees, making the root with the smaller count the first
+	 * child of the other.
+	 * <p>
+	 *
+	 * @return The root of the linked tree
+	 */
+	private int link(int first, int second)
+	{
+		if (this.counts[second] > this.counts[first])
+		{
+			int swap = first;
+			first = second;
+			second = swap;
+		}
+		int firstChild = this.child[first];
+		this.next[second] = firstChild;
+		if (firstChild != NONE)
+		{
+			this.previous[firstChild] = second;
+		}
+		this.previous[second] = first;
+		this.child[first] = second;
+		return first;
+	}
+
+	/**
+	 * Detaches the subtree of the id from its parent and siblings
+	 */
+	private void cut(int id)
+	{
+		int previousId = this.previous[id];
+		if (this.child[previousId] == id)
+		{
+			this.child[previousId] = this.next[id];
+		}
+		else
+		{
+			this.next[previousId] = this.next[id];
+		}
+		if (this.next[id] != NONE)
+		{
+			this.previous[this.next[id]] = previousId;
+		}
+		this.next[id] = NONE;
+		this.previous[id] = NONE;
+	}
+
+	/**
+	 * Takes the id out of the heap, replacing it with the combined tree of its
+	 * children, so that the id has no links
+	 */
+	private void detach(int id)
+	{
+		combineChildren(id);
+		int subtree = this.child[id];
+		this.child[id] = NONE;
+		if (subtree != NONE)
+		{
+			this.previous[subtree] = NONE;
+		}
+		if (id == this.root)
+		{
+			this.root = subtree;
+		}
+		else
+		{
+			cut(id);
+			if (subtree != NONE)
+			{
+				this.root = link(this.root, subtree);
+			}
+		}
+	}
+
+	/**
+	 * Combines the children of the id into a single tree with two-pass pairing.
+	 */
+	private void combineChildren(int id)
+	{
+		int first = this.child[id];
+		if (first == NONE || this.next[first] == NONE)
+		{
+			return;
+		}
+
+		// Link the children in pairs from left to right, stacking the results
+		int stack = NONE;
+		int current = first;
+		while (current != NONE)
+		{
+			int second = this.next[current];
+			int rest = second != NONE ? this.next[second] : NONE;
+			int paired = current;
+			if (second != NONE)
+			{
+				this.next[current] = NONE;
+				this.next[second] = NONE;
+				paired = link(current, second);
+			}
+			this.next[paired] = stack;
+			stack = paired;
+			current = rest;
+		}
+
+		// Link the pairs from right to left into a single tree
+		int combined = stack;
+		current = this.next[combined];
+		this.next[combined] = NONE;
+		while (current != NONE)
+		{
+			int rest = this.next[current];
+			this.next[current] = NONE;
+			combined = link(combined, current);
+			current = rest;
+		}
+		this.child[id] = combined;
+		this.previous[combined] = id;
+		this.next[combined] = NONE;
+	}
+
+	private void ensureCapacity(int capacity)
+	{
+		int oldCapacity = this.counts.length;
+		if (capacity <= oldCapacity)
+		{
+			return;
+		}
+		int newCapacity = Math.max(capacity, 2 * oldCapacity);
+		this.counts = Arrays.copyOf(this.counts, newCapacity);
+		this.child = Arrays.copyOf(this.child, newCapacity);
+		this.next = Arrays.copyOf(this.next, newCapacity);
+		this.previous = Arrays.copyOf(this.previous, newCapacity);
+		this.isPresent = Arrays.copyOf(this.isPresent, newCapacity);
+	}
+}
@@ -0,0 +1,81 @@
+package structure;
+
+/**
+ * A frequency index backed by a max Fibonacci heap stored in primitive arrays.
+ * <p>
+ * The ids of the index are the ids of the heap, so no node objects are
+ * created. Adding to an existing id is an increase key, with an amortized
+ * complexity of O(1). Decreasing the count of an id removes it and inserts it
+ * again, with an amortized complexity of O(log(n)).
+ */
+public class PrimitiveFibonacciFrequencyIndex implements FrequencyIndex
+{
+	// Max Fibonacci heap used to track the counts of ids
+	private PrimitiveMaxFibonacciHeap heap;
+
+	/**
+	 * Constructs an empty index
+	 */
+	public PrimitiveFibonacciFrequencyIndex()
+	{
+		this.heap = new PrimitiveMaxFibonacciHeap();
+	}
+
+	@Override
+	public void add(int id, long increment)
+	{
+		if (this.heap.contains(id))
+		{
+			this.heap.increaseKey(id, increment);
+		}
+		else
+		{
+			this.heap.insert(id, increment);
+		}
+	}
+
+	@Override
+	public void decrease(int id, long decrement)
+	{
+		long key = this.heap.getKey(id) - decrement;
+		this.heap.remove(id);
+		this.heap.insert(id, key);
+	}
+
+	@Override
+	public void remove(int id)
+	{
+		this.heap.remove(id);
+	}
+
+	@Override
+	public void load(long[] counts, int size)
+	{
+		this.heap.insertAll(counts, size);
+	}
+
+	@Override
+	public boolean contains(int id)
+	{
+		return this.heap.contains(id);
+	}
+
+	@Override
+	public long getCount(int id)
+	{
+		return this.heap.getKey(id);
+	}
+
+	@Override
+	public int size()
+	{
+		return this.heap.getNumberOfNodes();
+	}
+
+	@Override
+	public int[] getTop(int count)
+	{
+		this.heap.consolidate();
+		return this.heap.peekTop(count);
+	}
+}
@@ -0,0 +1,726 @@
+package structure;
+import java.util.Arrays;
+
+// @formatter:off
+/**
+ * A max Fibonacci heap whose nodes are stored in primitive arrays
+ * <p>
+ * This class implements the same algorithms as MaxFibonacciHeap: insert,
+ * remove max, meld, remove, and increase key. Instead of a node object per
+ * element, each element is addressed by an integer id. The parent, child,
+ * sibling, and degree of every id are kept in int arrays, and the keys are kept
+ * in a long array. The arrays grow as larger ids are inserted.
+ * <p>
+ * The actual and amortized complexities for each are:
+ * <p>
+ * Function Actual Amortized
+ * 1) Insert 		O(1) 	O(1)
+ * 2) RemoveMax 	O(n) 	O(log(n))
+ * 3) Meld 			O(m) 	O(m)
+ * 4) Remove 		O(n) 	O(log(n))
+ * 5) IncreaseKey 	O(n) 	O(1)
+ * <p>
+ * where m is the capacity of the melded heap.
+ */
+//@formatter:on
+public class PrimitiveMaxFibonacciHeap
+{
+	public final static int NONE = -1;
+
+	private final static int DEFAULT_CAPACITY = 16;
+
+	// Largest degree possible for a heap with at most Integer.MAX_VALUE nodes
+	private final static int MAX_DEGREE = 64;
+
+	int[] parent;
+	int[] child;
+	int[] left;
+	int[] right;
+	int[] degree;
+	boolean[] childCut;
+	long[] keys;
+
+	int maxNode;
+
+	int numberOfNodes;
+
+	// Table used to merge roots of like-degrees during a pairwise combine
+	private int[] degreeTable;
+
+	/**
+	 * Constructs an empty heap
+	 */
+	public PrimitiveMaxFibonacciHeap()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs an empty heap with room for the provided number of ids
+	 * <p>
+	 *
+	 * @param capacity The initial number of ids
+	 */
+	public PrimitiveMaxFibonacciHeap(int capacity)
+	{
+		capacity = Math.max(capacity, 1);
+		this.parent = new int[capacity];
+		this.child = new int[capacity];
+		this.left = new int[capacity];
+		this.right = new int[capacity];
+		this.degree = new int[capacity];
+		this.childCut = new boolean[capacity];
+		this.keys = new long[capacity];
+		Arrays.fill(this.left, NONE);
+		this.degreeTable = new int[MAX_DEGREE];
+		Arrays.fill(this.degreeTable, NONE);
+		this.maxNode = NONE;
+		this.numberOfNodes = 0;
+	}
+
+	/**
+	 * Checks if the heap is empty
+	 * <p>
+	 * The runtime complexity of this operation is O(1)
+	 * <p>
+	 *
+	 * @return True if the heap is empty
+	 */
+	public boolean isEmpty()
+	{
+		return this.numberOfNodes == 0;
+	}
+
+	/**
+	 * Gets the number of nodes in this heap.
+	 * <p>
+	 * The runtime complexity of this operation is O(1).
+	 * <p>
+	 *
+	 * @return The number of nodes in this heap.
+	 */
+	public int getNumberOfNodes()
+	{
+		return this.numberOfNodes;
+	}
+
+	/**
+	 * Checks if the id is in the heap
+	 * <p>
+	 * The runtime complexity of this operation is O(1).
+	 * <p>
+	 *
+	 * @param id The id to check
+	 * @return True if the id is in the heap
+	 */
+	public boolean contains(int id)
+	{
+		return id >= 0 && id < this.left.length && this.left[id] != NONE;
+	}
+
+	/**
+	 * Gets the key of the id
+	 * <p>
+	 *
+	 * @param id An id in the heap
+	 * @return The key of the id
+	 */
+	public long getKey(int id)
+	{
+		return this.keys[id];
+	}
+
+	/**
+	 * Gets the degree of the id
+	 * <p>
+	 * The degree indicates the number of children of the id
+	 * <p>
+	 *
+	 * @param id An id in the heap
+	 * @return The degree of the id
+	 */
+	public int getDegree(int id)
+	{
+		return this.degree[id];
+	}
+
+	/**
+	 * Inserts the id into the heap with the provided key
+	 * <p>
+	 * The id is inserted to the right of the max node. The max node is updated if
+	 * the key is greater than the current max key.
+	 * <p>
+	 * The runtime complexity of this operation is O(1), or O(n) if the arrays need
+	 * to grow.
+	 * <p>
+	 *
+	 * @param id  Non-negative id to insert. The id must not already be in the heap
+	 * @param key Key value of the id
+	 */
+	public void insert(int id, long key)
+	{
+		if (id < 0)
+		{
+			throw new IllegalArgumentException("The id cannot be negative: " + id);
+		}
+		ensureCapacity(id + 1);
+		if (this.left[id] != NONE)
+		{
+			throw new IllegalArgumentException("The id is already in the heap: " + id);
+		}
+		this.keys[id] = key;
+		this.parent[id] = NONE;
+		this.child[id] = NONE;
+		this.degree[id] = 0;
+		this.childCut[id] = false;
+		this.left[id] = id;
+		this.right[id] = id;
+		if (this.maxNode != NONE)
+		{
+			addAsRightSibling(this.maxNode, id);
+			if (key > this.keys[this.maxNode])
+			{
+				this.maxNode = id;
+			}
+		}
+		else
+		{
+			this.maxNode = id;
+		}
+		this.numberOfNodes++;
+	}
+
+	/**
+	 * Inserts the ids from 0 to count - 1 into an empty heap, with the keys at
+	 * their positions in the array
+	 * <p>
+	 * The ids are linked into the top-level list in a single pass over the
+	 * arrays, without the bookkeeping of an insert per id. The runtime complexity
+	 * of this operation is O(n), where n is the number of ids.
+	 * <p>
+	 *
+	 * @param keys  Key value of each id
+	 * @param count The number of ids to insert
+	 */
+	public void insertAll(long[] keys, int count)
+	{
+		if (this.numberOfNodes != 0)
+		{
+			throw new IllegalStateException("The heap must be empty to insert all ids");
+		}
+		if (count <= 0)
+		{
+			return;
+		}
+		ensureCapacity(count);
+		System.arraycopy(keys, 0, this.keys, 0, count);
+		Arrays.fill(this.parent, 0, count, NONE);
+		Arrays.fill(this.child, 0, count, NONE);
+		Arrays.fill(this.degree, 0, count, 0);
+		Arrays.fill(this.childCut, 0, count, false);
+		this.maxNode = 0;
+		for (int id = 0; id < count; id++)
+		{
+			this.left[id] = id - 1;
+			this.right[id] = id + 1;
+			if (keys[id] > keys[this.maxNode])
+			{
+				this.maxNode = id;
+			}
+		}
+		this.left[0] = count - 1;
+		this.right[count - 1] = 0;
+		this.numberOfNodes = count;
+	}
+
+	/**
+	 * Returns the id with the largest key value.
+	 * <p>
+	 * The runtime complexity of this operation is O(1).
+	 * <p>
+	 *
+	 * @return The id with the largest key value, or NONE if the heap is empty
+	 */
+	public int getMax()
+	{
+		return this.maxNode;
+	}
+
+	/**
+	 * Returns, removes, and updates the largest key value.
+	 * <p>
+	 * The children of the max are added to the top-level list, and a pairwise
+	 * combine is performed.
+	 * <p>
+	 * The actual complexity of this operation is O(n) and the amortized cost is
+	 * O(log(n)).
+	 * <p>
+	 *
+	 * @return The removed id, or NONE if the heap is empty
+	 */
+	public int removeMax()
+	{
+		int removed = this.maxNode;
+		if (removed == NONE)
+		{
+			return NONE;
+		}
+		this.numberOfNodes--;
+
+		// Add children to the top-level list
+		int firstChild = this.child[removed];
+		if (firstChild != NONE)
+		{
+			int currentNode = firstChild;
+			do
+			{
+				this.parent[currentNode] = NONE;
+				currentNode = this.right[currentNode];
+			} while (currentNode != firstChild);
+			meldLists(removed, firstChild);
+		}
+
+		// Remove the max and perform a pairwise combine
+		if (this.numberOfNodes > 0)
+		{
+			int rightSibling = this.right[removed];
+			removeFromList(removed);
+			this.maxNode = rightSibling;
+			pairwiseCombine();
+		}
+		else
+		{
+			this.maxNode = NONE;
+		}
+		clear(removed);
+		return removed;
+	}
+
+	/**
+	 * Removes the id from the heap
+	 * <p>
+	 * The id is cut from its parent, followed by a cascading cut, and then removed
+	 * in the same way as the max.
+	 * <p>
+	 * The actual runtime complexity is O(n), and the amortized complexity is
+	 * O(log(n)).
+	 * <p>
+	 *
+	 * @param id The id to remove. The id must be in the heap
+	 */
+	public void remove(int id)
+	{
+		int parentNode = this.parent[id];
+		if (parentNode != NONE)
+		{
+			cut(id);
+			cascadingCut(parentNode);
+		}
+		this.maxNode = id;
+		removeMax();
+	}
+
+	/**
+	 * Increases the id's key value by the provided increment
+	 * <p>
+	 * If the key becomes greater than the parent key, then the id is cut and a
+	 * cascading cut is performed at the parent.
+	 * <p>
+	 * The actual runtime complexity is O(n), and the amortized complexity is O(1).
+	 * <p>
+	 *
+	 * @param id        The id whose key to increase
+	 * @param increment The non-negative value to increase the key by
+	 */
+	public void increaseKey(int id, long increment)
+	{
+		this.keys[id] += increment;
+		int parentNode = this.parent[id];
+		if (HeapMetrics.ENABLED)
+		{
+			HeapMetrics.INCREASES.increment();
+		}
+		if (parentNode != NONE && this.keys[id] > this.keys[parentNode])
+		{
+			if (HeapMetrics.ENABLED)
+			{
+				HeapMetrics.INCREASE_CUTS.increment();
+			}
+			cut(id);
+			cascadingCut(parentNode);
+		}
+		if (this.keys[id] > this.keys[this.maxNode])
+		{
+			this.maxNode = id;
+		}
+	}
+
+	/**
+	 * Melds the provided heap into this heap.
+	 * <p>
+	 * The ids of the provided heap are copied into the arrays of this heap, and the
+	 * two top-level lists are combined. The two heaps must not share any ids.
+	 * Afterwards, the provided heap is empty.
+	 * <p>
+	 * The runtime complexity of this operation is O(m), where m is the capacity of
+	 * the provided heap.
+	 * <p>
+	 *
+	 * @param heap Heap to meld into this heap
+	 */
+	public void meld(PrimitiveMaxFibonacciHeap heap)
+	{
+		if (heap == this || heap.isEmpty())
+		{
+			return;
+		}
+		int capacity = heap.left.length;
+		ensureCapacity(capacity);
+		for (int id = 0; id < capacity; id++)
+		{
+			if (heap.left[id] != NONE && this.left[id] != NONE)
+			{
+				throw new IllegalArgumentException("The id is in both heaps: " + id);
+			}
+		}
+		for (int id = 0; id < capacity; id++)
+		{
+			if (heap.left[id] != NONE)
+			{
+				this.parent[id] = heap.parent[id];
+				this.child[id] = heap.child[id];
+				this.left[id] = heap.left[id];
+				this.right[id] = heap.right[id];
+				this.degree[id] = heap.degree[id];
+				this.childCut[id] = heap.childCut[id];
+				this.keys[id] = heap.keys[id];
+				heap.left[id] = NONE;
+			}
+		}
+		if (this.maxNode == NONE)
+		{
+			this.maxNode = heap.maxNode;
+		}
+		else
+		{
+			meldLists(this.maxNode, heap.maxNode);
+			if (this.keys[heap.maxNode] > this.keys[this.maxNode])
+			{
+				this.maxNode = heap.maxNode;
+			}
+		}
+		this.numberOfNodes += heap.numberOfNodes;
+		heap.maxNode = NONE;
+		heap.numberOfNodes = 0;
+	}
+
+	/**
+	 * Returns the ids with the largest key values without modifying the heap.
+	 * <p>
+	 * The largest roots are selected first, and a frontier of candidates is
+	 * expanded from them, in the same way as MaxFibonacciHeap.peekTop.
+	 * <p>
+	 *
+	 * @param count The number of ids to return
+	 * @return The ids with the largest keys, in descending order
+	 */
+	public int[] peekTop(int count)
+	{
+		int toPeek = Math.max(Math.min(count, this.numberOfNodes), 0);
+		int[] topNodes = new int[toPeek];
+		if (toPeek == 0)
+		{
+			return topNodes;
+		}
+
+		// Keep the largest roots in a min heap of ids
+		int[] topRoots = new int[toPeek];
+		int numberOfRoots = 0;
+		int currentNode = this.maxNode;
+		do
+		{
+			if (numberOfRoots < toPeek)
+			{
+				topRoots[numberOfRoots] = currentNode;
+				siftUp(topRoots, numberOfRoots, false);
+				numberOfRoots++;
+			}
+			else if (this.keys[currentNode] > this.keys[topRoots[0]])
+			{
+				topRoots[0] = currentNode;
+				siftDown(topRoots, numberOfRoots, false);
+			}
+			currentNode = this.right[currentNode];
+		} while (currentNode != this.maxNode);
+
+		// Take the largest candidate from a max heap and add its children
+		int[] candidates = new int[Math.max(numberOfRoots, 16)];
+		int numberOfCandidates = 0;
+		for (int index = 0; index < numberOfRoots; index++)
+		{
+			candidates[numberOfCandidates] = topRoots[index];
+			siftUp(candidates, numberOfCandidates, true);
+			numberOfCandidates++;
+		}
+		for (int index = 0; index < toPeek; index++)
+		{
+			int candidate = candidates[0];
+			topNodes[index] = candidate;
+			numberOfCandidates--;
+			candidates[0] = candidates[numberOfCandidates];
+			siftDown(candidates, numberOfCandidates, true);
+
+			int firstChild = this.child[candidate];
+			if (firstChild != NONE)
+			{
+				if (numberOfCandidates + this.degree[candidate] > candidates.length)
+				{
+					candidates = Arrays.copyOf(candidates, 2 * (numberOfCandidates + this.degree[candidate]));
+				}
+				int childNode = firstChild;
+				do
+				{
+					candidates[numberOfCandidates] = childNode;
+					siftUp(candidates, numberOfCandidates, true);
+					numberOfCandidates++;
+					childNode = this.right[childNode];
+				} while (childNode != firstChild);
+			}
+		}
+		return topNodes;
+	}
+
+	/**
+	 * Performs a pairwise combine on the top-level list.
+	 * <p>
+	 * The actual complexity of this operation is O(n) and the amortized cost is
+	 * O(log(n)).
+	 */
+	public void consolidate()
+	{
+		if (this.maxNode != NONE)
+		{
+			pairwiseCombine();
+		}
+	}
+
+	private void pairwiseCombine()
+	{
+		// Count the roots, since roots are removed from the list as they are combined
+		ConsolidationEvent event = ConsolidationEvent.start();
+		int topListSize = 0;
+		int currentNode = this.maxNode;
+		do
+		{
+			topListSize++;
+			currentNode = this.right[currentNode];
+		} while (currentNode != this.maxNode);
+		if (HeapMetrics.ENABLED)
+		{
+			HeapMetrics.ROOT_LIST_LENGTH.record(topListSize);
+		}
+
+		// Combine roots of like-degrees, adding the smaller as a child of the larger
+		int largestDegree = 0;
+		currentNode = this.maxNode;
+		for (int index = 0; index < topListSize; index++)
+		{
+			int nextNode = this.right[currentNode];
+			int rootNode = currentNode;
+			int rootDegree = this.degree[rootNode];
+			while (this.degreeTable[rootDegree] != NONE)
+			{
+				int tableNode = this.degreeTable[rootDegree];
+				this.degreeTable[rootDegree] = NONE;
+				if (this.keys[tableNode] > this.keys[rootNode])
+				{
+					int swap = tableNode;
+					tableNode = rootNode;
+					rootNode = swap;
+				}
+				removeFromList(tableNode);
+				addAsChild(rootNode, tableNode);
+				rootDegree++;
+			}
+			this.degreeTable[rootDegree] = rootNode;
+			largestDegree = Math.max(largestDegree, rootDegree);
+			currentNode = nextNode;
+		}
+
+		// Find the new max and clear the table
+		this.maxNode = NONE;
+		int roots = 0;
+		for (int index = 0; index <= largestDegree; index++)
+		{
+			int tableNode = this.degreeTable[index];
+			if (tableNode != NONE)
+			{
+				roots++;
+				if (this.maxNode == NONE || this.keys[tableNode] > this.keys[this.maxNode])
+				{
+					this.maxNode = tableNode;
+				}
+				this.degreeTable[index] = NONE;
+			}
+		}
+		if (HeapMetrics.ENABLED)
+		{
+			HeapMetrics.recordDegree(largestDegree);
+		}
+		if (event != null)
+		{
+			event.finish(topListSize, roots, largestDegree, this.numberOfNodes);
+		}
+	}
+
+	private void cut(int id)
+	{
+		int parentNode = this.parent[id];
+		this.degree[parentNode]--;
+		if (this.child[parentNode] == id)
+		{
+			this.child[parentNode] = this.right[id] != id ? this.right[id] : NONE;
+		}
+		removeFromList(id);
+		this.childCut[id] = false;
+		addAsRightSibling(this.maxNode, id);
+	}
+
+	private void cascadingCut(int id)
+	{
+		// Continue up the heap for each node with its childCut value set to true.
+		int cuts = 0;
+		while (this.parent[id] != NONE)
+		{
+			if (!this.childCut[id])
+			{
+				this.childCut[id] = true;
+				break;
+			}
+			int parentNode = this.parent[id];
+			cut(id);
+			cuts++;
+			id = parentNode;
+		}
+		if (HeapMetrics.ENABLED)
+		{
+			HeapMetrics.CASCADE_LENGTH.record(cuts);
+		}
+	}
+
+	private void removeFromList(int id)
+	{
+		this.right[this.left[id]] = this.right[id];
+		this.left[this.right[id]] = this.left[id];
+		this.left[id] = id;
+		this.right[id] = id;
+		this.parent[id] = NONE;
+	}
+
+	private void addAsRightSibling(int id, int sibling)
+	{
+		this.left[sibling] = id;
+		this.right[sibling] = this.right[id];
+		this.left[this.right[id]] = sibling;
+		this.right[id] = sibling;
+	}
+
+	private void addAsChild(int id, int childNode)
+	{
+		if (this.child[id] != NONE)
+		{
+			addAsRightSibling(this.child[id], childNode);
+		}
+		this.parent[childNode] = id;
+		this.child[id] = childNode;
+		this.childCut[childNode] = false;
+		this.degree[id]++;
+	}
+
+	private void meldLists(int id, int otherId)
+	{
+		int otherLeft = this.left[otherId];
+		this.right[otherLeft] = this.right[id];
+		this.left[this.right[id]] = otherLeft;
+		this.right[id] = otherId;
+		this.left[otherId] = id;
+	}
+
+	private void clear(int id)
+	{
+		this.parent[id] = NONE;
+		this.child[id] = NONE;
+		this.left[id] = NONE;
+		this.right[id] = NONE;
+		this.degree[id] = 0;
+		this.childCut[id] = false;
+	}
+
+	private void ensureCapacity(int capacity)
+	{
+		int oldCapacity = this.left.length;
+		if (capacity <= oldCapacity)
+		{
+			return;
+		}
+		int newCapacity = (int) Math.min(Math.max((long) capacity, 2L * oldCapacity), Integer.MAX_VALUE - 8);
+		this.parent = Arrays.copyOf(this.parent, newCapacity);
+		this.child = Arrays.copyOf(this.child, newCapacity);
+		this.left = Arrays.copyOf(this.left, newCapacity);
+		this.right = Arrays.copyOf(this.right, newCapacity);
+		this.degree = Arrays.copyOf(this.degree, newCapacity);
+		this.childCut = Arrays.copyOf(this.childCut, newCapacity);
+		this.keys = Arrays.copyOf(this.keys, newCapacity);
+		Arrays.fill(this.left, oldCapacity, newCapacity, NONE);
+	}
+
+	private void siftUp(int[] ids, int index, boolean isMax)
+	{
+		int id = ids[index];
+		while (index > 0)
+		{
+			int parentIndex = (index - 1) >>> 1;
+			if (!isBefore(id, ids[parentIndex], isMax))
+			{
+				break;
+			}
+			ids[index] = ids[parentIndex];
+			index = parentIndex;
+		}
+		ids[index] = id;
+	}
+
+	private void siftDown(int[] ids, int size, boolean isMax)
+	{
+		if (size == 0)
+		{
+			return;
+		}
+		int index = 0;
+		int id = ids[0];
+		while (true)
+		{
+			int childIndex = 2 * index + 1;
+			if (childIndex >= size)
+			{
+				break;
+			}
+			if (childIndex + 1 < size && isBefore(ids[childIndex + 1], ids[childIndex], isMax))
+			{
+				childIndex++;
+			}
+			if (!isBefore(ids[childIndex], id, isMax))
+			{
+				break;
+			}
+			ids[index] = ids[childIndex];
+			index = childIndex;
+		}
+		ids[index] = id;
+	}
+
+	private boolean isBefore(int id, int otherId, boolean isMax)
+	{
+		return isMax ? this.keys[id] > this.keys[otherId] : this.keys[id] < this.keys[otherId];
+	}
+}
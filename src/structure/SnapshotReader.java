@@ -0,0 +1,143 @@
+package structure;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads primitive values and arrays written by a SnapshotWriter.
+ * <p>
+ * Arrays are copied out of a direct byte buffer in bulk through a view of the
+ * buffer, and large byte arrays are read from the file channel directly.
+ */
+public class SnapshotReader implements Closeable
+{
+	private final static int BUFFER_SIZE = 1 << 20;
+
+	private FileChannel channel;
+
+	// Bytes read from the channel, between the position and the limit
+	private ByteBuffer buffer;
+
+	/**
+	 * Opens the file for reading
+	 * <p>
+	 *
+	 * @param path The file to read
+	 * @throws IOException If the file cannot be opened
+	 */
+	public SnapshotReader(Path path) throws IOException
+	{
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		this.buffer.limit(0);
+	}
+
+	public int readInt() throws IOException
+	{
+		ensureAvailable(Integer.BYTES);
+		return this.buffer.getInt();
+	}
+
+	public long readLong() throws IOException
+	{
+		ensureAvailable(Long.BYTES);
+		return this.buffer.getLong();
+	}
+
+	/**
+	 * Reads values into a range of an int array
+	 * <p>
+	 *
+	 * @param values The array to read into
+	 * @param offset Position of the first value
+	 * @param length Number of values to read
+	 * @throws IOException If an error occurs with reading, or the file ends
+	 */
+	public void readInts(int[] values, int offset, int length) throws IOException
+	{
+		while (length > 0)
+		{
+			ensureAvailable(Integer.BYTES);
+			int count = Math.min(this.buffer.remaining() / Integer.BYTES, length);
+			this.buffer.asIntBuffer().get(values, offset, count);
+			this.buffer.position(this.buffer.position() + count * Integer.BYTES);
+			offset += count;
+			length -= count;
+		}
+	}
+
+	/**
+	 * Reads values into a range of a long array
+	 * <p>
+	 *
+	 * @param values The array to read into
+	 * @param offset Position of the first value
+	 * @param length Number of values to read
+	 * @throws IOException If an error occurs with reading, or the file ends
+	 */
+	public void readLongs(long[] values, int offset, int length) throws IOException
+	{
+		while (length > 0)
+		{
+			ensureAvailable(Long.BYTES);
+			int count = Math.min(this.buffer.remaining() / Long.BYTES, length);
+			this.buffer.asLongBuffer().get(values, offset, count);
+			this.buffer.position(this.buffer.position() + count * Long.BYTES);
+			offset += count;
+			length -= count;
+		}
+	}
+
+	/**
+	 * Reads bytes into a range of a byte array
+	 * <p>
+	 * The bytes which are not already buffered are read from the channel
+	 * directly.
+	 * <p>
+	 *
+	 * @param bytes  The array to read into
+	 * @param offset Position of the first byte
+	 * @param length Number of bytes to read
+	 * @throws IOException If an error occurs with reading, or the file ends
+	 */
+	public void readBytes(byte[] bytes, int offset, int length) throws IOException
+	{
+		int buffered = Math.min(this.buffer.remaining(), length);
+		this.buffer.get(bytes, offset, buffered);
+		ByteBuffer target = ByteBuffer.wrap(bytes, offset + buffered, length - buffered);
+		while (target.hasRemaining())
+		{
+			if (this.channel.read(target) < 0)
+			{
+				throw new EOFException("The snapshot ended unexpectedly");
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		this.channel.close();
+	}
+
+	private void ensureAvailable(int size) throws IOException
+	{
+		if (this.buffer.remaining() >= size)
+		{
+			return;
+		}
+		this.buffer.compact();
+		while (this.buffer.position() < size)
+		{
+			if (this.channel.read(this.buffer) < 0)
+			{
+				throw new EOFException("The snapshot ended unexpectedly");
+			}
+		}
+		this.buffer.flip();
+	}
+}
@@ -0,0 +1,143 @@
+package structure;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes primitive values and arrays to a file through a direct byte buffer.
+ * <p>
+ * Arrays are copied into the buffer in bulk through a view of the buffer, and
+ * large byte arrays are written to the file channel directly, so a snapshot of
+ * many keywords is written with few copies and few system calls. Values are
+ * written in big-endian order, and are read back by a SnapshotReader.
+ */
+public class SnapshotWriter implements Closeable
+{
+	private final static int BUFFER_SIZE = 1 << 20;
+
+	private FileChannel channel;
+
+	// Values waiting to be written to the channel
+	private ByteBuffer buffer;
+
+	/**
+	 * Creates or truncates the file and opens it for writing
+	 * <p>
+	 *
+	 * @param path The file to write
+	 * @throws IOException If the file cannot be opened
+	 */
+	public SnapshotWriter(Path path) throws IOException
+	{
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	}
+
+	public void writeInt(int value) throws IOException
+	{
+		ensureRemaining(Integer.BYTES);
+		this.buffer.putInt(value);
+	}
+
+	public void writeLong(long value) throws IOException
+	{
+		ensureRemaining(Long.BYTES);
+		this.buffer.putLong(value);
+	}
+
+	/**
+	 * Writes a range of an int array
+	 * <p>
+	 *
+	 * @param values The array to write from
+	 * @param offset Position of the first value
+	 * @param length Number of values to write
+	 * @throws IOException If an error occurs with writing
+	 */
+	public void writeInts(int[] values, int offset, int length) throws IOException
+	{
+		while (length > 0)
+		{
+			ensureRemaining(Integer.BYTES);
+			int count = Math.min(this.buffer.remaining() / Integer.BYTES, length);
+			this.buffer.asIntBuffer().put(values, offset, count);
+			this.buffer.position(this.buffer.position() + count * Integer.BYTES);
+			offset += count;
+			length -= count;
+		}
+	}
+
+	/**
+	 * Writes a range of a byte array
+	 * <p>
+	 * A range larger than the buffer is written to the channel directly.
+	 * <p>
+	 *
+	 * @param bytes  The array to write from
+	 * @param offset Position of the first byte
+	 * @param length Number of bytes to write
+	 * @throws IOException If an error occurs with writing
+	 */
+	public void writeBytes(byte[] bytes, int offset, int length) throws IOException
+	{
+		if (length > this.buffer.remaining())
+		{
+			flush();
+		}
+		if (length > this.buffer.remaining())
+		{
+			ByteBuffer source = ByteBuffer.wrap(bytes, offset, length);
+			while (source.hasRemaining())
+			{
+				this.channel.write(source);
+			}
+		}
+		else
+		{
+			this.buffer.put(bytes, offset, length);
+		}
+	}
+
+	/**
+	 * Writes the buffered values, forces them to the storage device, and closes
+	 * the file
+	 * <p>
+	 *
+	 * @throws IOException If an error occurs with writing
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			flush();
+			this.channel.force(false);
+		}
+		finally
+		{
+			this.channel.close();
+		}
+	}
+
+	private void ensureRemaining(int size) throws IOException
+	{
+		if (this.buffer.remaining() < size)
+		{
+			flush();
+		}
+	}
+
+	private void flush() throws IOException
+	{
+		this.buffer.flip();
+		while (this.buffer.hasRemaining())
+		{
+			this.channel.write(this.buffer);
+		}
+		this.buffer.clear();
+	}
+}
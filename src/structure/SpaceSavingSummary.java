@@ -0,0 +1,302 @@
+package structure;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * An approximate count of the most frequent keywords in a fixed number of
+ * counters, using the Space-Saving algorithm.
+ * <p>
+ * Each counter monitors one keyword. When a keyword which is not monitored is
+ * added and every counter is in use, the counter with the smallest count is
+ * given to the new keyword. The old count is kept as the error of the counter,
+ * and the increment is added to it. As a result, the count of a monitored
+ * keyword never underestimates its true count, and overestimates it by at most
+ * its error. Any keyword whose true count is greater than the total of all
+ * increments divided by the number of counters is always monitored.
+ * <p>
+ * The counters are kept in a BucketFrequencyIndex, which finds the smallest
+ * counter and the largest counters without sorting. The monitored keywords are
+ * found through an open addressing hash table of their bytes. The memory used
+ * is proportional to the number of counters and does not grow with the number
+ * of distinct keywords.
+ */
+public class SpaceSavingSummary
+{
+	public final static int NONE = -1;
+
+	// Slots of the hash table, containing a counter or NONE. The length is a power of 2
+	private int[] slots;
+
+	// Bytes, length, and hash of the keyword monitored by each counter
+	private byte[][] keywords;
+	private int[] lengths;
+	private int[] hashes;
+
+	// Overestimation of each counter, which is the count it had when it was taken
+	private long[] errors;
+
+	// Count of each counter
+	private BucketFrequencyIndex counts;
+
+	private int capacity;
+
+	// Sum of every increment added
+	private long total;
+
+	// Reusable buffer for encoding characters into bytes
+	private Utf8Encoder encoder;
+
+	/**
+	 * Constructs an empty summary with the provided number of counters
+	 * <p>
+	 *
+	 * @param capacity The number of counters, which is the most keywords monitored
+	 */
+	public SpaceSavingSummary(int capacity)
+	{
+		if (capacity <= 0)
+		{
+			throw new IllegalArgumentException("The number of counters must be greater than 0");
+		}
+		this.capacity = capacity;
+		this.slots = new int[Integer.highestOneBit(Math.max(capacity, 2) - 1) << 2];
+		Arrays.fill(this.slots, NONE);
+		this.keywords = new byte[capacity][];
+		this.lengths = new int[capacity];
+		this.hashes = new int[capacity];
+		this.errors = new long[capacity];
+		this.counts = new BucketFrequencyIndex();
+		this.total = 0;
+		this.encoder = new Utf8Encoder();
+	}
+
+	/**
+	 * Gets the number of counters
+	 * <p>
+	 *
+	 * @return The most keywords that can be monitored
+	 */
+	public int getCapacity()
+	{
+		return this.capacity;
+	}
+
+	/**
+	 * Gets the number of counters in use
+	 * <p>
+	 *
+	 * @return The number of monitored keywords
+	 */
+	public int size()
+	{
+		return this.counts.size();
+	}
+
+	/**
+	 * Gets the sum of every increment added to the summary
+	 * <p>
+	 *
+	 * @return The total count
+	 */
+	public long getTotal()
+	{
+		return this.total;
+	}
+
+	/**
+	 * Adds to the count of the keyword contained between start and end in the
+	 * buffer.
+	 * <p>
+	 * If the keyword is not monitored and every counter is in use, the counter
+	 * with the smallest count is given to the keyword. Adding a monitored keyword
+	 * does not allocate.
+	 * <p>
+	 *
+	 * @param buffer    Buffer containing the keyword
+	 * @param start     Position of the first byte of the keyword
+	 * @param end       Position after the last byte of the keyword
+	 * @param increment Non-negative value to increase the count by
+	 * @return The counter monitoring the keyword
+	 */
+	public int add(ByteBuffer buffer, int start, int end, long increment)
+	{
+		this.total += increment;
+		int hash = KeywordTable.hash(buffer, start, end);
+		int counter = find(buffer, start, end, hash);
+		if (counter == NONE)
+		{
+			if (this.counts.size() < this.capacity)
+			{
+				counter = this.counts.size();
+			}
+			else
+			{
+				// Take the smallest counter, keeping its count as the error
+				counter = this.counts.getMinimum();
+				removeSlot(counter);
+				this.errors[counter] = this.counts.getCount(counter);
+			}
+			setKeyword(counter, buffer, start, end, hash);
+		}
+		this.counts.add(counter, increment);
+		return counter;
+	}
+
+	/**
+	 * Adds to the count of the keyword contained between start and end in the
+	 * text.
+	 * <p>
+	 *
+	 * @param text      Text containing the keyword
+	 * @param start     Position of the first character of the keyword
+	 * @param end       Position after the last character of the keyword
+	 * @param increment Non-negative value to increase the count by
+	 * @return The counter monitoring the keyword
+	 */
+	public int add(CharSequence text, int start, int end, long increment)
+	{
+		int length = this.encoder.encode(text, start, end);
+		return add(this.encoder.getBuffer(), 0, length, increment);
+	}
+
+	/**
+	 * Gets the counters with the largest counts
+	 * <p>
+	 *
+	 * @param count The number of counters to get
+	 * @return At most count counters, in descending order of their counts
+	 */
+	public int[] getTop(int count)
+	{
+		return this.counts.getTop(count);
+	}
+
+	/**
+	 * Gets the count of the counter, which is an upper bound of the true count of
+	 * its keyword
+	 * <p>
+	 *
+	 * @param counter A counter in use
+	 * @return The count of the counter
+	 */
+	public long getCount(int counter)
+	{
+		return this.counts.getCount(counter);
+	}
+
+	/**
+	 * Gets the most that the count of the counter overestimates the true count of
+	 * its keyword
+	 * <p>
+	 *
+	 * @param counter A counter in use
+	 * @return The error of the counter
+	 */
+	public long getError(int counter)
+	{
+		return this.errors[counter];
+	}
+
+	/**
+	 * Decodes the keyword monitored by the counter
+	 * <p>
+	 *
+	 * @param counter A counter in use
+	 * @param charset The charset used to decode the keyword's bytes
+	 * @return The keyword
+	 */
+	public String getKeyword(int counter, Charset charset)
+	{
+		return new String(this.keywords[counter], 0, this.lengths[counter], charset);
+	}
+
+	private int find(ByteBuffer buffer, int start, int end, int hash)
+	{
+		int mask = this.slots.length - 1;
+		for (int slot = hash & mask;; slot = (slot + 1) & mask)
+		{
+			int counter = this.slots[slot];
+			if (counter == NONE)
+			{
+				return NONE;
+			}
+			if (this.hashes[counter] == hash && matches(counter, buffer, start, end))
+			{
+				return counter;
+			}
+		}
+	}
+
+	private boolean matches(int counter, ByteBuffer buffer, int start, int end)
+	{
+		int length = end - start;
+		if (this.lengths[counter] != length)
+		{
+			return false;
+		}
+		byte[] keyword = this.keywords[counter];
+		for (int index = 0; index < length; index++)
+		{
+			if (keyword[index] != buffer.get(start + index))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Copies the keyword into the counter and places the counter in the hash table
+	 */
+	private void setKeyword(int counter, ByteBuffer buffer, int start, int end, int hash)
+	{
+		int length = end - start;
+		if (this.keywords[counter] == null || this.keywords[counter].length < length)
+		{
+			this.keywords[counter] = new byte[Math.max(length, 16)];
+		}
+		byte[] keyword = this.keywords[counter];
+		for (int index = 0; index < length; index++)
+		{
+			keyword[index] = buffer.get(start + index);
+		}
+		this.lengths[counter] = length;
+		this.hashes[counter] = hash;
+
+		int mask = this.slots.length - 1;
+		int slot = hash & mask;
+		while (this.slots[slot] != NONE)
+		{
+			slot = (slot + 1) & mask;
+		}
+		this.slots[slot] = counter;
+	}
+
+	/**
+	 * Removes the counter from the hash table, shifting back the counters after it
+	 * so that no probe sequence is broken.
+	 */
+	private void removeSlot(int counter)
+	{
+		int mask = this.slots.length - 1;
+		int slot = this.hashes[counter] & mask;
+		while (this.slots[slot] != counter)
+		{
+			slot = (slot + 1) & mask;
+		}
+
+		// Move back each following counter whose home slot is not between the gap and it
+		int gap = slot;
+		for (slot = (gap + 1) & mask; this.slots[slot] != NONE; slot = (slot + 1) & mask)
+		{
+			int home = this.hashes[this.slots[slot]] & mask;
+			if (((slot - home) & mask) >= ((slot - gap) & mask))
+			{
+				this.slots[gap] = this.slots[slot];
+				gap = slot;
+			}
+		}
+		this.slots[gap] = NONE;
+	}
+}
@@ -0,0 +1,89 @@
+package structure;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes characters as UTF-8 into a reusable byte buffer.
+ * <p>
+ * The buffer is reused between calls, so encoding does not allocate once the
+ * buffer is large enough. The encoded bytes are only valid until the next call.
+ */
+class Utf8Encoder
+{
+	// Reusable buffer for encoding characters into bytes
+	private byte[] encoded;
+	private ByteBuffer encodedBuffer;
+
+	/**
+	 * Constructs an encoder with a small buffer
+	 */
+	Utf8Encoder()
+	{
+		this.encoded = new byte[64];
+		this.encodedBuffer = ByteBuffer.wrap(this.encoded);
+	}
+
+	/**
+	 * Gets the buffer holding the most recently encoded bytes
+	 * <p>
+	 *
+	 * @return The buffer wrapping the encoded bytes
+	 */
+	ByteBuffer getBuffer()
+	{
+		return this.encodedBuffer;
+	}
+
+	/**
+	 * Encodes the characters as UTF-8 into the reusable encoding buffer.
+	 * Unpaired surrogates are encoded as '?'.
+	 * <p>
+	 *
+	 * @param text  Text containing the characters
+	 * @param start Position of the first character
+	 * @param end   Position after the last character
+	 * @return The number of encoded bytes, starting at position 0 of the buffer
+	 */
+	int encode(CharSequence text, int start, int end)
+	{
+		if (4 * (end - start) > this.encoded.length)
+		{
+			this.encoded = new byte[4 * (end - start)];
+			this.encodedBuffer = ByteBuffer.wrap(this.encoded);
+		}
+		byte[] bytes = this.encoded;
+		int length = 0;
+		for (int index = start; index < end; index++)
+		{
+			char character = text.charAt(index);
+			if (character < 0x80)
+			{
+				bytes[length++] = (byte) character;
+			}
+			else if (character < 0x800)
+			{
+				bytes[length++] = (byte) (0xC0 | (character >> 6));
+				bytes[length++] = (byte) (0x80 | (character & 0x3F));
+			}
+			else if (Character.isHighSurrogate(character) && index + 1 < end
+					&& Character.isLowSurrogate(text.charAt(index + 1)))
+			{
+				int codePoint = Character.toCodePoint(character, text.charAt(++index));
+				bytes[length++] = (byte) (0xF0 | (codePoint >> 18));
+				bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+				bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+				bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+			}
+			else if (Character.isSurrogate(character))
+			{
+				bytes[length++] = '?';
+			}
+			else
+			{
+				bytes[length++] = (byte) (0xE0 | (character >> 12));
+				bytes[length++] = (byte) (0x80 | ((character >> 6) & 0x3F));
+				bytes[length++] = (byte) (0x80 | (character & 0x3F));
+			}
+		}
+		return length;
+	}
+}
@@ -0,0 +1,121 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import structure.FibonacciHeapNode;
+import structure.MaxFibonacciHeap;
+
+/**
+ * JMH benchmarks for the operations of the max Fibonacci heap.
+ * <p>
+ * Each benchmark operates on a heap of the given size. The heap is built once
+ * per trial, with keys drawn uniformly at random, and a removeMax is performed
+ * so that the heap contains trees rather than a single top-level list. Every
+ * benchmark leaves the number of nodes unchanged, so the heap stays at the same
+ * size for the whole trial:
+ * <p>
+ * - insert: inserts a new node and removes it again. The node has a key of 0,
+ * so it never becomes the max. Removing a childless root only unlinks it, so
+ * the cost is dominated by the insert.
+ * <p>
+ * - increaseKey: increases the key of a random node.
+ * <p>
+ * - removeMax: removes the max and reinserts it with the same key, so every
+ * call performs a pairwise combine.
+ * <p>
+ * - remove: removes a random node and reinserts it with the same key.
+ * <p>
+ * - meld: melds a heap of one node with a key of 0 and removes that node
+ * again.
+ * <p>
+ * The largest size needs several GB of heap space, for example -Xmx8g.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HeapBenchmark
+{
+	@Param(
+	{
+			"1000", "100000", "1000000", "50000000"
+	})
+	public int size;
+
+	private MaxFibonacciHeap<String> heap;
+
+	private FibonacciHeapNode<String>[] nodes;
+
+	private FibonacciHeapNode<String> extraNode;
+
+	private Random random;
+
+	@SuppressWarnings("unchecked")
+	@Setup
+	public void setup()
+	{
+		this.random = new Random(42);
+		this.heap = new MaxFibonacciHeap<String>();
+		this.nodes = new FibonacciHeapNode[this.size];
+		for (int index = 0; index < this.size; index++)
+		{
+			this.nodes[index] = new FibonacciHeapNode<String>();
+			this.heap.insert(this.nodes[index], this.random.nextInt(this.size));
+		}
+		this.heap.insert(this.heap.removeMax());
+		this.extraNode = new FibonacciHeapNode<String>();
+	}
+
+	@Benchmark
+	public void insert()
+	{
+		this.heap.insert(this.extraNode, 0);
+		this.heap.remove(this.extraNode);
+	}
+
+	@Benchmark
+	public void increaseKey()
+	{
+		this.heap.increaseKey(this.nodes[this.random.nextInt(this.size)], this.random.nextInt(10) + 1);
+	}
+
+	@Benchmark
+	public FibonacciHeapNode<String> removeMax()
+	{
+		FibonacciHeapNode<String> maxNode = this.heap.removeMax();
+		this.heap.insert(maxNode);
+		return maxNode;
+	}
+
+	@Benchmark
+	public void remove()
+	{
+		FibonacciHeapNode<String> node = this.nodes[this.random.nextInt(this.size)];
+		this.heap.remove(node);
+		this.heap.insert(node);
+	}
+
+	@Benchmark
+	public void meld()
+	{
+		MaxFibonacciHeap<String> other = new MaxFibonacciHeap<String>();
+		other.insert(this.extraNode, 0);
+		this.heap.meld(other);
+		this.heap.remove(this.extraNode);
+	}
+}
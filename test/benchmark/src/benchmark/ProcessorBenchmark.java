@@ -0,0 +1,103 @@
+package benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import counter.KeywordProcessor;
+import structure.FrequencyEngine;
+
+/**
+ * JMH benchmarks for processing a whole keywords file.
+ * <p>
+ * A keywords file is generated once per trial, with the keyword of each search
+ * drawn from the given workload. The score is the average time per line of the
+ * file, covering reading, parsing, updating the frequency index, and writing
+ * the queries. The output is written to output.txt in the working directory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProcessorBenchmark
+{
+	// Number of lines in the generated keywords file
+	public final static int LINES = 1000000;
+
+	@Param(
+	{
+			"UNIFORM", "GAUSSIAN", "ZIPF"
+	})
+	public Workload workload;
+
+	@Param(
+	{
+			"FIBONACCI", "PRIMITIVE", "DARY", "PAIRING", "BUCKET"
+	})
+	public FrequencyEngine engine;
+
+	@Param(
+	{
+			"100000"
+	})
+	public int uniqueKeywords;
+
+	// Percent chance of a query after each search, as in the FileGenerator
+	@Param(
+	{
+			"5"
+	})
+	public int queryChance;
+
+	private Path inputFile;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		this.inputFile = Files.createTempFile("keywords", ".txt");
+		WorkloadGenerator generator = new WorkloadGenerator(this.workload, this.uniqueKeywords, 42);
+		BufferedWriter writer = Files.newBufferedWriter(this.inputFile);
+		generator.write(writer, LINES, this.queryChance);
+		writer.close();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException
+	{
+		Files.deleteIfExists(this.inputFile);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public void updateKeywords() throws IOException
+	{
+		KeywordProcessor counter = new KeywordProcessor(this.engine);
+		counter.updateKeywords(this.inputFile.toString());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public void updateKeywordsMapped() throws IOException
+	{
+		KeywordProcessor counter = new KeywordProcessor(this.engine);
+		counter.updateKeywordsMapped(this.inputFile.toString());
+	}
+}
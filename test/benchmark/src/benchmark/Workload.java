@@ -0,0 +1,14 @@
+package benchmark;
+
+/**
+ * Distribution of the keywords searched in a generated keywords file.
+ * <p>
+ * UNIFORM searches every keyword with the same probability. GAUSSIAN centers
+ * the searches on the middle keyword, in the same way as the FileGenerator.
+ * ZIPF searches the keyword of rank k with a probability proportional to 1/k,
+ * so a few keywords make up most of the searches.
+ */
+public enum Workload
+{
+	UNIFORM, GAUSSIAN, ZIPF;
+}
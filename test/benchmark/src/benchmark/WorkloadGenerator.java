@@ -0,0 +1,110 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates keywords files for the benchmarks.
+ * <p>
+ * Keywords are named by their index, and every search has a frequency between
+ * 1 and 9. After each search, a query for up to 9 keywords is written with the
+ * given chance. The file ends with "stop".
+ */
+public class WorkloadGenerator
+{
+	private final static int MAX_FREQUENCY = 10;
+
+	private Workload workload;
+	private int uniqueKeywords;
+	private Random random;
+
+	// Cumulative probability of each keyword rank, used by the ZIPF workload
+	private double[] zipfCumulative;
+
+	/**
+	 * Constructs a generator for the provided workload
+	 * <p>
+	 *
+	 * @param workload       Distribution of the searched keywords
+	 * @param uniqueKeywords Number of distinct keywords
+	 * @param seed           Seed of the random number generator
+	 */
+	public WorkloadGenerator(Workload workload, int uniqueKeywords, long seed)
+	{
+		this.workload = workload;
+		this.uniqueKeywords = uniqueKeywords;
+		this.random = new Random(seed);
+		if (workload == Workload.ZIPF)
+		{
+			this.zipfCumulative = new double[uniqueKeywords];
+			double total = 0;
+			for (int rank = 0; rank < uniqueKeywords; rank++)
+			{
+				total += 1.0 / (rank + 1);
+				this.zipfCumulative[rank] = total;
+			}
+			for (int rank = 0; rank < uniqueKeywords; rank++)
+			{
+				this.zipfCumulative[rank] /= total;
+			}
+		}
+	}
+
+	/**
+	 * Writes the provided number of searches, with queries in between
+	 * <p>
+	 *
+	 * @param writer      Destination of the keywords file
+	 * @param searches    Number of searches to write
+	 * @param queryChance Percent chance of a query after each search
+	 * @throws IOException If an error occurs with writing
+	 */
+	public void write(Writer writer, int searches, int queryChance) throws IOException
+	{
+		StringBuilder line = new StringBuilder();
+		for (int search = 0; search < searches; search++)
+		{
+			line.setLength(0);
+			line.append("$keyword");
+			line.append(nextIndex());
+			line.append(' ');
+			line.append(this.random.nextInt(MAX_FREQUENCY - 1) + 1);
+			line.append('\n');
+			if (this.random.nextInt(100) < queryChance)
+			{
+				line.append(this.random.nextInt(MAX_FREQUENCY - 1) + 1);
+				line.append('\n');
+			}
+			writer.append(line);
+		}
+		writer.write("stop\n");
+	}
+
+	/**
+	 * Gets the index of the next searched keyword
+	 * <p>
+	 *
+	 * @return An index between 0 and the number of unique keywords
+	 */
+	public int nextIndex()
+	{
+		switch (this.workload)
+		{
+		case GAUSSIAN:
+			double gaussian = this.random.nextGaussian();
+			gaussian /= 3;
+			gaussian *= (this.uniqueKeywords / 2);
+			gaussian += (this.uniqueKeywords / 2);
+			gaussian = Math.max(gaussian, 0);
+			gaussian = Math.min(gaussian, this.uniqueKeywords - 1);
+			return (int) gaussian;
+		case ZIPF:
+			int rank = Arrays.binarySearch(this.zipfCumulative, this.random.nextDouble());
+			return Math.min(rank >= 0 ? rank : -rank - 1, this.uniqueKeywords - 1);
+		default:
+			return this.random.nextInt(this.uniqueKeywords);
+		}
+	}
+}
@@ -0,0 +1,50 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import counter.AsyncOutputWriter;
+
+/**
+ * Unit tests for the asynchronous output writer
+ *
+ * The tests were developed using junit.
+ */
+class AsyncOutputWriterTest
+{
+	/**
+	 * Tests that a continued file keeps its first lines, drops the lines after
+	 * them and an incomplete last line, and appends the new lines.
+	 */
+	@Test
+	void keptLinesTest() throws IOException
+	{
+		Path file = Files.createTempFile("output", ".txt");
+		String separator = System.lineSeparator();
+		Files.write(file, ("a" + separator + "b" + separator + "c" + separator + "d").getBytes(StandardCharsets.UTF_8));
+		AsyncOutputWriter writer = new AsyncOutputWriter(file.toString(), AsyncOutputWriter.FLUSH_WHEN_IDLE, 2);
+		writer.writeLine("e");
+		writer.flush();
+		Assert.assertEquals("Flushed lines are incorrect", Arrays.asList("a", "b", "e"),
+				Files.readAllLines(file, StandardCharsets.UTF_8));
+		writer.close();
+
+		writer = new AsyncOutputWriter(file.toString(), AsyncOutputWriter.FLUSH_WHEN_IDLE,
+				AsyncOutputWriter.ALL_LINES);
+		writer.writeLine("f");
+		writer.close();
+		Assert.assertEquals("Continued lines are incorrect", Arrays.asList("a", "b", "e", "f"),
+				Files.readAllLines(file, StandardCharsets.UTF_8));
+
+		Files.write(file, ("a" + separator + "b").getBytes(StandardCharsets.UTF_8));
+		writer = new AsyncOutputWriter(file.toString(), AsyncOutputWriter.FLUSH_WHEN_IDLE, 5);
+		writer.writeLine("c");
+		writer.close();
+		Assert.assertEquals("Incomplete line is kept", Arrays.asList("a", "c"),
+				Files.readAllLines(file, StandardCharsets.UTF_8));
+	}
+}
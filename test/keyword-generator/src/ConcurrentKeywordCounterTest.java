@@ -0,0 +1,167 @@
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import counter.ConcurrentKeywordCounter;
+import counter.KeywordCount;
+import structure.FrequencyEngine;
+
+/**
+ * Unit tests for the concurrent keyword counter
+ *
+ * The tests were developed using junit.
+ */
+class ConcurrentKeywordCounterTest
+{
+	/**
+	 * Tests that queries only see the counts of the last publish.
+	 */
+	@Test
+	void publishTest()
+	{
+		ConcurrentKeywordCounter counter = new ConcurrentKeywordCounter(FrequencyEngine.FIBONACCI, 2,
+				ConcurrentKeywordCounter.MANUAL_PUBLISH);
+		counter.add("a", 3);
+		counter.add("b", 1);
+		counter.add("c", 2);
+		Assert.assertTrue("Unpublished keywords are queried", counter.topN(2).isEmpty());
+		Assert.assertEquals("Current count != 3", 3, counter.getCount("a"));
+
+		counter.publish();
+		List<KeywordCount> top = counter.topN(2);
+		Assert.assertEquals("Size != 2", 2, top.size());
+		Assert.assertEquals("First keyword != a", "a", top.get(0).keyword);
+		Assert.assertEquals("Second keyword != c", "c", top.get(1).keyword);
+
+		counter.add("b", 5);
+		Assert.assertEquals("Unpublished count is queried", 3, counter.topN(1).get(0).count);
+		counter.close();
+		top = counter.topN(2);
+		Assert.assertEquals("First keyword != b", "b", top.get(0).keyword);
+		Assert.assertEquals("First count != 6", 6, top.get(0).count);
+		Assert.assertEquals("Size != 1", 1, counter.topN(1).size());
+	}
+
+	/**
+	 * Tests that the counts added by many threads are exact, while the publisher
+	 * thread publishes concurrently.
+	 */
+	@Test
+	void concurrentAddTest() throws InterruptedException
+	{
+		int numThreads = 8;
+		int numKeywords = 1000;
+		int rounds = 50;
+		ConcurrentKeywordCounter counter = new ConcurrentKeywordCounter(FrequencyEngine.PRIMITIVE, 10, 1);
+		Thread[] threads = new Thread[numThreads];
+		for (int index = 0; index < numThreads; ++index)
+		{
+			threads[index] = new Thread(new Adder(counter, numKeywords, rounds));
+			threads[index].start();
+		}
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+		counter.close();
+
+		List<KeywordCount> top = counter.topN(10);
+		Assert.assertEquals("Size != 10", 10, top.size());
+		for (int rank = 0; rank < 10; ++rank)
+		{
+			int keyword = numKeywords - 1 - rank;
+			Assert.assertEquals("Keyword is incorrect", "keyword-" + keyword, top.get(rank).keyword);
+			Assert.assertEquals("Count is incorrect", (long) numThreads * rounds * keyword, top.get(rank).count);
+		}
+	}
+
+	/**
+	 * Tests that every add which is accepted while the counter is being closed is
+	 * included in the last publish.
+	 */
+	@Test
+	void closeTest() throws InterruptedException
+	{
+		for (int attempt = 0; attempt < 20; ++attempt)
+		{
+			ConcurrentKeywordCounter counter = new ConcurrentKeywordCounter(FrequencyEngine.FIBONACCI, 1, 1);
+			AtomicLong accepted = new AtomicLong();
+			Thread[] threads = new Thread[4];
+			for (int index = 0; index < threads.length; ++index)
+			{
+				threads[index] = new Thread(new ClosingAdder(counter, accepted));
+				threads[index].start();
+			}
+			Thread.sleep(5);
+			counter.close();
+			for (Thread thread : threads)
+			{
+				thread.join();
+			}
+			Assert.assertEquals("Accepted adds are lost", accepted.get(), counter.topN(1).get(0).count);
+		}
+	}
+
+	/**
+	 * Adds each keyword its index number of times, in each round.
+	 */
+	private static class Adder implements Runnable
+	{
+		private ConcurrentKeywordCounter counter;
+		private int numKeywords;
+		private int rounds;
+
+		Adder(ConcurrentKeywordCounter counter, int numKeywords, int rounds)
+		{
+			this.counter = counter;
+			this.numKeywords = numKeywords;
+			this.rounds = rounds;
+		}
+
+		@Override
+		public void run()
+		{
+			for (int round = 0; round < this.rounds; ++round)
+			{
+				for (int keyword = 0; keyword < this.numKeywords; ++keyword)
+				{
+					this.counter.add("keyword-" + keyword, keyword);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds a keyword until the counter is closed, counting the accepted adds.
+	 */
+	private static class ClosingAdder implements Runnable
+	{
+		private ConcurrentKeywordCounter counter;
+		private AtomicLong accepted;
+
+		ClosingAdder(ConcurrentKeywordCounter counter, AtomicLong accepted)
+		{
+			this.counter = counter;
+			this.accepted = accepted;
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				while (true)
+				{
+					this.counter.add("keyword", 1);
+					this.accepted.incrementAndGet();
+				}
+			}
+			catch (IllegalStateException e)
+			{
+				// The counter is closed
+			}
+		}
+	}
+}
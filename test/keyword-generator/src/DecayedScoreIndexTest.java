@@ -0,0 +1,65 @@
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import structure.DecayedScoreIndex;
+
+/**
+ * Unit tests for the decayed score index
+ *
+ * The tests were developed using junit.
+ */
+class DecayedScoreIndexTest
+{
+	/**
+	 * Tests that scores halve every half-life, and that recent weights outrank
+	 * larger older weights.
+	 */
+	@Test
+	void decayTest()
+	{
+		DecayedScoreIndex index = new DecayedScoreIndex(10);
+		Assert.assertEquals("Top of empty index is not empty", 0, index.getTop(3).length);
+
+		index.add(0, 8, 0);
+		index.add(1, 3, 0);
+		Assert.assertEquals("Score of id 0 != 8", 8, index.getScore(0, 0), 1e-9);
+		Assert.assertEquals("Score of id 0 != 4", 4, index.getScore(0, 10), 1e-9);
+		Assert.assertArrayEquals("Top ids are incorrect", new int[] { 0, 1 }, index.getTop(2));
+
+		index.add(2, 3, 20);
+		index.add(1, 1, 20);
+		Assert.assertEquals("Size != 3", 3, index.size());
+		Assert.assertEquals("Id 3 is in the index", false, index.contains(3));
+		Assert.assertEquals("Score of id 0 != 2", 2, index.getScore(0, 20), 1e-9);
+		Assert.assertEquals("Score of id 1 != 1.75", 1.75, index.getScore(1, 20), 1e-9);
+		Assert.assertArrayEquals("Top ids are incorrect", new int[] { 2, 0, 1 }, index.getTop(3));
+		Assert.assertArrayEquals("Top id is incorrect", new int[] { 2 }, index.getTop(1));
+	}
+
+	/**
+	 * Tests that the scores and order are kept when the keys are renormalized.
+	 */
+	@Test
+	void renormalizeTest()
+	{
+		DecayedScoreIndex index = new DecayedScoreIndex(1);
+		index.add(0, 1, 0);
+		index.add(1, 2, 0);
+		index.add(2, 1, 299);
+		index.add(0, 1, 300);
+
+		// The factor passed the limit, so the keys were rescaled at time 299
+		Assert.assertEquals("Score of id 2 != 0.5", 0.5, index.getScore(2, 300), 1e-9);
+		Assert.assertEquals("Score of id 0 != 1", 1, index.getScore(0, 300), 1e-9);
+		Assert.assertEquals("Score of id 1 != 2^-299", Math.scalb(2.0, -300), index.getScore(1, 300), 1e-300);
+		Assert.assertArrayEquals("Top ids are incorrect", new int[] { 0, 2, 1 }, index.getTop(3));
+
+		// Many half-lives later, the keys stay finite
+		for (int time = 400; time <= 100000; time += 100)
+		{
+			index.add(time % 3, 1, time);
+		}
+		Assert.assertEquals("Score of id 1 is not 1", 1, index.getScore(1, 100000), 1e-9);
+		Assert.assertEquals("Top id != 1", 1, index.getTop(1)[0]);
+	}
+}
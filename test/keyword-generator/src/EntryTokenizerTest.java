@@ -0,0 +1,126 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import counter.Entry;
+import counter.EntryTokenizer;
+
+/**
+ * Unit tests for the entry tokenizer, which parse each line both as a string
+ * and as bytes
+ *
+ * The tests were developed using junit.
+ */
+class EntryTokenizerTest
+{
+	/**
+	 * Tests that the keyword of a search is every character between the $ sign and
+	 * the last space, which must not be empty.
+	 */
+	@Test
+	void searchTest()
+	{
+		assertTokenized("$facebook 12", Entry.SEARCH, "facebook", 12);
+		assertTokenized("$new york 3", Entry.SEARCH, "new york", 3);
+		assertTokenized("$  5", Entry.SEARCH, " ", 5);
+		assertTokenized("$a 0", Entry.SEARCH, "a", 0);
+		assertTokenized("$ 5", null, null, 0);
+		assertTokenized("$a ", null, null, 0);
+		assertTokenized("$a", null, null, 0);
+		assertTokenized("$a 5x", null, null, 0);
+		assertTokenized("$a -5", null, null, 0);
+	}
+
+	/**
+	 * Tests that a query is only digits, and that a value which overflows an int
+	 * does not match.
+	 */
+	@Test
+	void queryTest()
+	{
+		assertTokenized("7", Entry.QUERY, null, 7);
+		assertTokenized("2147483647", Entry.QUERY, null, Integer.MAX_VALUE);
+		assertTokenized("2147483648", null, null, 0);
+		assertTokenized("$a 2147483647", Entry.SEARCH, "a", Integer.MAX_VALUE);
+		assertTokenized("$a 2147483648", null, null, 0);
+		assertTokenized("7 ", null, null, 0);
+		assertTokenized("", null, null, 0);
+	}
+
+	/**
+	 * Tests that stop and epoch match in any case, and only as the whole line.
+	 */
+	@Test
+	void markerTest()
+	{
+		assertTokenized("stop", Entry.STOP, null, 0);
+		assertTokenized("STOP", Entry.STOP, null, 0);
+		assertTokenized("sToP", Entry.STOP, null, 0);
+		assertTokenized("epoch", Entry.EPOCH, null, 0);
+		assertTokenized("Epoch", Entry.EPOCH, null, 0);
+		assertTokenized("stops", null, null, 0);
+		assertTokenized(" stop", null, null, 0);
+		assertTokenized("epoc", null, null, 0);
+	}
+
+	/**
+	 * Tests that a carriage return is not part of any entry, since the readers
+	 * remove it before a line is tokenized.
+	 */
+	@Test
+	void carriageReturnTest()
+	{
+		assertTokenized("$a 5\r", null, null, 0);
+		assertTokenized("5\r", null, null, 0);
+		assertTokenized("stop\r", null, null, 0);
+		assertTokenized("epoch\r", null, null, 0);
+		assertTokenized("$a\r 5", Entry.SEARCH, "a\r", 5);
+	}
+
+	/**
+	 * Tokenizes the line as a string, and as bytes which are preceded by other
+	 * bytes in the buffer, and checks that both give the expected entry
+	 * <p>
+	 *
+	 * @param line    The line to tokenize
+	 * @param entry   The expected entry, or null if the line does not match
+	 * @param keyword The expected keyword of a search
+	 * @param value   The expected value of a search or query
+	 */
+	private static void assertTokenized(String line, Entry entry, String keyword, int value)
+	{
+		EntryTokenizer tokenizer = new EntryTokenizer();
+		Assert.assertEquals("Entry of \"" + line + "\" is incorrect", entry, tokenizer.tokenize(line));
+		Assert.assertEquals("Entry is not kept", entry, tokenizer.getEntry());
+		if (entry == Entry.SEARCH)
+		{
+			Assert.assertEquals("Keyword of \"" + line + "\" is incorrect", keyword,
+					line.substring(tokenizer.getKeywordStart(), tokenizer.getKeywordEnd()));
+		}
+		if (entry == Entry.SEARCH || entry == Entry.QUERY)
+		{
+			Assert.assertEquals("Value of \"" + line + "\" is incorrect", value, tokenizer.getValue());
+		}
+
+		byte[] prefix = "9 $x 1\n".getBytes(StandardCharsets.UTF_8);
+		byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocate(prefix.length + bytes.length + 2);
+		buffer.put(prefix).put(bytes).put((byte) '\n').put((byte) '7');
+		int start = prefix.length;
+		Assert.assertEquals("Byte entry of \"" + line + "\" is incorrect", entry,
+				tokenizer.tokenize(buffer, start, start + bytes.length));
+		if (entry == Entry.SEARCH)
+		{
+			byte[] keywordBytes = new byte[tokenizer.getKeywordEnd() - tokenizer.getKeywordStart()];
+			buffer.get(tokenizer.getKeywordStart(), keywordBytes);
+			Assert.assertEquals("Byte keyword of \"" + line + "\" is incorrect", keyword,
+					new String(keywordBytes, StandardCharsets.UTF_8));
+		}
+		if (entry == Entry.SEARCH || entry == Entry.QUERY)
+		{
+			Assert.assertEquals("Byte value of \"" + line + "\" is incorrect", value, tokenizer.getValue());
+		}
+	}
+}
@@ -275,6 +275,52 @@ class FibonacciHeapTest
 		Assert.assertEquals("Heap is not empty", true, heap.isEmpty());
 	}
 
+	/**
+	 * Tests reading the largest nodes without modifying the heap.
+	 * 
+	 * Items are inserted in a random order and a removeMax is performed so that the
+	 * heap contains trees. The nodes returned by peekTop are compared with a
+	 * sorted list, and the heap is then verified to be unchanged.
+	 */
+	@Test
+	void peekTopTest()
+	{
+		MaxFibonacciHeap<String> heap = new MaxFibonacciHeap<String>();
+		Random random = new Random();
+		int numNodes = 10000;
+		int numToPeek = 500;
+
+		// Generate random numbers
+		ArrayList<Integer> randomNumbers = new ArrayList<Integer>(numNodes);
+		for (int index = 0; index < numNodes; ++index)
+		{
+			FibonacciHeapNode<String> node = new FibonacciHeapNode<String>();
+			int randomNumber = random.nextInt(numNodes);
+			heap.insert(node, randomNumber);
+			randomNumbers.add(randomNumber);
+		}
+		Collections.sort(randomNumbers, Collections.reverseOrder());
+		Assert.assertEquals("Key ain't good", randomNumbers.remove(0), heap.removeMax().getKey(), EPSILON);
+
+		// Verify the peeked keys
+		List<FibonacciHeapNode<String>> topNodes = heap.peekTop(numToPeek);
+		Assert.assertEquals("Number of peeked nodes != 500", numToPeek, topNodes.size());
+		for (int index = 0; index < numToPeek; ++index)
+		{
+			Assert.assertEquals("Key ain't good", randomNumbers.get(index), topNodes.get(index).getKey(), EPSILON);
+		}
+		Assert.assertEquals("Number of peeked nodes != 9999", numNodes - 1, heap.peekTop(numNodes).size());
+		Assert.assertEquals("Number of nodes != 9999", numNodes - 1, heap.getNumberOfNodes());
+
+		// Verify the heap is unchanged
+		for (Integer expectedKey : randomNumbers)
+		{
+			Assert.assertEquals("Key ain't good", expectedKey, heap.removeMax().getKey(), EPSILON);
+		}
+		Assert.assertEquals("Heap is not empty", true, heap.isEmpty());
+		Assert.assertEquals("Peeked nodes from an empty heap", 0, heap.peekTop(numToPeek).size());
+	}
+
 	/**
 	 * Tests melding two Fibonacci heaps
 	 */
@@ -301,9 +347,46 @@ class FibonacciHeapTest
 		heap1.meld(heap2);
 
 		Assert.assertEquals("Number of nodes != 6", 6, heap1.getNumberOfNodes());
-		Assert.assertEquals("Number of nodes != 6", 6, heap2.getNumberOfNodes());
+		Assert.assertEquals("Melded heap is not empty", true, heap2.isEmpty());
+		Assert.assertEquals("Melded heap has a max", null, heap2.getMax());
 		Assert.assertEquals("Max Key != 25", 25, heap1.getMax().getKey(), EPSILON);
+
+		// The melded heap can be reused without sharing nodes
+		FibonacciHeapNode<String> node7 = new FibonacciHeapNode<String>();
+		heap2.insert(node7, 30);
+		Assert.assertEquals("Number of nodes != 6", 6, heap1.getNumberOfNodes());
 		Assert.assertEquals("Max Key != 25", 25, heap1.getMax().getKey(), EPSILON);
+
+		double[] expected = { 25, 20, 15, 10, 8, 5 };
+		for (double key : expected)
+		{
+			Assert.assertEquals("Removed key is incorrect", key, heap1.removeMax().getKey(), EPSILON);
+		}
+		Assert.assertEquals("Heap is not empty", true, heap1.isEmpty());
+	}
+
+	/**
+	 * Tests melding empty heaps into and from a heap
+	 */
+	@Test
+	public void meldEmptyTest()
+	{
+		MaxFibonacciHeap<String> heap1 = new MaxFibonacciHeap<String>();
+		MaxFibonacciHeap<String> heap2 = new MaxFibonacciHeap<String>();
+		heap1.meld(heap2);
+		Assert.assertEquals("Heap is not empty", true, heap1.isEmpty());
+
+		FibonacciHeapNode<String> node1 = new FibonacciHeapNode<String>();
+		heap2.insert(node1, 5);
+		heap1.meld(heap2);
+		Assert.assertEquals("Number of nodes != 1", 1, heap1.getNumberOfNodes());
+		Assert.assertEquals("Max Key != 5", 5, heap1.getMax().getKey(), EPSILON);
+		Assert.assertEquals("Melded heap is not empty", true, heap2.isEmpty());
+
+		heap1.meld(heap2);
+		heap1.meld(heap1);
+		Assert.assertEquals("Number of nodes != 1", 1, heap1.getNumberOfNodes());
+		Assert.assertEquals("Removed node is incorrect", node1, heap1.removeMax());
 	}
 
 	/**
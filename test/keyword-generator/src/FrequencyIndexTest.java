@@ -0,0 +1,343 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import structure.FrequencyEngine;
+import structure.FrequencyIndex;
+
+/**
+ * Unit tests for each type of frequency index
+ *
+ * The tests were developed using junit.
+ */
+class FrequencyIndexTest
+{
+	/**
+	 * Tests adding to the index and reading the top ids.
+	 */
+	@Test
+	void addAndGetTopTest()
+	{
+		for (FrequencyEngine engine : FrequencyEngine.values())
+		{
+			FrequencyIndex index = engine.create();
+			Assert.assertEquals(engine + " is not empty", 0, index.size());
+			Assert.assertEquals(engine + " top of empty index is not empty", 0, index.getTop(3).length);
+
+			index.add(0, 20);
+			index.add(1, 25);
+			index.add(2, 30);
+			index.add(3, 15);
+			index.add(0, 15);
+			Assert.assertEquals(engine + " size != 4", 4, index.size());
+			Assert.assertEquals(engine + " id 4 is in the index", false, index.contains(4));
+			Assert.assertEquals(engine + " count of id 0 != 35", 35, index.getCount(0));
+
+			int[] top = index.getTop(3);
+			Assert.assertEquals(engine + " number of top ids != 3", 3, top.length);
+			Assert.assertEquals(engine + " first id != 0", 0, top[0]);
+			Assert.assertEquals(engine + " second id != 2", 2, top[1]);
+			Assert.assertEquals(engine + " third id != 1", 1, top[2]);
+			Assert.assertEquals(engine + " number of top ids != 4", 4, index.getTop(10).length);
+		}
+	}
+
+	/**
+	 * Tests a large number of random additions and queries.
+	 *
+	 * Every engine is compared against counts kept in an array. After each query,
+	 * the counts of the top ids are compared with the largest counts sorted using
+	 * the Collections library.
+	 */
+	@Test
+	void addAndGetTopABunchTest()
+	{
+		int numIds = 5000;
+		for (FrequencyEngine engine : FrequencyEngine.values())
+		{
+			FrequencyIndex index = engine.create();
+			long[] counts = new long[numIds];
+			Random random = new Random(7);
+			for (int operation = 0; operation < 100000; ++operation)
+			{
+				int id = random.nextInt(numIds);
+				long increment = 1 + random.nextInt(100);
+				index.add(id, increment);
+				counts[id] += increment;
+
+				if (operation % 5000 == 0)
+				{
+					List<Long> expected = new ArrayList<Long>();
+					for (long count : counts)
+					{
+						if (count > 0)
+						{
+							expected.add(count);
+						}
+					}
+					Collections.sort(expected, Collections.reverseOrder());
+					Assert.assertEquals(engine + " size is incorrect", expected.size(), index.size());
+
+					int[] top = index.getTop(50);
+					Assert.assertEquals(engine + " number of top ids is incorrect", Math.min(50, expected.size()),
+							top.length);
+					for (int rank = 0; rank < top.length; ++rank)
+					{
+						Assert.assertEquals(engine + " count of id is incorrect", counts[top[rank]],
+								index.getCount(top[rank]));
+						Assert.assertEquals(engine + " top count is incorrect", (long) expected.get(rank),
+								index.getCount(top[rank]));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests loading counts in bulk, then adding to the loaded ids.
+	 *
+	 * The counts repeat, so that ids share counts. After the load and after the
+	 * additions, the counts of the top ids are compared with the largest counts.
+	 */
+	@Test
+	void loadTest()
+	{
+		int numIds = 3000;
+		for (FrequencyEngine engine : FrequencyEngine.values())
+		{
+			Random random = new Random(11);
+			long[] counts = new long[numIds];
+			for (int id = 0; id < numIds; ++id)
+			{
+				counts[id] = 1 + random.nextInt(500);
+			}
+			FrequencyIndex index = engine.create();
+			index.load(counts, numIds);
+			Assert.assertEquals(engine + " size is incorrect", numIds, index.size());
+			Assert.assertEquals(engine + " id is not in the index", true, index.contains(numIds - 1));
+			Assert.assertEquals(engine + " id is in the index", false, index.contains(numIds));
+			assertTop(engine, index, counts);
+
+			for (int operation = 0; operation < 20000; ++operation)
+			{
+				int id = random.nextInt(numIds);
+				long increment = 1 + random.nextInt(100);
+				index.add(id, increment);
+				counts[id] += increment;
+			}
+			assertTop(engine, index, counts);
+
+			FrequencyIndex empty = engine.create();
+			empty.load(counts, 0);
+			Assert.assertEquals(engine + " empty load is not empty", 0, empty.getTop(3).length);
+		}
+	}
+
+	/**
+	 * Tests merging an index whose ids partly overlap the ids of this index once
+	 * renumbered.
+	 *
+	 * Both indexes are queried and increased before the merge, so that their heaps
+	 * have children and cut nodes. After the merge, every count is compared, and
+	 * the merged index accepts further additions.
+	 */
+	@Test
+	void mergeTest()
+	{
+		int numIds = 2000;
+		int offset = 1000;
+		for (FrequencyEngine engine : FrequencyEngine.values())
+		{
+			Random random = new Random(13);
+			long[] counts = new long[numIds + offset];
+			long[] otherCounts = new long[numIds];
+			FrequencyIndex index = engine.create();
+			FrequencyIndex other = engine.create();
+			for (int id = 0; id < numIds; ++id)
+			{
+				counts[id] = 1 + random.nextInt(500);
+				index.add(id, counts[id]);
+				otherCounts[id] = 1 + random.nextInt(500);
+				other.add(id, otherCounts[id]);
+			}
+			index.getTop(50);
+			other.getTop(50);
+			for (int operation = 0; operation < 5000; ++operation)
+			{
+				int id = random.nextInt(numIds);
+				long increment = 1 + random.nextInt(100);
+				other.add(id, increment);
+				otherCounts[id] += increment;
+			}
+
+			int[] ids = new int[numIds];
+			for (int id = 0; id < numIds; ++id)
+			{
+				ids[id] = id + offset;
+				counts[id + offset] += otherCounts[id];
+			}
+			index.merge(other, ids);
+			Assert.assertEquals(engine + " size is incorrect", numIds + offset, index.size());
+			for (int id = 0; id < counts.length; ++id)
+			{
+				Assert.assertEquals(engine + " merged count is incorrect", counts[id], index.getCount(id));
+			}
+			assertTop(engine, index, counts);
+
+			for (int operation = 0; operation < 5000; ++operation)
+			{
+				int id = random.nextInt(counts.length);
+				long increment = 1 + random.nextInt(100);
+				index.add(id, increment);
+				counts[id] += increment;
+			}
+			assertTop(engine, index, counts);
+		}
+	}
+
+	/**
+	 * Tests decreasing and removing random ids between additions and queries.
+	 *
+	 * Every engine is compared against counts kept in an array, where a removed
+	 * id has a count of -1.
+	 */
+	@Test
+	void decreaseAndRemoveTest()
+	{
+		int numIds = 3000;
+		for (FrequencyEngine engine : FrequencyEngine.values())
+		{
+			Random random = new Random(17);
+			long[] counts = new long[numIds];
+			FrequencyIndex index = engine.create();
+			for (int id = 0; id < numIds; ++id)
+			{
+				counts[id] = 1000 + random.nextInt(1000);
+				index.add(id, counts[id]);
+			}
+			int size = numIds;
+			for (int round = 0; round < 20; ++round)
+			{
+				for (int operation = 0; operation < 500; ++operation)
+				{
+					int id = random.nextInt(numIds);
+					int action = random.nextInt(3);
+					if (counts[id] < 0)
+					{
+						counts[id] = random.nextInt(500);
+						index.add(id, counts[id]);
+						size++;
+					}
+					else if (action == 0)
+					{
+						index.remove(id);
+						counts[id] = -1;
+						size--;
+					}
+					else if (action == 1)
+					{
+						long decrement = random.nextInt((int) counts[id] + 1);
+						index.decrease(id, decrement);
+						counts[id] -= decrement;
+					}
+					else
+					{
+						long increment = random.nextInt(500);
+						index.add(id, increment);
+						counts[id] += increment;
+					}
+				}
+				Assert.assertEquals(engine + " size is incorrect", size, index.size());
+				for (int id = 0; id < numIds; ++id)
+				{
+					Assert.assertEquals(engine + " presence of id is incorrect", counts[id] >= 0, index.contains(id));
+				}
+				assertTop(engine, index, counts);
+			}
+		}
+	}
+
+	/**
+	 * Tests a long tail of new ids with large and mostly distinct first counts,
+	 * which each need a new bucket far from the smallest count.
+	 *
+	 * Random ids are removed and added again, and the ids of a loaded index are
+	 * increased by large amounts, so that emptied buckets are reused. The order
+	 * of every id is compared against the counts sorted using the Collections
+	 * library.
+	 */
+	@Test
+	void longTailTest()
+	{
+		int numIds = 20000;
+		for (FrequencyEngine engine : FrequencyEngine.values())
+		{
+			Random random = new Random(29);
+			long[] counts = new long[numIds];
+			FrequencyIndex index = engine.create();
+			for (int id = 0; id < numIds; ++id)
+			{
+				counts[id] = 1 + random.nextInt(1000000000);
+				index.add(id, counts[id]);
+				if (id % 4 == 3)
+				{
+					int removed = random.nextInt(id);
+					index.remove(removed);
+					counts[removed] = 1 + random.nextInt(1000000000);
+					index.add(removed, counts[removed]);
+				}
+			}
+			assertOrder(engine, index, counts);
+
+			FrequencyIndex loaded = engine.create();
+			loaded.load(counts, numIds);
+			for (int operation = 0; operation < numIds; ++operation)
+			{
+				int id = random.nextInt(numIds);
+				long increment = random.nextInt(1000000000);
+				loaded.add(id, increment);
+				counts[id] += increment;
+			}
+			assertOrder(engine, loaded, counts);
+		}
+	}
+
+	private void assertOrder(FrequencyEngine engine, FrequencyIndex index, long[] counts)
+	{
+		List<Long> expected = new ArrayList<Long>();
+		for (long count : counts)
+		{
+			expected.add(count);
+		}
+		Collections.sort(expected, Collections.reverseOrder());
+		int[] top = index.getTop(counts.length);
+		Assert.assertEquals(engine + " number of ids is incorrect", counts.length, top.length);
+		for (int rank = 0; rank < top.length; ++rank)
+		{
+			Assert.assertEquals(engine + " count of id is incorrect", counts[top[rank]], index.getCount(top[rank]));
+			Assert.assertEquals(engine + " order of ids is incorrect", (long) expected.get(rank), counts[top[rank]]);
+		}
+	}
+
+	private void assertTop(FrequencyEngine engine, FrequencyIndex index, long[] counts)
+	{
+		List<Long> expected = new ArrayList<Long>();
+		for (long count : counts)
+		{
+			expected.add(count);
+		}
+		Collections.sort(expected, Collections.reverseOrder());
+		int[] top = index.getTop(100);
+		Assert.assertEquals(engine + " number of top ids is incorrect", 100, top.length);
+		for (int rank = 0; rank < top.length; ++rank)
+		{
+			Assert.assertEquals(engine + " count of id is incorrect", counts[top[rank]], index.getCount(top[rank]));
+			Assert.assertEquals(engine + " top count is incorrect", (long) expected.get(rank),
+					index.getCount(top[rank]));
+		}
+	}
+}
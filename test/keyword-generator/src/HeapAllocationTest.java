@@ -0,0 +1,136 @@
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import structure.FibonacciHeapNode;
+import structure.MaxFibonacciHeap;
+import structure.PrimitiveMaxFibonacciHeap;
+
+/**
+ * Allocation tests for the Fibonacci heaps
+ *
+ * Once the nodes exist, inserting, removing the max, and increasing a key
+ * should not allocate. The bytes allocated by the current thread are read from
+ * the platform ThreadMXBean before and after a steady-state workload.
+ *
+ * The tests were developed using junit.
+ */
+class HeapAllocationTest
+{
+	private static final int NUMBER_OF_NODES = 10000;
+
+	private static final int NUMBER_OF_OPERATIONS = 200000;
+
+	private static final int WARMUP_RUNS = 5;
+
+	/**
+	 * Tests that insert, removeMax, and increaseKey do not allocate.
+	 */
+	@Test
+	void fibonacciHeapAllocationTest()
+	{
+		com.sun.management.ThreadMXBean threads = getThreadBean();
+		MaxFibonacciHeap<String> heap = new MaxFibonacciHeap<String>();
+		@SuppressWarnings("unchecked")
+		FibonacciHeapNode<String>[] nodes = (FibonacciHeapNode<String>[]) new FibonacciHeapNode<?>[NUMBER_OF_NODES];
+		Random random = new Random(3);
+		for (int index = 0; index < NUMBER_OF_NODES; ++index)
+		{
+			nodes[index] = new FibonacciHeapNode<String>();
+			heap.insert(nodes[index], random.nextInt(1000));
+		}
+
+		// Warm up until the workload is compiled, then measure another run
+		for (int run = 0; run < WARMUP_RUNS; ++run)
+		{
+			runFibonacciHeapWorkload(heap, nodes, random);
+		}
+		long allocated = measureBaseline(threads);
+		long before = threads.getCurrentThreadAllocatedBytes();
+		runFibonacciHeapWorkload(heap, nodes, random);
+		allocated = threads.getCurrentThreadAllocatedBytes() - before - allocated;
+		Assert.assertEquals("Number of nodes changed", NUMBER_OF_NODES, heap.getNumberOfNodes());
+		Assert.assertEquals("Bytes allocated != 0", 0, allocated);
+	}
+
+	/**
+	 * Tests that insert, removeMax, and increaseKey of the primitive heap do not
+	 * allocate.
+	 */
+	@Test
+	void primitiveHeapAllocationTest()
+	{
+		com.sun.management.ThreadMXBean threads = getThreadBean();
+		PrimitiveMaxFibonacciHeap heap = new PrimitiveMaxFibonacciHeap(NUMBER_OF_NODES);
+		Random random = new Random(5);
+		for (int id = 0; id < NUMBER_OF_NODES; ++id)
+		{
+			heap.insert(id, random.nextInt(1000));
+		}
+
+		for (int run = 0; run < WARMUP_RUNS; ++run)
+		{
+			runPrimitiveHeapWorkload(heap, random);
+		}
+		long allocated = measureBaseline(threads);
+		long before = threads.getCurrentThreadAllocatedBytes();
+		runPrimitiveHeapWorkload(heap, random);
+		allocated = threads.getCurrentThreadAllocatedBytes() - before - allocated;
+		Assert.assertEquals("Number of nodes changed", NUMBER_OF_NODES, heap.getNumberOfNodes());
+		Assert.assertEquals("Bytes allocated != 0", 0, allocated);
+	}
+
+	private static void runFibonacciHeapWorkload(MaxFibonacciHeap<String> heap, FibonacciHeapNode<String>[] nodes,
+			Random random)
+	{
+		for (int operation = 0; operation < NUMBER_OF_OPERATIONS; ++operation)
+		{
+			if (operation % 4 == 0)
+			{
+				FibonacciHeapNode<String> maxNode = heap.removeMax();
+				heap.insert(maxNode, random.nextInt(1000));
+			}
+			else
+			{
+				heap.increaseKey(nodes[random.nextInt(NUMBER_OF_NODES)], random.nextInt(10));
+			}
+		}
+	}
+
+	private static void runPrimitiveHeapWorkload(PrimitiveMaxFibonacciHeap heap, Random random)
+	{
+		for (int operation = 0; operation < NUMBER_OF_OPERATIONS; ++operation)
+		{
+			if (operation % 4 == 0)
+			{
+				int maxId = heap.removeMax();
+				heap.insert(maxId, random.nextInt(1000));
+			}
+			else
+			{
+				heap.increaseKey(random.nextInt(NUMBER_OF_NODES), random.nextInt(10));
+			}
+		}
+	}
+
+	/**
+	 * Gets the bytes allocated by reading the allocated bytes twice, which is
+	 * subtracted from each measurement.
+	 */
+	private static long measureBaseline(com.sun.management.ThreadMXBean threads)
+	{
+		long before = threads.getCurrentThreadAllocatedBytes();
+		return threads.getCurrentThreadAllocatedBytes() - before;
+	}
+
+	private static com.sun.management.ThreadMXBean getThreadBean()
+	{
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		Assert.assertTrue("Allocated bytes are not supported", threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+		return threads;
+	}
+}
@@ -0,0 +1,50 @@
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import structure.Histogram;
+
+/**
+ * Unit tests for the power of 2 histogram
+ *
+ * The tests were developed using junit.
+ */
+class HistogramTest
+{
+	/**
+	 * Tests the count, sum, mean, and maximum of the recorded values.
+	 */
+	@Test
+	void summaryTest()
+	{
+		Histogram histogram = new Histogram();
+		Assert.assertEquals("Empty mean != 0", 0, histogram.getMean(), 0);
+		Assert.assertEquals("Empty percentile != 0", 0, histogram.getPercentile(0.5));
+
+		histogram.record(0);
+		histogram.record(3);
+		histogram.record(5);
+		histogram.record(1000);
+		Assert.assertEquals("Count != 4", 4, histogram.getCount());
+		Assert.assertEquals("Sum != 1008", 1008, histogram.getSum());
+		Assert.assertEquals("Mean != 252", 252, histogram.getMean(), 0);
+		Assert.assertEquals("Max != 1000", 1000, histogram.getMax());
+	}
+
+	/**
+	 * Tests that each percentile is the upper bound of its bucket, limited by the
+	 * largest value.
+	 */
+	@Test
+	void percentileTest()
+	{
+		Histogram histogram = new Histogram();
+		for (int value = 1; value <= 100; ++value)
+		{
+			histogram.record(value);
+		}
+		Assert.assertEquals("Minimum percentile != 1", 1, histogram.getPercentile(0.01));
+		Assert.assertEquals("Median is not in [32, 63]", 63, histogram.getPercentile(0.5));
+		Assert.assertEquals("99th percentile is not limited by the max", 100, histogram.getPercentile(0.99));
+		Assert.assertEquals("Max percentile != 100", 100, histogram.getPercentile(1));
+	}
+}
@@ -0,0 +1,319 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import counter.KeywordProcessor;
+
+/**
+ * Unit tests for the keyword processor, which read keywords files and the
+ * output file from a temporary directory
+ *
+ * The tests were developed using junit.
+ */
+class KeywordProcessorTest
+{
+	/**
+	 * Tests that a non-ASCII keyword is one keyword across ingested files, mapped
+	 * input, text input, and snapshots.
+	 */
+	@Test
+	void keywordCharsetTest() throws IOException
+	{
+		Path directory = Files.createTempDirectory("keywords");
+		String cafe = "caf\u00e9";
+		Path ingested = writeLines(directory.resolve("ingested.txt"), "$" + cafe + " 5");
+		Path mapped = writeLines(directory.resolve("mapped.txt"), "$" + cafe + " 2", "$tea 6", "2", "stop");
+		Path text = writeLines(directory.resolve("text.txt"), "$" + cafe + " 4", "$tea 3", "2", "stop");
+		Path output = directory.resolve("output.txt");
+		Path snapshot = directory.resolve("snapshot.bin");
+
+		// Ingested and mapped bytes, then a text input restored from their snapshot
+		KeywordProcessor processor = new KeywordProcessor();
+		processor.setOutputFile(output.toString());
+		processor.ingestFiles(Arrays.asList(ingested.toString()), 2);
+		processor.updateKeywordsMapped(mapped.toString());
+		Assert.assertEquals("Mapped output is incorrect", Arrays.asList(cafe + ",tea"), readLines(output));
+		processor.saveSnapshot(snapshot.toString());
+
+		KeywordProcessor restored = new KeywordProcessor();
+		restored.setOutputFile(output.toString());
+		restored.loadSnapshot(snapshot.toString());
+		restored.updateKeywords(text.toString());
+		Assert.assertEquals("Text output is incorrect", Arrays.asList(cafe + ",tea"), readLines(output));
+
+		// A text input, then a mapped input restored from its snapshot
+		processor = new KeywordProcessor();
+		processor.setOutputFile(output.toString());
+		processor.updateKeywords(text.toString());
+		processor.saveSnapshot(snapshot.toString());
+		restored = new KeywordProcessor();
+		restored.setOutputFile(output.toString());
+		restored.loadSnapshot(snapshot.toString());
+		restored.updateKeywordsMapped(mapped.toString());
+		Assert.assertEquals("Restored mapped output is incorrect", Arrays.asList("tea," + cafe), readLines(output));
+	}
+
+	/**
+	 * Tests that the keywords files of a directory are merged into an empty index,
+	 * where queries are ignored and a stop ends its file.
+	 */
+	@Test
+	void ingestTest() throws IOException
+	{
+		Path directory = Files.createTempDirectory("keywords");
+		Path files = writeIngestedFiles(directory);
+		Path queries = writeLines(directory.resolve("queries.txt"), "5", "stop");
+		Path output = directory.resolve("output.txt");
+
+		KeywordProcessor processor = new KeywordProcessor();
+		processor.setOutputFile(output.toString());
+		processor.ingestFiles(Arrays.asList(files.toString()), 2);
+		processor.updateKeywords(queries.toString());
+		Assert.assertEquals("Ingested output is incorrect", Arrays.asList("d,b,a,c"), readLines(output));
+	}
+
+	/**
+	 * Tests that ingested files are added to the counts of an index which already
+	 * has keywords, which are then searched again.
+	 */
+	@Test
+	void ingestNonEmptyTest() throws IOException
+	{
+		Path directory = Files.createTempDirectory("keywords");
+		Path files = writeIngestedFiles(directory);
+		Path input = writeLines(directory.resolve("input.txt"), "$a 10", "$e 4", "1", "stop");
+		Path queries = writeLines(directory.resolve("queries.txt"), "5", "$c 6", "3", "stop");
+		Path output = directory.resolve("output.txt");
+
+		KeywordProcessor processor = new KeywordProcessor();
+		processor.setOutputFile(output.toString());
+		processor.updateKeywords(input.toString());
+		Assert.assertEquals("Output before ingesting is incorrect", Arrays.asList("a"), readLines(output));
+		processor.ingestFiles(
+				Arrays.asList(files.resolve("a.txt").toString(), files.resolve("b.txt").toString()), 3);
+		processor.updateKeywords(queries.toString());
+		Assert.assertEquals("Ingested output is incorrect", Arrays.asList("a,b,e,c", "a,c,b"), readLines(output));
+	}
+
+	/**
+	 * Tests that a missing file is reported before any file is ingested.
+	 */
+	@Test
+	void ingestMissingFileTest() throws IOException
+	{
+		Path directory = Files.createTempDirectory("keywords");
+		Path files = writeIngestedFiles(directory);
+		Path missing = directory.resolve("missing.txt");
+		Path queries = writeLines(directory.resolve("queries.txt"), "5", "stop");
+		Path output = directory.resolve("output.txt");
+
+		KeywordProcessor processor = new KeywordProcessor();
+		processor.setOutputFile(output.toString());
+		try
+		{
+			processor.ingestFiles(Arrays.asList(files.resolve("a.txt").toString(), missing.toString()), 2);
+			Assert.fail("Missing file is ingested");
+		}
+		catch (IOException e)
+		{
+			Assert.assertEquals("Message is incorrect", "Input file, " + missing + ", does not exist", e.getMessage());
+		}
+		processor.updateKeywords(queries.toString());
+		Assert.assertEquals("Keywords were ingested", Arrays.asList(""), readLines(output));
+	}
+
+	/**
+	 * Tests that two modes cannot be combined, and that an operation on the exact
+	 * counts is rejected in another mode.
+	 */
+	@Test
+	void modeTest() throws IOException
+	{
+		KeywordProcessor processor = new KeywordProcessor();
+		processor.setDecay(100);
+		try
+		{
+			processor.setWindow(2, 0);
+			Assert.fail("Window is combined with decay");
+		}
+		catch (IllegalStateException e)
+		{
+			Assert.assertEquals("Message is incorrect", "The window cannot be combined with the decay", e.getMessage());
+		}
+		try
+		{
+			processor.merge(new KeywordProcessor());
+			Assert.fail("Decayed processor is merged");
+		}
+		catch (IllegalStateException e)
+		{
+			Assert.assertEquals("Message is incorrect", "Merging is not supported with the decay", e.getMessage());
+		}
+		try
+		{
+			KeywordProcessor.createApproximate(10).saveSnapshot("unused.snapshot");
+			Assert.fail("Approximate snapshot is saved");
+		}
+		catch (IllegalStateException e)
+		{
+			Assert.assertEquals("Message is incorrect", "Saving a snapshot is not supported with the approximate mode",
+					e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that a query for more keywords than are cached is read from the index
+	 * each time, and sees the keywords searched since the previous query.
+	 */
+	@Test
+	void largeQueryTest() throws IOException
+	{
+		Path directory = Files.createTempDirectory("keywords");
+		Path input = writeLines(directory.resolve("input.txt"), "$a 5", "$b 3", "2147483647", "$c 4", "2147483647",
+				"$b 3", "2147483647", "2", "$d 9", "2", "stop");
+		Path output = directory.resolve("output.txt");
+
+		KeywordProcessor processor = new KeywordProcessor();
+		processor.setOutputFile(output.toString());
+		processor.updateKeywords(input.toString());
+		Assert.assertEquals("Large query output is incorrect", Arrays.asList("a,b", "a,c,b", "b,a,c", "b,a", "d,b"),
+				readLines(output));
+	}
+
+	/**
+	 * Tests that a bounded index answers exactly while the evicted counts are
+	 * below the written counts, and otherwise writes bounds of the true counts.
+	 */
+	@Test
+	void boundedTest() throws IOException
+	{
+		Path directory = Files.createTempDirectory("keywords");
+		Path input = writeLines(directory.resolve("input.txt"), "$a 5", "$b 3", "$c 1", "2", "$d 6", "1", "2", "$b 5",
+				"2", "stop");
+		Path output = directory.resolve("output.txt");
+
+		// c is evicted with 1, then b with 3, and then a with 5
+		KeywordProcessor processor = new KeywordProcessor();
+		processor.setOutputFile(output.toString());
+		processor.setMaxKeywords(2);
+		processor.updateKeywords(input.toString());
+		Assert.assertEquals("Bounded output is incorrect", Arrays.asList("a,b", "d", "d,a", "b[5..8],d[6..7]"),
+				readLines(output));
+	}
+
+	/**
+	 * Tests that every query of a bounded index with many evictions is either the
+	 * exact top keywords, or bounds the true count of each keyword.
+	 */
+	@Test
+	void boundedRandomTest() throws IOException
+	{
+		Random random = new Random(11);
+		List<String> lines = new ArrayList<String>();
+		Map<String, Long> counts = new HashMap<String, Long>();
+		List<Map<String, Long>> queryCounts = new ArrayList<Map<String, Long>>();
+		List<Integer> queries = new ArrayList<Integer>();
+		for (int line = 0; line < 5000; line++)
+		{
+			if (line % 50 == 49)
+			{
+				int toQuery = 1 + random.nextInt(5);
+				lines.add(Integer.toString(toQuery));
+				queries.add(toQuery);
+				queryCounts.add(new HashMap<String, Long>(counts));
+				continue;
+			}
+
+			// A few keywords are searched often, and a long tail is searched rarely
+			String keyword = random.nextInt(3) == 0 ? "hot" + random.nextInt(4) : "cold" + random.nextInt(200);
+			int increment = 1 + random.nextInt(keyword.startsWith("hot") ? 20 : 3);
+			lines.add("$" + keyword + " " + increment);
+			counts.merge(keyword, (long) increment, Long::sum);
+		}
+		lines.add("stop");
+		Path directory = Files.createTempDirectory("keywords");
+		Path input = writeLines(directory.resolve("input.txt"), lines.toArray(new String[0]));
+		Path output = directory.resolve("output.txt");
+
+		KeywordProcessor processor = new KeywordProcessor();
+		processor.setOutputFile(output.toString());
+		processor.setMaxKeywords(8);
+		processor.updateKeywords(input.toString());
+		List<String> outputLines = readLines(output);
+		Assert.assertEquals("Number of queries is incorrect", queries.size(), outputLines.size());
+		int exactLines = 0;
+		for (int query = 0; query < queries.size(); query++)
+		{
+			Map<String, Long> trueCounts = queryCounts.get(query);
+			String[] items = outputLines.get(query).split(",");
+			if (!outputLines.get(query).contains("["))
+			{
+				// The exact top counts, in order
+				List<Long> topCounts = new ArrayList<Long>(trueCounts.values());
+				Collections.sort(topCounts, Collections.reverseOrder());
+				Assert.assertEquals("Number of keywords is incorrect", Math.min(queries.get(query), topCounts.size()),
+						items.length);
+				for (int rank = 0; rank < items.length; rank++)
+				{
+					Assert.assertEquals("Exact count is incorrect", topCounts.get(rank), trueCounts.get(items[rank]));
+				}
+				exactLines++;
+				continue;
+			}
+			for (String item : items)
+			{
+				int boundsStart = item.indexOf('[');
+				int separator = item.indexOf("..");
+				long lowerBound = Long.parseLong(item.substring(boundsStart + 1, separator));
+				long upperBound = Long.parseLong(item.substring(separator + 2, item.length() - 1));
+				long count = trueCounts.getOrDefault(item.substring(0, boundsStart), 0L);
+				Assert.assertTrue("Bounds do not hold the count of " + item, lowerBound <= count && count <= upperBound);
+			}
+		}
+		Assert.assertTrue("No query is exact", exactLines > 0);
+		Assert.assertTrue("No query is bounded", exactLines < queries.size());
+	}
+
+	/**
+	 * Writes three keywords files to a new directory, whose total counts are d 9,
+	 * b 7, a 6, and c 3
+	 * <p>
+	 *
+	 * @return The directory of the files
+	 */
+	private static Path writeIngestedFiles(Path directory) throws IOException
+	{
+		Path files = Files.createDirectory(directory.resolve("ingested"));
+		writeLines(files.resolve("a.txt"), "$a 5", "$b 2", "1", "$c 1", "stop", "$z 100");
+		writeLines(files.resolve("b.txt"), "$b 5", "$c 2");
+		writeLines(files.resolve("c.txt"), "$a 1", "$d 9");
+		return files;
+	}
+
+	/**
+	 * Writes the lines to the file as UTF-8
+	 */
+	private static Path writeLines(Path file, String... lines) throws IOException
+	{
+		return Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads the lines of the output file as UTF-8
+	 */
+	private static List<String> readLines(Path file) throws IOException
+	{
+		return Files.readAllLines(file, StandardCharsets.UTF_8);
+	}
+}
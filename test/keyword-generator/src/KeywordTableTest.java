@@ -0,0 +1,122 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import structure.KeywordTable;
+import structure.SnapshotReader;
+import structure.SnapshotWriter;
+
+/**
+ * Unit tests for the keyword hash table
+ *
+ * The tests were developed using junit.
+ */
+class KeywordTableTest
+{
+	/**
+	 * Tests that a table written to a snapshot is read back with the same ids.
+	 *
+	 * Enough keywords are added that the arena and offsets are written in more
+	 * than one buffer, and the restored table accepts new keywords.
+	 */
+	@Test
+	void snapshotTest() throws IOException
+	{
+		int numKeywords = 200000;
+		KeywordTable table = new KeywordTable();
+		for (int id = 0; id < numKeywords; ++id)
+		{
+			Assert.assertEquals("Id of keyword is incorrect", id, table.add("keyword-" + id, 0, 8 + digits(id)));
+		}
+		table.add("\u00FCn\u00EFcode", 0, 7);
+
+		Path file = Files.createTempFile("keywords", ".snapshot");
+		try
+		{
+			try (SnapshotWriter output = new SnapshotWriter(file))
+			{
+				table.writeTo(output);
+			}
+			KeywordTable restored;
+			try (SnapshotReader input = new SnapshotReader(file))
+			{
+				restored = KeywordTable.readFrom(input);
+			}
+
+			Assert.assertEquals("Size is incorrect", numKeywords + 1, restored.size());
+			for (int id = 0; id < numKeywords; id += 997)
+			{
+				String keyword = "keyword-" + id;
+				Assert.assertEquals("Keyword is incorrect", keyword, restored.getKeyword(id, StandardCharsets.UTF_8));
+				Assert.assertEquals("Id is incorrect", id, restored.find(keyword, 0, keyword.length()));
+			}
+			Assert.assertEquals("Encoded keyword is incorrect", "\u00FCn\u00EFcode",
+					restored.getKeyword(numKeywords, StandardCharsets.UTF_8));
+			Assert.assertEquals("Missing keyword is found", KeywordTable.NONE, restored.find("missing", 0, 7));
+			Assert.assertEquals("New id is incorrect", numKeywords + 1, restored.add("missing", 0, 7));
+			Assert.assertEquals("New keyword is not found", numKeywords + 1, restored.find("missing", 0, 7));
+		}
+		finally
+		{
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Tests merging the keywords of another table, where some are already in this
+	 * table and the others are copied from the other table's arena.
+	 */
+	@Test
+	void mergeTest()
+	{
+		int numKeywords = 5000;
+		KeywordTable table = new KeywordTable();
+		KeywordTable source = new KeywordTable();
+		for (int id = 0; id < numKeywords; ++id)
+		{
+			table.add("keyword-" + (2 * id), 0, 8 + digits(2 * id));
+			source.add("keyword-" + id, 0, 8 + digits(id));
+		}
+		source.add("\u00FCn\u00EFcode", 0, 7);
+
+		for (int id = 0; id <= numKeywords; ++id)
+		{
+			String keyword = source.getKeyword(id, StandardCharsets.UTF_8);
+			int merged = table.merge(source, id);
+			Assert.assertEquals("Merged keyword is incorrect", keyword, table.getKeyword(merged, StandardCharsets.UTF_8));
+			Assert.assertEquals("Merged keyword is not found", merged, table.find(keyword, 0, keyword.length()));
+			if (id < numKeywords && id % 2 == 0)
+			{
+				Assert.assertEquals("Shared keyword has a new id", id / 2, merged);
+			}
+		}
+		Assert.assertEquals("Size is incorrect", numKeywords + numKeywords / 2 + 1, table.size());
+	}
+
+	/**
+	 * Tests that a capacity whose slots cannot be allocated is rejected.
+	 */
+	@Test
+	void capacityTest()
+	{
+		try
+		{
+			new KeywordTable(KeywordTable.MAX_CAPACITY + 1);
+			Assert.fail("Table is created beyond its capacity");
+		}
+		catch (IllegalArgumentException e)
+		{
+			Assert.assertEquals("Message is incorrect",
+					"The capacity must be at most 536870912 keywords, but is 536870913", e.getMessage());
+		}
+	}
+
+	private int digits(int value)
+	{
+		return Integer.toString(value).length();
+	}
+}
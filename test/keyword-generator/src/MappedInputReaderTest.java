@@ -0,0 +1,71 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import counter.MappedInputReader;
+
+/**
+ * Unit tests for the memory-mapped input reader
+ *
+ * The tests were developed using junit.
+ */
+class MappedInputReaderTest
+{
+	/**
+	 * Tests that the lines are split as BufferedReader splits them, for every line
+	 * terminator, and for windows which end between a carriage return and a line
+	 * feed.
+	 */
+	@Test
+	void lineTerminatorTest() throws IOException
+	{
+		String[] texts = { "$a 1\n2\nstop\n", "$a 1\r\n2\r\nstop", "$a 1\r2\rstop\r", "$a 1\r\r\n\n2\r\r", "\r\n\r",
+				"", "\n", "\r", "$ab 12\r\n3\r4\n\r\n5" };
+		for (String text : texts)
+		{
+			Path file = Files.createTempFile("keywords", ".txt");
+			Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+			List<String> expected = new ArrayList<String>();
+			try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+			{
+				String line;
+				while ((line = reader.readLine()) != null)
+				{
+					expected.add(line);
+				}
+			}
+			for (int windowSize = 8; windowSize <= 16; windowSize++)
+			{
+				Assert.assertEquals("Lines of \"" + text + "\" are incorrect", expected, readLines(file, windowSize));
+			}
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Reads the lines of the file with the provided window size
+	 */
+	private static List<String> readLines(Path file, int windowSize) throws IOException
+	{
+		List<String> lines = new ArrayList<String>();
+		try (MappedInputReader input = new MappedInputReader(file, windowSize))
+		{
+			while (input.nextLine())
+			{
+				ByteBuffer buffer = input.getBuffer();
+				byte[] bytes = new byte[input.getLineEnd() - input.getLineStart()];
+				buffer.get(input.getLineStart(), bytes);
+				lines.add(new String(bytes, StandardCharsets.UTF_8));
+			}
+		}
+		return lines;
+	}
+}
@@ -0,0 +1,172 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import structure.PrimitiveMaxFibonacciHeap;
+
+/**
+ * Unit tests for the primitive Fibonacci heap
+ *
+ * The tests were developed using junit.
+ */
+class PrimitiveFibonacciHeapTest
+{
+	/**
+	 * Tests inserting and removing from the heap.
+	 */
+	@Test
+	void InsertAndRemoveTest()
+	{
+		PrimitiveMaxFibonacciHeap heap = new PrimitiveMaxFibonacciHeap();
+		Assert.assertEquals("Heap is not empty", true, heap.isEmpty());
+		Assert.assertEquals("Max of empty heap != NONE", PrimitiveMaxFibonacciHeap.NONE, heap.removeMax());
+
+		heap.insert(0, 20);
+		heap.insert(1, 25);
+		heap.insert(2, 30);
+		heap.insert(3, 15);
+		heap.insert(4, 5);
+		Assert.assertEquals("Number of nodes != 5", 5, heap.getNumberOfNodes());
+		Assert.assertEquals("Max id != 2", 2, heap.getMax());
+
+		Assert.assertEquals("Max id != 2", 2, heap.removeMax());
+		Assert.assertEquals("Id 2 is in the heap", false, heap.contains(2));
+		Assert.assertEquals("Max id != 1", 1, heap.removeMax());
+		Assert.assertEquals("Max id != 0", 0, heap.removeMax());
+		Assert.assertEquals("Max id != 3", 3, heap.removeMax());
+		Assert.assertEquals("Max id != 4", 4, heap.removeMax());
+		Assert.assertEquals("Heap is not empty", true, heap.isEmpty());
+	}
+
+	/**
+	 * Tests inserting and removing a large number of items from the heap.
+	 *
+	 * Items are inserted in a random order, with ids beyond the initial capacity.
+	 * The inserted keys are sorted using the Collections library, and compared with
+	 * consecutive calls to removeMax.
+	 */
+	@Test
+	void InsertAndRemoveABunchTest()
+	{
+		PrimitiveMaxFibonacciHeap heap = new PrimitiveMaxFibonacciHeap(4);
+		Random random = new Random();
+		int numNodes = 100000;
+
+		ArrayList<Long> randomNumbers = new ArrayList<Long>(numNodes);
+		for (int id = 0; id < numNodes; ++id)
+		{
+			long randomNumber = random.nextInt(numNodes);
+			heap.insert(id, randomNumber);
+			randomNumbers.add(randomNumber);
+		}
+		Collections.sort(randomNumbers, Collections.reverseOrder());
+
+		for (Long expectedKey : randomNumbers)
+		{
+			int maxId = heap.removeMax();
+			Assert.assertEquals("Key ain't good", expectedKey.longValue(), heap.getKey(maxId));
+		}
+		Assert.assertEquals("Heap is not empty", true, heap.isEmpty());
+	}
+
+	/**
+	 * Tests increasing keys and removing arbitrary ids.
+	 *
+	 * The keys are tracked in an array and compared with the order in which the
+	 * heap returns the remaining ids.
+	 */
+	@Test
+	void increaseKeyAndRemoveTest()
+	{
+		PrimitiveMaxFibonacciHeap heap = new PrimitiveMaxFibonacciHeap();
+		Random random = new Random();
+		int numNodes = 20000;
+		long[] keys = new long[numNodes];
+		for (int id = 0; id < numNodes; ++id)
+		{
+			keys[id] = random.nextInt(1000);
+			heap.insert(id, keys[id]);
+		}
+
+		// Build trees, then increase and remove random ids
+		heap.removeMax();
+		for (int operation = 0; operation < numNodes; ++operation)
+		{
+			int id = random.nextInt(numNodes);
+			if (!heap.contains(id))
+			{
+				continue;
+			}
+			if (random.nextInt(4) == 0)
+			{
+				heap.remove(id);
+				Assert.assertEquals("Id is in the heap", false, heap.contains(id));
+			}
+			else
+			{
+				long increment = random.nextInt(2000);
+				keys[id] += increment;
+				heap.increaseKey(id, increment);
+			}
+		}
+
+		// Verify the remaining ids come out in descending order of their keys
+		ArrayList<Long> remainingKeys = new ArrayList<Long>();
+		for (int id = 0; id < numNodes; ++id)
+		{
+			if (heap.contains(id))
+			{
+				remainingKeys.add(keys[id]);
+			}
+		}
+		Collections.sort(remainingKeys, Collections.reverseOrder());
+		Assert.assertEquals("Number of nodes is wrong", remainingKeys.size(), heap.getNumberOfNodes());
+		for (Long expectedKey : remainingKeys)
+		{
+			int maxId = heap.removeMax();
+			Assert.assertEquals("Key ain't good", expectedKey.longValue(), keys[maxId]);
+		}
+		Assert.assertEquals("Heap is not empty", true, heap.isEmpty());
+	}
+
+	/**
+	 * Tests melding two heaps and reading the largest ids
+	 */
+	@Test
+	void meldAndPeekTopTest()
+	{
+		PrimitiveMaxFibonacciHeap heap1 = new PrimitiveMaxFibonacciHeap();
+		heap1.insert(0, 5);
+		heap1.insert(1, 10);
+		heap1.insert(2, 20);
+
+		PrimitiveMaxFibonacciHeap heap2 = new PrimitiveMaxFibonacciHeap();
+		heap2.insert(3, 25);
+		heap2.insert(4, 15);
+		heap2.insert(40, 8);
+
+		heap1.meld(heap2);
+		Assert.assertEquals("Number of nodes != 6", 6, heap1.getNumberOfNodes());
+		Assert.assertEquals("Melded heap is not empty", true, heap2.isEmpty());
+		Assert.assertEquals("Max id != 3", 3, heap1.getMax());
+
+		int[] topIds = heap1.peekTop(4);
+		Assert.assertEquals("Number of peeked ids != 4", 4, topIds.length);
+		Assert.assertEquals("Id != 3", 3, topIds[0]);
+		Assert.assertEquals("Id != 2", 2, topIds[1]);
+		Assert.assertEquals("Id != 4", 4, topIds[2]);
+		Assert.assertEquals("Id != 1", 1, topIds[3]);
+		Assert.assertEquals("Number of nodes != 6", 6, heap1.getNumberOfNodes());
+
+		Assert.assertEquals("Max id != 3", 3, heap1.removeMax());
+		Assert.assertEquals("Max id != 2", 2, heap1.removeMax());
+		Assert.assertEquals("Max id != 4", 4, heap1.removeMax());
+		Assert.assertEquals("Max id != 1", 1, heap1.removeMax());
+		Assert.assertEquals("Max id != 40", 40, heap1.removeMax());
+		Assert.assertEquals("Max id != 0", 0, heap1.removeMax());
+		Assert.assertEquals("Heap is not empty", true, heap1.isEmpty());
+	}
+}
@@ -0,0 +1,112 @@
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import structure.SpaceSavingSummary;
+
+/**
+ * Unit tests for the Space-Saving summary
+ *
+ * The tests were developed using junit.
+ */
+class SpaceSavingSummaryTest
+{
+	/**
+	 * Tests that the counts are exact while every keyword has its own counter.
+	 */
+	@Test
+	void exactCountsTest()
+	{
+		SpaceSavingSummary summary = new SpaceSavingSummary(4);
+		summary.add("facebook", 0, 8, 5);
+		summary.add("youtube", 0, 7, 3);
+		summary.add("facebook", 0, 8, 2);
+		summary.add("$amazon", 1, 7, 9);
+		Assert.assertEquals("Size != 3", 3, summary.size());
+		Assert.assertEquals("Total != 19", 19, summary.getTotal());
+
+		int[] top = summary.getTop(3);
+		Assert.assertEquals("First keyword != amazon", "amazon",
+				summary.getKeyword(top[0], StandardCharsets.UTF_8));
+		Assert.assertEquals("Second keyword != facebook", "facebook",
+				summary.getKeyword(top[1], StandardCharsets.UTF_8));
+		Assert.assertEquals("Count of facebook != 7", 7, summary.getCount(top[1]));
+		Assert.assertEquals("Error of facebook != 0", 0, summary.getError(top[1]));
+	}
+
+	/**
+	 * Tests that the smallest counter is replaced by a new keyword.
+	 */
+	@Test
+	void replaceMinimumTest()
+	{
+		SpaceSavingSummary summary = new SpaceSavingSummary(2);
+		summary.add("a", 0, 1, 10);
+		summary.add("b", 0, 1, 4);
+		summary.add("c", 0, 1, 3);
+		Assert.assertEquals("Size != 2", 2, summary.size());
+
+		int[] top = summary.getTop(2);
+		Assert.assertEquals("Second keyword != c", "c", summary.getKeyword(top[1], StandardCharsets.UTF_8));
+		Assert.assertEquals("Count of c != 7", 7, summary.getCount(top[1]));
+		Assert.assertEquals("Error of c != 4", 4, summary.getError(top[1]));
+
+		summary.add("b", 0, 1, 1);
+		top = summary.getTop(2);
+		Assert.assertEquals("First keyword != a", "a", summary.getKeyword(top[0], StandardCharsets.UTF_8));
+		Assert.assertEquals("Second keyword != b", "b", summary.getKeyword(top[1], StandardCharsets.UTF_8));
+		Assert.assertEquals("Count of b != 8", 8, summary.getCount(top[1]));
+		Assert.assertEquals("Error of b != 7", 7, summary.getError(top[1]));
+	}
+
+	/**
+	 * Tests the error bounds on a skewed stream with many more keywords than
+	 * counters.
+	 *
+	 * Every monitored keyword's true count must lie within its bounds, and every
+	 * keyword with a true count above the total divided by the number of counters
+	 * must be monitored.
+	 */
+	@Test
+	void errorBoundsTest()
+	{
+		int counters = 100;
+		SpaceSavingSummary summary = new SpaceSavingSummary(counters);
+		Map<String, Long> trueCounts = new HashMap<String, Long>();
+		Random random = new Random(11);
+		for (int operation = 0; operation < 200000; ++operation)
+		{
+			// Cube the random value so that small keyword numbers are more common
+			double value = random.nextDouble();
+			String keyword = "keyword" + (int) (value * value * value * 5000);
+			long increment = 1 + random.nextInt(5);
+			summary.add(keyword, 0, keyword.length(), increment);
+			Long trueCount = trueCounts.get(keyword);
+			trueCounts.put(keyword, trueCount == null ? increment : trueCount + increment);
+		}
+		Assert.assertEquals("Size != number of counters", counters, summary.size());
+
+		Map<String, Integer> monitored = new HashMap<String, Integer>();
+		for (int counter : summary.getTop(counters))
+		{
+			String keyword = summary.getKeyword(counter, StandardCharsets.UTF_8);
+			long trueCount = trueCounts.get(keyword);
+			Assert.assertTrue("Count underestimates " + keyword, summary.getCount(counter) >= trueCount);
+			Assert.assertTrue("Count overestimates " + keyword + " by more than the error",
+					summary.getCount(counter) - summary.getError(counter) <= trueCount);
+			monitored.put(keyword, counter);
+		}
+		for (Map.Entry<String, Long> entry : trueCounts.entrySet())
+		{
+			if (entry.getValue() > summary.getTotal() / counters)
+			{
+				Assert.assertTrue("Heavy hitter " + entry.getKey() + " is not monitored",
+						monitored.containsKey(entry.getKey()));
+			}
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package counter;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import structure.FrequencyEngine;
+import structure.FrequencyIndex;
+import structure.KeywordTable;
+
+/**
+ * Unit tests for the eviction queue
+ *
+ * The tests were developed using junit.
+ */
+class EvictionQueueTest
+{
+	/**
+	 * Tests that entries whose count increased are pushed again with their
+	 * current count, and entries of removed ids are dropped.
+	 */
+	@Test
+	void staleEntryTest()
+	{
+		FrequencyIndex frequencies = FrequencyEngine.FIBONACCI.create();
+		EvictionQueue queue = new EvictionQueue();
+		Assert.assertEquals("Empty queue is not empty", KeywordTable.NONE, queue.pollColdest(frequencies));
+		for (int id = 0; id < 4; id++)
+		{
+			frequencies.add(id, id + 1);
+			queue.push(id, id + 1);
+		}
+
+		// Id 0 is no longer the coldest, and id 1 was removed
+		frequencies.add(0, 5);
+		frequencies.remove(1);
+		Assert.assertEquals("Coldest id != 2", 2, queue.pollColdest(frequencies));
+		Assert.assertEquals("Size != 2", 2, queue.size());
+		frequencies.remove(2);
+		Assert.assertEquals("Coldest id != 3", 3, queue.pollColdest(frequencies));
+		frequencies.remove(3);
+		Assert.assertEquals("Coldest id != 0", 0, queue.pollColdest(frequencies));
+		Assert.assertEquals("Count of id 0 != 6", 6, frequencies.getCount(0));
+		Assert.assertEquals("Queue is not empty", KeywordTable.NONE, queue.pollColdest(frequencies));
+	}
+
+	/**
+	 * Tests that the queue grows past its initial capacity, polls the ids in
+	 * order of their counts, and is empty after being cleared.
+	 */
+	@Test
+	void orderTest()
+	{
+		FrequencyIndex frequencies = FrequencyEngine.FIBONACCI.create();
+		EvictionQueue queue = new EvictionQueue();
+		for (int id = 0; id < 100; id++)
+		{
+			long count = (id * 37) % 100 + 1;
+			frequencies.add(id, count);
+			queue.push(id, count);
+		}
+		Assert.assertEquals("Size != 100", 100, queue.size());
+		for (long count = 1; count <= 50; count++)
+		{
+			int id = queue.pollColdest(frequencies);
+			Assert.assertEquals("Count of coldest id != " + count, count, frequencies.getCount(id));
+			frequencies.remove(id);
+		}
+
+		queue.clear();
+		Assert.assertEquals("Size != 0", 0, queue.size());
+		Assert.assertEquals("Cleared queue is not empty", KeywordTable.NONE, queue.pollColdest(frequencies));
+	}
+}
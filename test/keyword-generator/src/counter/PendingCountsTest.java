@@ -0,0 +1,87 @@
+package counter;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the pending counts map
+ *
+ * The tests were developed using junit.
+ */
+class PendingCountsTest
+{
+	/**
+	 * Tests that the map grows to the flush limit of the keyword processor, sums
+	 * the counts of each id, and keeps its entries in the order that their ids
+	 * were first added.
+	 */
+	@Test
+	void growthTest()
+	{
+		PendingCounts pending = new PendingCounts();
+		Assert.assertEquals("Size != 0", 0, pending.size());
+		int numberOfIds = KeywordProcessor.PENDING_LIMIT;
+		for (int round = 1; round <= 3; round++)
+		{
+			for (int entry = 0; entry < numberOfIds; entry++)
+			{
+				pending.add(idAt(entry), round);
+			}
+		}
+		Assert.assertEquals("Size != " + numberOfIds, numberOfIds, pending.size());
+		for (int entry = 0; entry < numberOfIds; entry++)
+		{
+			Assert.assertEquals("Id is not in first-seen order", idAt(entry), pending.getId(entry));
+			Assert.assertEquals("Count != 6", 6, pending.getCount(entry));
+		}
+	}
+
+	/**
+	 * Tests that a cleared map is empty, and that ids added afterwards, including
+	 * ids added before the clear, start from their new count.
+	 */
+	@Test
+	void clearTest()
+	{
+		PendingCounts pending = new PendingCounts();
+		for (int id = 0; id < 1000; id++)
+		{
+			pending.add(id, 5);
+		}
+		pending.clear();
+		Assert.assertEquals("Size != 0", 0, pending.size());
+
+		pending.add(2000, 1);
+		pending.add(7, 2);
+		pending.add(2000, 3);
+		pending.add(0, 4);
+		Assert.assertEquals("Size != 3", 3, pending.size());
+		Assert.assertEquals("First id != 2000", 2000, pending.getId(0));
+		Assert.assertEquals("Count of 2000 != 4", 4, pending.getCount(0));
+		Assert.assertEquals("Second id != 7", 7, pending.getId(1));
+		Assert.assertEquals("Count of 7 != 2", 2, pending.getCount(1));
+		Assert.assertEquals("Third id != 0", 0, pending.getId(2));
+		Assert.assertEquals("Count of 0 != 4", 4, pending.getCount(2));
+
+		// Reused many times, the capacity kept from before holds every id
+		for (int round = 0; round < 100; round++)
+		{
+			pending.clear();
+			for (int id = round; id < round + 1000; id++)
+			{
+				pending.add(id, id);
+			}
+			Assert.assertEquals("Size != 1000", 1000, pending.size());
+			Assert.assertEquals("Last id is incorrect", round + 999, pending.getId(999));
+			Assert.assertEquals("Last count is incorrect", round + 999, pending.getCount(999));
+		}
+	}
+
+	/**
+	 * Spreads the ids apart, so that they are not added in the order of their
+	 * hashes
+	 */
+	private static int idAt(int entry)
+	{
+		return (int) ((entry * 2654435761L) & Integer.MAX_VALUE);
+	}
+}
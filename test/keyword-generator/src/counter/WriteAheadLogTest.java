@@ -0,0 +1,105 @@
+package counter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import structure.FrequencyEngine;
+import structure.FrequencyIndex;
+import structure.KeywordTable;
+
+/**
+ * Unit tests for the write-ahead log
+ *
+ * The tests were developed using junit.
+ */
+class WriteAheadLogTest
+{
+	/**
+	 * Tests that every committed batch is replayed, with new keywords assigned
+	 * ids in the order that they were logged.
+	 */
+	@Test
+	void replayTest() throws IOException
+	{
+		Path directory = Files.createTempDirectory("log");
+		writeLog(directory);
+
+		KeywordTable keywords = new KeywordTable();
+		FrequencyIndex frequencies = FrequencyEngine.FIBONACCI.create();
+		WriteAheadLog log = new WriteAheadLog(directory);
+		Assert.assertEquals("Last position != 4", 4, log.replay(0, keywords, frequencies));
+		log.close();
+		Assert.assertEquals("Size != 2", 2, keywords.size());
+		Assert.assertEquals("Id of a != 0", 0, keywords.find("a", 0, 1));
+		Assert.assertEquals("Id of b != 1", 1, keywords.find("b", 0, 1));
+		Assert.assertEquals("Count of a != 5", 5, frequencies.getCount(0));
+		Assert.assertEquals("Count of b != 12", 12, frequencies.getCount(1));
+	}
+
+	/**
+	 * Tests that a batch which was only partly written is truncated from its
+	 * segment, and the batches before it are replayed.
+	 */
+	@Test
+	void tornTailTest() throws IOException
+	{
+		Path directory = Files.createTempDirectory("log");
+		long firstBatchEnd = writeLog(directory);
+		Path segment = directory.resolve("log.0");
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE))
+		{
+			channel.truncate(channel.size() - 3);
+		}
+
+		KeywordTable keywords = new KeywordTable();
+		FrequencyIndex frequencies = FrequencyEngine.FIBONACCI.create();
+		WriteAheadLog log = new WriteAheadLog(directory);
+		Assert.assertEquals("Last position != 3", 3, log.replay(0, keywords, frequencies));
+		log.close();
+		Assert.assertEquals("Torn batch is not truncated", firstBatchEnd, Files.size(segment));
+		Assert.assertEquals("Count of a != 5", 5, frequencies.getCount(0));
+		Assert.assertEquals("Count of b != 5", 5, frequencies.getCount(1));
+
+		// A corrupt batch is dropped the same way
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE))
+		{
+			channel.write(ByteBuffer.wrap(new byte[] { 0x7F }), firstBatchEnd - 1);
+		}
+		keywords = new KeywordTable();
+		frequencies = FrequencyEngine.FIBONACCI.create();
+		log = new WriteAheadLog(directory);
+		Assert.assertEquals("Corrupt batch is replayed", -1, log.replay(0, keywords, frequencies));
+		log.close();
+		Assert.assertEquals("Corrupt batch is not truncated", 0, Files.size(segment));
+		Assert.assertEquals("Size != 0", 0, keywords.size());
+	}
+
+	/**
+	 * Logs two batches to a new log in the directory
+	 * <p>
+	 *
+	 * @return The size of the segment after the first batch
+	 */
+	private static long writeLog(Path directory) throws IOException
+	{
+		KeywordTable keywords = new KeywordTable();
+		WriteAheadLog log = new WriteAheadLog(directory);
+		log.replay(0, keywords, FrequencyEngine.FIBONACCI.create());
+		keywords.add("a", 0, 1);
+		log.appendKeyword(keywords, 0, 3, 1);
+		log.appendIncrement(0, 2, 2);
+		keywords.add("b", 0, 1);
+		log.appendKeyword(keywords, 1, 5, 3);
+		log.commit();
+		long firstBatchEnd = Files.size(directory.resolve("log.0"));
+		log.appendIncrement(1, 7, 4);
+		log.close();
+		return firstBatchEnd;
+	}
+}